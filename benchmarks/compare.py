@@ -0,0 +1,74 @@
+#!/usr/bin/env python3
+"""Compare two JMH result files (./gradlew :benchmarks:jmh -Pjmh.results=<file>) and print a table.
+
+    python3 benchmarks/compare.py base.json head.json [--threshold 5]
+
+One row per benchmark and parameter set found in both files: score and allocation per operation
+(gc.alloc.rate.norm) before and after, and the change in percent. Changes worse than the threshold
+are marked REGRESSION; the exit status is 1 if there are any.
+"""
+import argparse
+import json
+import sys
+
+ALLOC = "gc.alloc.rate.norm"
+
+
+def load(path):
+    with open(path) as f:
+        runs = json.load(f)
+    out = {}
+    for run in runs:
+        name = run["benchmark"].rsplit(".", 2)
+        name = ".".join(name[-2:])
+        params = ",".join("%s=%s" % kv for kv in sorted(run.get("params", {}).items()))
+        alloc = run.get("secondaryMetrics", {}).get(ALLOC, {}).get("score")
+        out[(name, params)] = (run["mode"], run["primaryMetric"]["score"], run["primaryMetric"]["scoreUnit"], alloc)
+    return out
+
+
+def change(before, after):
+    if before is None or after is None or before == 0:
+        return None
+    return (after - before) / before * 100.0
+
+
+def main():
+    ap = argparse.ArgumentParser()
+    ap.add_argument("base")
+    ap.add_argument("head")
+    ap.add_argument("--threshold", type=float, default=5.0, help="percent; default 5")
+    args = ap.parse_args()
+
+    base, head = load(args.base), load(args.head)
+    rows = []
+    regressions = 0
+    for key in sorted(base.keys() & head.keys()):
+        mode, b, unit, b_alloc = base[key]
+        _, h, _, h_alloc = head[key]
+        d = change(b, h)
+        # Throughput: higher is better. Every other mode is a time per operation: lower is better.
+        # No change to judge when the base score is 0.
+        worse = None if d is None else (-d if mode == "thpt" else d)
+        da = change(b_alloc, h_alloc)
+        flag = ""
+        if (worse is not None and worse > args.threshold) or (da is not None and da > args.threshold):
+            flag = "REGRESSION"
+            regressions += 1
+        elif worse is not None and worse < -args.threshold:
+            flag = "faster"
+        rows.append((key[0], key[1], "%.3f" % b, "%.3f" % h, unit, "-" if d is None else "%+.1f%%" % d,
+                     "-" if da is None else "%.0f -> %.0f (%+.1f%%)" % (b_alloc, h_alloc, da), flag))
+
+    header = ("benchmark", "params", "base", "head", "unit", "change", "B/op", "")
+    widths = [max(len(str(r[i])) for r in rows + [header]) for i in range(len(header))]
+    for r in [header] + rows:
+        print("  ".join(str(c).ljust(w) for c, w in zip(r, widths)).rstrip())
+
+    for key in sorted(base.keys() ^ head.keys()):
+        print("only in %s: %s %s" % ("base" if key in base else "head", key[0], key[1]))
+    return 1 if regressions else 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,15 @@
+package org.gudu0.AwareMemory;
+
+/** Worlds for the benchmarks: a generated factory (FactoryGenerator), run for a while so the belts are loaded. */
+final class BenchWorlds {
+    private BenchWorlds() {}
+
+    private static final long SEED = 1L;
+    private static final int WARMUP_TICKS = 600;
+
+    static TileWorld build(int tiles) {
+        TileWorld world = FactoryGenerator.generate(SEED, tiles);
+        world.simulateTicks(WARMUP_TICKS, Long.MAX_VALUE);
+        return world;
+    }
+}
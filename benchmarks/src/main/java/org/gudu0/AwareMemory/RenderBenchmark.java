@@ -0,0 +1,34 @@
+package org.gudu0.AwareMemory;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// One frame's item walk. Read gc.alloc.rate.norm (bytes per frame) as much as the time.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int tiles;
+
+    private TileWorld world;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BenchWorlds.build(tiles);
+    }
+
+    @Benchmark
+    public void renderInfos(Blackhole bh) {
+        for (TileWorld.ItemRenderInfo info : world.renderInfos()) {
+            bh.consume(info.x());
+            bh.consume(info.y());
+            bh.consume(info.item().type());
+        }
+    }
+}
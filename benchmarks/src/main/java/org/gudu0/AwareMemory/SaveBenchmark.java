@@ -0,0 +1,43 @@
+package org.gudu0.AwareMemory;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// SaveIO's binary format, without Base64 or the file system.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int tiles;
+
+    private WorldGrid grid;
+    private int nextItemId;
+    private WorldGrid.TileSave[] tileSaves;
+    private WorldGrid.ItemSave[] itemSaves;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TileWorld world = BenchWorlds.build(tiles);
+        grid = world.worldGrid();
+        nextItemId = world.exportNextItemId();
+        tileSaves = world.exportTileSaves();
+        itemSaves = world.exportItemSaves().toArray(new WorldGrid.ItemSave[0]);
+        bytes = SaveIO.encode(grid, nextItemId, tileSaves, itemSaves);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SaveIO.encode(grid, nextItemId, tileSaves, itemSaves);
+    }
+
+    @Benchmark
+    public SaveIO.LoadedData decode() {
+        return SaveIO.decode(bytes);
+    }
+}
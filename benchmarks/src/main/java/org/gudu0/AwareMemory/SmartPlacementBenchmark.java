@@ -0,0 +1,49 @@
+package org.gudu0.AwareMemory;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// SmartPlacement latency: a refresh with nothing to change, and one placement edit (which refreshes too).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmartPlacementBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int tiles;
+
+    private TileWorld world;
+    private WorldGrid grid;
+    private boolean placed = false;
+
+    // FactoryGenerator bands are three rows of tiles and an empty one.
+    private static final int GAP_ROW = 3;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BenchWorlds.build(tiles);
+        grid = world.worldGrid();
+    }
+
+    @Benchmark
+    public void refreshAll() {
+        SmartPlacement.refreshAll(world);
+    }
+
+    // Alternately places and deletes a conveyor in the empty row between the first two bands.
+    @Benchmark
+    public void placeOrDelete() {
+        if (placed) {
+            grid.setTile(1, GAP_ROW, WorldGrid.TILE_EMPTY);
+            world.clearEntityAt(1, GAP_ROW);
+        } else {
+            grid.setTile(1, GAP_ROW, WorldGrid.TILE_CONVEYOR, 0);
+            grid.setTile(1, GAP_ROW, world.decideAutoTileForConveyor(1, GAP_ROW, 0));
+            world.rebuildEntityAt(1, GAP_ROW);
+        }
+        placed = !placed;
+    }
+}
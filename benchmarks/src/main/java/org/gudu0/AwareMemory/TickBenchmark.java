@@ -0,0 +1,30 @@
+package org.gudu0.AwareMemory;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Ticks per second on a loaded factory (TileWorld.tickOnce through simulateTicks).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int tiles;
+
+    private TileWorld world;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BenchWorlds.build(tiles);
+    }
+
+    @Benchmark
+    public int tick() {
+        world.simulateTicks(1, Long.MAX_VALUE);
+        return world.getTick();
+    }
+}
@@ -0,0 +1,253 @@
+package org.gudu0.AwareMemory;
+
+import org.gudu0.AwareMemory.entities.FilterEntity;
+import org.gudu0.AwareMemory.entities.MergerEntity;
+import org.gudu0.AwareMemory.entities.SplitterEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A copied rectangle of factory: tiles and rots, plus the settings of filters, splitters and mergers
+ * (their TileSave fields: filter rules, round-robin state). Timers and items are not copied.
+ * <p>
+ * Shapes and variants aren't stored either; SmartPlacement derives them again when the blueprint is
+ * pasted, which is one edit ({@link TileWorld#beginEdit}), so it refreshes once for the whole paste.
+ * <p>
+ * Encoding (same primitives as SaveIO):
+ *   u32 MAGIC = 'FGB1'
+ *   u8  VERSION = 1
+ *   varint w, varint h
+ *   RLE-packed cells, raster order from the bottom-left:
+ *     packed = (tileId << 2) | rot
+ *     repeat until w*h cells decoded:
+ *       varint runLen
+ *       varint packedValue
+ *   varint settingCount
+ *     for each:
+ *       varint x, varint y          (in the blueprint)
+ *       svarint i0, svarint i1, svarint i2
+ *       u8 b0 (0/1)
+ */
+public final class Blueprint {
+    private static final int MAGIC = 0x46474231; // 'F' 'G' 'B' '1'
+    private static final int VERSION = 1;
+
+    public final int w, h;
+
+    // Packed cells ((tileId << 2) | rot), x + y * w. 0 = empty, which paste leaves alone.
+    private final int[] cells;
+    // TileSave per configured entity; cx/cy are blueprint coordinates.
+    private final WorldGrid.TileSave[] settings;
+
+    private Blueprint(int w, int h, int[] cells, WorldGrid.TileSave[] settings) {
+        this.w = w;
+        this.h = h;
+        this.cells = cells;
+        this.settings = settings;
+    }
+
+    // ---------------- Copy / paste ----------------
+
+    /** The rectangle with its bottom-left cell at (x0, y0); anything outside the map reads as empty. */
+    public static Blueprint capture(TileWorld world, int x0, int y0, int w, int h) {
+        WorldGrid grid = world.worldGrid();
+        int[] cells = new int[w * h];
+        ArrayList<WorldGrid.TileSave> settings = new ArrayList<>();
+
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int cx = x0 + x, cy = y0 + y;
+                if (!grid.inBoundsCell(cx, cy)) continue;
+                int tile = grid.getTile(cx, cy);
+                if (tile == WorldGrid.TILE_EMPTY) continue;
+                cells[x + y * w] = (tile << 2) | (grid.getRot(cx, cy) & 3);
+
+                TileEntity te = world.getEntity(cx, cy);
+                if (te instanceof FilterEntity || te instanceof SplitterEntity || te instanceof MergerEntity) {
+                    WorldGrid.TileSave ts = new WorldGrid.TileSave();
+                    te.writeSaveData(ts);
+                    ts.cx = x;
+                    ts.cy = y;
+                    settings.add(ts);
+                }
+            }
+        }
+        return new Blueprint(w, h, cells, settings.toArray(new WorldGrid.TileSave[0]));
+    }
+
+    /**
+     * Places the blueprint with its bottom-left cell at (x0, y0), over whatever is there; empty cells of
+     * the blueprint keep what the world has. Cells off the map are skipped. No money changes hands.
+     */
+    public void paste(TileWorld world, int x0, int y0) {
+        WorldGrid grid = world.worldGrid();
+        world.beginEdit();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int packed = cells[x + y * w];
+                if (packed == 0 || !grid.inBoundsCell(x0 + x, y0 + y)) continue;
+                world.placeTile(x0 + x, y0 + y, packed >>> 2, packed & 3);
+            }
+        }
+        for (WorldGrid.TileSave s : settings) {
+            if (!grid.inBoundsCell(x0 + s.cx, y0 + s.cy)) continue;
+            WorldGrid.TileSave ts = copy(s);
+            ts.cx = x0 + s.cx;
+            ts.cy = y0 + s.cy;
+            world.importTileSave(ts, null);
+        }
+        world.commitEdit();
+    }
+
+    public int tileAt(int x, int y) {
+        return cells[x + y * w] >>> 2;
+    }
+
+    public int rotAt(int x, int y) {
+        return cells[x + y * w] & 3;
+    }
+
+    // ---------------- Transforms ----------------
+
+    /** Turned clockwise by quarterTurns * 90 degrees (any integer; negative turns counter-clockwise). */
+    public Blueprint rotated(int quarterTurns) {
+        Blueprint b = this;
+        for (int i = quarterTurns & 3; i > 0; i--) b = b.rotatedOnce();
+        return b;
+    }
+
+    // Clockwise with y up: (x, y) -> (y, w - 1 - x), and every direction one step on (EAST -> SOUTH).
+    // Filter rules are relative to the filter's rot, so they turn with it.
+    private Blueprint rotatedOnce() {
+        int[] out = new int[cells.length];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int packed = cells[x + y * w];
+                if (packed == 0) continue;
+                int nx = y, ny = w - 1 - x;
+                out[nx + ny * h] = (packed & ~3) | (((packed & 3) + 1) & 3);
+            }
+        }
+        WorldGrid.TileSave[] s = new WorldGrid.TileSave[settings.length];
+        for (int i = 0; i < s.length; i++) {
+            s[i] = copy(settings[i]);
+            s[i].cx = settings[i].cy;
+            s[i].cy = w - 1 - settings[i].cx;
+        }
+        return new Blueprint(h, w, out, s);
+    }
+
+    /** Mirrored left to right: EAST and WEST swap, and so do the sides of filters (FL <-> FR, rules too). */
+    public Blueprint mirrored() {
+        int[] out = new int[cells.length];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int packed = cells[x + y * w];
+                if (packed == 0) continue;
+                int tile = packed >>> 2;
+                if (tile == WorldGrid.TILE_FILTER_FL) tile = WorldGrid.TILE_FILTER_FR;
+                else if (tile == WorldGrid.TILE_FILTER_FR) tile = WorldGrid.TILE_FILTER_FL;
+                out[(w - 1 - x) + y * w] = (tile << 2) | ((2 - (packed & 3)) & 3);
+            }
+        }
+        WorldGrid.TileSave[] s = new WorldGrid.TileSave[settings.length];
+        for (int i = 0; i < s.length; i++) {
+            s[i] = copy(settings[i]);
+            s[i].cx = w - 1 - settings[i].cx;
+            if (isFilter(tileAt(settings[i].cx, settings[i].cy))) {
+                s[i].i1 = settings[i].i2;
+                s[i].i2 = settings[i].i1;
+            }
+        }
+        return new Blueprint(w, h, out, s);
+    }
+
+    private static boolean isFilter(int tile) {
+        return tile == WorldGrid.TILE_FILTER_LR || tile == WorldGrid.TILE_FILTER_FR || tile == WorldGrid.TILE_FILTER_FL;
+    }
+
+    private static WorldGrid.TileSave copy(WorldGrid.TileSave in) {
+        WorldGrid.TileSave ts = new WorldGrid.TileSave();
+        ts.cx = in.cx;
+        ts.cy = in.cy;
+        ts.t0 = in.t0;
+        ts.i0 = in.i0;
+        ts.i1 = in.i1;
+        ts.i2 = in.i2;
+        ts.b0 = in.b0;
+        return ts;
+    }
+
+    // ---------------- Encoding ----------------
+
+    public byte[] encode() {
+        SaveIO.Writer out = new SaveIO.Writer(64 + cells.length / 4);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarInt(w);
+        out.writeVarInt(h);
+
+        int runLen = 0;
+        int last = 0;
+        for (int packed : cells) {
+            if (runLen > 0 && packed != last) {
+                out.writeVarInt(runLen);
+                out.writeVarInt(last);
+                runLen = 0;
+            }
+            last = packed;
+            runLen++;
+        }
+        if (runLen > 0) {
+            out.writeVarInt(runLen);
+            out.writeVarInt(last);
+        }
+
+        out.writeVarInt(settings.length);
+        for (WorldGrid.TileSave ts : settings) {
+            out.writeVarInt(ts.cx);
+            out.writeVarInt(ts.cy);
+            out.writeSVarInt(ts.i0);
+            out.writeSVarInt(ts.i1);
+            out.writeSVarInt(ts.i2);
+            out.writeByte(ts.b0 ? 1 : 0);
+        }
+        return out.toByteArray();
+    }
+
+    public static Blueprint decode(byte[] bytes) {
+        SaveIO.Reader in = new SaveIO.Reader(bytes);
+        if (in.readInt() != MAGIC) throw new RuntimeException("Bad blueprint magic");
+        int ver = in.readUByte();
+        if (ver != VERSION) throw new RuntimeException("Unsupported blueprint version: " + ver);
+
+        int w = in.readVarInt();
+        int h = in.readVarInt();
+        if ((long) w * h > Integer.MAX_VALUE) throw new RuntimeException("Blueprint too large");
+        int[] cells = new int[w * h];
+        int i = 0;
+        while (i < cells.length) {
+            int runLen = in.readVarInt();
+            int packed = in.readVarInt();
+            if (runLen <= 0 || i + runLen > cells.length) throw new RuntimeException("RLE overflow");
+            if (packed != 0) Arrays.fill(cells, i, i + runLen, packed);
+            i += runLen;
+        }
+
+        int count = in.readVarInt();
+        WorldGrid.TileSave[] settings = new WorldGrid.TileSave[count];
+        for (int t = 0; t < count; t++) {
+            WorldGrid.TileSave ts = new WorldGrid.TileSave();
+            ts.cx = in.readVarInt();
+            ts.cy = in.readVarInt();
+            if (ts.cx >= w || ts.cy >= h) throw new RuntimeException("Setting outside the blueprint");
+            ts.i0 = in.readSVarInt();
+            ts.i1 = in.readSVarInt();
+            ts.i2 = in.readSVarInt();
+            ts.b0 = (in.readUByte() != 0);
+            settings[t] = ts;
+        }
+        return new Blueprint(w, h, cells, settings);
+    }
+}
@@ -0,0 +1,139 @@
+package org.gudu0.AwareMemory;
+
+import java.util.Arrays;
+
+/**
+ * Bookkeeping for a cell grid stored in 32x32 chunks that only exist while something is in them.
+ * <p>
+ * The owner keeps the payload (WorldGrid's tiles, TileWorld's entities) in per-chunk arrays and tells
+ * this class whenever a cell becomes used or unused; retain/release report when a chunk comes alive or
+ * empties, so the owner can allocate or drop its arrays. Live chunks are kept sorted (row-major), which
+ * lets {@link Walk} visit every cell of every live chunk in plain raster order while skipping empty space.
+ */
+final class ChunkSet {
+    static final int SHIFT = 5;
+    static final int SIZE = 1 << SHIFT;
+    static final int MASK = SIZE - 1;
+    static final int AREA = SIZE * SIZE;
+
+    final int wCells, hCells;
+    final int wChunks, hChunks;
+
+    // Used cells per chunk, and the chunks with any, sorted by chunk index.
+    private final int[] used;
+    private int[] live = new int[16];
+    private int liveCount = 0;
+
+    ChunkSet(int wCells, int hCells) {
+        this.wCells = wCells;
+        this.hCells = hCells;
+        this.wChunks = (wCells + MASK) >> SHIFT;
+        this.hChunks = (hCells + MASK) >> SHIFT;
+        this.used = new int[wChunks * hChunks];
+    }
+
+    int chunkCount() {
+        return used.length;
+    }
+
+    int chunkOf(int cx, int cy) {
+        return (cx >> SHIFT) + (cy >> SHIFT) * wChunks;
+    }
+
+    // Index of (cx, cy) inside its chunk's payload arrays.
+    static int slotOf(int cx, int cy) {
+        return (cx & MASK) + ((cy & MASK) << SHIFT);
+    }
+
+    // One more used cell in this chunk. True if the chunk just came alive.
+    boolean retain(int chunk) {
+        if (used[chunk]++ > 0) return false;
+
+        int at = -Arrays.binarySearch(live, 0, liveCount, chunk) - 1;
+        if (liveCount == live.length) live = Arrays.copyOf(live, liveCount * 2);
+        System.arraycopy(live, at, live, at + 1, liveCount - at);
+        live[at] = chunk;
+        liveCount++;
+        return true;
+    }
+
+    // One fewer used cell. True if the chunk just emptied.
+    boolean release(int chunk) {
+        if (--used[chunk] > 0) return false;
+
+        int at = Arrays.binarySearch(live, 0, liveCount, chunk);
+        System.arraycopy(live, at + 1, live, at, liveCount - at - 1);
+        liveCount--;
+        return true;
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    /**
+     * Raster-order walk (row by row across the whole map) over the cells of the live chunks:
+     * {@code for (Walk c = set.walk(); c.next(); ) use(c.x, c.y);}
+     * <p>
+     * The live list is copied when the walk starts, so the caller may place or clear cells as it goes;
+     * chunks that come alive meanwhile are not visited, chunks that empty are still walked (as empty cells).
+     */
+    Walk walk() {
+        return new Walk(this);
+    }
+
+    static final class Walk {
+        private final ChunkSet set;
+        private int[] chunks = new int[0];
+        private int count;
+
+        int x, y;
+        // Current band of chunks sharing a chunk row: [bandStart, bandEnd); k = chunk within it.
+        private int bandStart, bandEnd, k, xEnd, yEnd;
+
+        private Walk(ChunkSet set) {
+            this.set = set;
+            reset();
+        }
+
+        void reset() {
+            if (chunks.length < set.liveCount) chunks = new int[set.live.length];
+            System.arraycopy(set.live, 0, chunks, 0, set.liveCount);
+            count = set.liveCount;
+            bandStart = bandEnd = k = 0;
+            x = xEnd = y = yEnd = 0;
+        }
+
+        boolean next() {
+            if (++x < xEnd) return true;
+
+            // Next chunk along this row, then the next row of the band, then the next band.
+            if (++k < bandEnd) {
+                startChunk();
+                return true;
+            }
+            if (++y < yEnd) {
+                k = bandStart;
+                startChunk();
+                return true;
+            }
+            bandStart = bandEnd;
+            if (bandStart >= count) return false;
+
+            int row = chunks[bandStart] / set.wChunks;
+            bandEnd = bandStart;
+            while (bandEnd < count && chunks[bandEnd] / set.wChunks == row) bandEnd++;
+
+            y = row << SHIFT;
+            yEnd = Math.min(y + SIZE, set.hCells);
+            k = bandStart;
+            startChunk();
+            return true;
+        }
+
+        private void startChunk() {
+            x = (chunks[k] % set.wChunks) << SHIFT;
+            xEnd = Math.min(x + SIZE, set.wCells);
+        }
+    }
+}
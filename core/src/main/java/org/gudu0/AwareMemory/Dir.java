@@ -1,66 +1,28 @@
 package org.gudu0.AwareMemory;
 
-@SuppressWarnings({"EnhancedSwitchMigration", "DuplicateBranchesInSwitch"})
 public enum Dir {EAST(1, 0), SOUTH(0, -1), WEST(-1, 0), NORTH(0, 1);
 
     public final int dx, dy;
     Dir(int dx, int dy) { this.dx = dx; this.dy = dy; }
 
+    // Declaration order matches rot (0=E, 1=S, 2=W, 3=N), so turning is index arithmetic.
+    // Cached once: values() clones its array on every call.
+    private static final Dir[] BY_ROT = values();
+
     public static Dir fromRot(int rot) {
-        switch (rot & 3) {
-            case 0:
-                return EAST;
-            case 1:
-                return SOUTH;
-            case 2:
-                return WEST;
-            default:
-                return NORTH;
-        }
+        return BY_ROT[rot & 3];
     }
 
     public Dir opposite() {
-        switch (this) {
-            case EAST:
-                return WEST;
-            case WEST:
-                return EAST;
-            case NORTH:
-                return SOUTH;
-            case SOUTH:
-                return NORTH;
-            default:
-                return NORTH;
-        }
+        return BY_ROT[(ordinal() + 2) & 3];
     }
+
     public Dir left() {
-        switch (this) {
-            case EAST:
-                return NORTH;
-            case NORTH:
-                return WEST;
-            case WEST:
-                return SOUTH;
-            case SOUTH:
-                return EAST;
-            default:
-                return NORTH;
-        }
+        return BY_ROT[(ordinal() + 3) & 3];
     }
 
     public Dir right() {
-        switch (this) {
-            case EAST:
-                return SOUTH;
-            case SOUTH:
-                return WEST;
-            case WEST:
-                return NORTH;
-            case NORTH:
-                return EAST;
-            default:
-                return EAST;
-        }
+        return BY_ROT[(ordinal() + 1) & 3];
     }
 
 }
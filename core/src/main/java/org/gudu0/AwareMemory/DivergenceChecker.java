@@ -0,0 +1,86 @@
+package org.gudu0.AwareMemory;
+
+/**
+ * Runs two worlds side by side, one tick at a time, and stops at the first tick their
+ * {@link TileWorld#worldHash} differ: serial vs parallel islands, two-phase vs default ticks, a replay
+ * vs the original, a world before and after a refactor. Comparing is O(blocks) per tick; only a
+ * mismatch walks the tiles, to name the first one (raster order) that differs.
+ * <p>
+ * Both worlds should start from the same state (same build steps or the same save), and the caller
+ * makes any edits to both between runs.
+ */
+public final class DivergenceChecker {
+    private final TileWorld a;
+    private final TileWorld b;
+
+    public DivergenceChecker(TileWorld a, TileWorld b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    /** Where two worlds first disagreed. cellX/cellY are -1 when no single tile differs. */
+    public static final class Divergence {
+        public final int tick;
+        public final int cellX, cellY;
+        public final String what;
+
+        Divergence(int tick, int cellX, int cellY, String what) {
+            this.tick = tick;
+            this.cellX = cellX;
+            this.cellY = cellY;
+            this.what = what;
+        }
+
+        @Override
+        public String toString() {
+            String where = (cellX < 0) ? "" : " at (" + cellX + ", " + cellY + ")";
+            return "Diverged on tick " + tick + where + ": " + what;
+        }
+    }
+
+    // Steps both worlds up to `ticks` ticks. Returns the first divergence, or null if they stayed equal
+    // (then both have run all of them). Stops right after the tick that diverged, so the worlds can be
+    // inspected as they were.
+    public Divergence run(int ticks) {
+        Divergence d = compare();
+        for (int i = 0; i < ticks && d == null; i++) {
+            a.simulateTicks(1, Long.MAX_VALUE);
+            b.simulateTicks(1, Long.MAX_VALUE);
+            d = compare();
+        }
+        return d;
+    }
+
+    // Compares the worlds as they are now, without stepping.
+    public Divergence compare() {
+        if (a.worldHash() == b.worldHash()) return null;
+
+        int tick = a.getTick();
+        if (tick != b.getTick()) return new Divergence(tick, -1, -1, "tick " + tick + " vs " + b.getTick());
+
+        // First differing tile in raster order, over the entities of both worlds.
+        int w = a.worldGrid().wCells;
+        long first = Long.MAX_VALUE;
+        for (ChunkSet.Walk c = a.entityCells(); c.next(); ) {
+            if (a.tileHash(c.x, c.y) != b.tileHash(c.x, c.y)) first = Math.min(first, (long) c.y * w + c.x);
+        }
+        for (ChunkSet.Walk c = b.entityCells(); c.next(); ) {
+            if (a.tileHash(c.x, c.y) != b.tileHash(c.x, c.y)) first = Math.min(first, (long) c.y * w + c.x);
+        }
+        if (first != Long.MAX_VALUE) {
+            int x = (int) (first % w), y = (int) (first / w);
+            return new Divergence(tick, x, y, describe(a.getEntity(x, y)) + " vs " + describe(b.getEntity(x, y)));
+        }
+
+        if (a.getMoney() != b.getMoney()) {
+            return new Divergence(tick, -1, -1, "money " + Money.format(a.getMoney()) + " vs " + Money.format(b.getMoney()));
+        }
+        // Every tile agrees: an item that sits on no tile.
+        return new Divergence(tick, -1, -1, "items " + a.itemCount() + " vs " + b.itemCount());
+    }
+
+    private static String describe(TileEntity te) {
+        if (te == null) return "no entity";
+        return te.getClass().getSimpleName() + " holding " + Integer.bitCount(te.occupiedMask());
+    }
+}
@@ -0,0 +1,378 @@
+package org.gudu0.AwareMemory;
+
+import org.gudu0.AwareMemory.entities.ConveyorEntity;
+import org.gudu0.AwareMemory.entities.SellpadEntity;
+
+import java.util.Arrays;
+
+/**
+ * Undo/redo history of a TileWorld's edits, in a byte ring buffer of fixed size: when it is full, the
+ * oldest steps are dropped. Attach with {@link TileWorld#setEditLog}.
+ * <p>
+ * A step is one outermost edit ({@link TileWorld#beginEdit} .. commitEdit); every placeTile/deleteTile
+ * in it adds a record. A record keeps what it needs to go both ways: the old tile with its entity's
+ * save data and items, and the tile asked for. The settings a tile has when the step commits (pasted
+ * filter rules) are kept too, so redo puts them back. Money spent or refunded during the step is undone
+ * and redone with it. Shapes and variants are left to SmartPlacement, as with any edit.
+ * <p>
+ * Undo and redo replay the step as one edit through placeTile/deleteTile, so the world goes through the
+ * same path as when the player edits it. Restored items get fresh ids.
+ * <p>
+ * Step encoding (same primitives as SaveIO):
+ *   svarint moneyDelta        (cents; money after the step minus before)
+ *   varint  recordCount
+ *   for each record:
+ *     svarint cellDelta       (x + y * wCells, from the previous record's cell; the first from 0)
+ *     varint  oldPacked       ((tileId << 2) | rot; 0 = empty)
+ *     varint  newPacked       (as asked for, before auto-tiling)
+ *     u8      flags           (1 = old settings follow, 2 = old items follow)
+ *     [settings]              svarint t0, i0, i1, i2, u8 b0
+ *     [varint itemCount, each: varint oldId, u8 typeId, varint value, u8 (u * N + v)]
+ *   for each record, in the same order:
+ *     u8      1 if the settings at commit follow, else 0
+ *     [settings]
+ */
+public final class EditLog {
+    private static final int OLD_SETTINGS = 1, OLD_ITEMS = 2;
+
+    private final byte[] ring;
+
+    // Steps in the ring, oldest first, by their start offset (monotonic; ring index = offset % ring.length).
+    // Steps [0, done) can be undone, [done, count) redone.
+    private long[] starts = new long[64];
+    private int first = 0;
+    private int count = 0;
+    private int done = 0;
+    private long head = 0;          // end of the newest step
+
+    // The step being recorded; null outside an edit.
+    private SaveIO.Writer oldParts;
+    private int[] stepCells = new int[16];
+    private int stepRecords = 0;
+    private int lastCell = 0;
+    private long moneyBefore = 0;
+
+    // Set while undo/redo replays, so the replay isn't recorded as a step of its own.
+    private boolean replaying = false;
+
+    /** @param maxBytes size of the ring buffer; a step that doesn't fit clears the history. */
+    public EditLog(int maxBytes) {
+        if (maxBytes < 64) throw new IllegalArgumentException("maxBytes < 64");
+        ring = new byte[maxBytes];
+    }
+
+    public boolean canUndo() {
+        return done > 0;
+    }
+
+    public boolean canRedo() {
+        return done < count;
+    }
+
+    public int stepCount() {
+        return count;
+    }
+
+    public long bytesUsed() {
+        return (count == 0) ? 0 : head - startOf(0);
+    }
+
+    public void clear() {
+        first = 0;
+        count = 0;
+        done = 0;
+        head = 0;
+    }
+
+    // ---------------- Recording (TileWorld) ----------------
+
+    void stepStarted(TileWorld world) {
+        if (replaying) return;
+        oldParts = new SaveIO.Writer(256);
+        stepRecords = 0;
+        lastCell = 0;
+        moneyBefore = world.getMoney();
+    }
+
+    // Before placeTile/deleteTile changes (cx, cy).
+    void record(TileWorld world, int cx, int cy, int tileId, int rot) {
+        if (replaying || oldParts == null) return;
+        WorldGrid grid = world.worldGrid();
+        if (!grid.inBoundsCell(cx, cy)) return;
+
+        int oldTile = grid.getTile(cx, cy);
+        int newPacked = (tileId == WorldGrid.TILE_EMPTY) ? 0 : (tileId << 2) | (rot & 3);
+        if (oldTile == WorldGrid.TILE_EMPTY && newPacked == 0) return;
+
+        int cell = cx + cy * grid.wCells;
+        if (stepRecords == stepCells.length) stepCells = Arrays.copyOf(stepCells, stepRecords * 2);
+        stepCells[stepRecords++] = cell;
+
+        SaveIO.Writer out = oldParts;
+        out.writeSVarInt(cell - lastCell);
+        lastCell = cell;
+        out.writeVarInt(oldTile == WorldGrid.TILE_EMPTY ? 0 : (oldTile << 2) | (grid.getRot(cx, cy) & 3));
+        out.writeVarInt(newPacked);
+
+        TileEntity te = world.getEntity(cx, cy);
+        if (te == null) {
+            out.writeByte(0);
+            return;
+        }
+        world.settleForEdit(cx, cy);
+        int mask = te.occupiedMask();
+        boolean settings = hasSettings(te);
+        out.writeByte((settings ? OLD_SETTINGS : 0) | (mask != 0 ? OLD_ITEMS : 0));
+        if (settings) {
+            WorldGrid.TileSave ts = new WorldGrid.TileSave();
+            te.writeSaveData(ts);
+            writeSettings(out, ts);
+        }
+        if (mask != 0) {
+            out.writeVarInt(Integer.bitCount(mask));
+            for (int m = mask; m != 0; m &= m - 1) {
+                int k = Integer.numberOfTrailingZeros(m);
+                int id = te.getItemIdAt(k / TileEntity.N, k % TileEntity.N);
+                Item it = world.getItem(id);
+                out.writeVarInt(id);
+                out.writeByte(it == null ? 0 : it.type().saveId);
+                out.writeVarInt(it == null ? 0 : it.value());
+                out.writeByte(k);
+            }
+        }
+    }
+
+    void stepEnded(TileWorld world) {
+        if (replaying || oldParts == null) return;
+        SaveIO.Writer old = oldParts;
+        oldParts = null;
+        if (stepRecords == 0) return;
+
+        SaveIO.Writer out = new SaveIO.Writer(16);
+        out.writeSVarLong(world.getMoney() - moneyBefore);
+        out.writeVarInt(stepRecords);
+        SaveIO.Writer now = new SaveIO.Writer(stepRecords * 2);
+        WorldGrid grid = world.worldGrid();
+        for (int i = 0; i < stepRecords; i++) {
+            TileEntity te = world.getEntity(stepCells[i] % grid.wCells, stepCells[i] / grid.wCells);
+            if (te != null && hasSettings(te)) {
+                WorldGrid.TileSave ts = new WorldGrid.TileSave();
+                te.writeSaveData(ts);
+                now.writeByte(1);
+                writeSettings(now, ts);
+            } else {
+                now.writeByte(0);
+            }
+        }
+        push(out.toByteArray(), old.toByteArray(), now.toByteArray());
+    }
+
+    // ---------------- Undo / redo ----------------
+
+    /** Reverts the newest step; false if there is none, or it refunded more than the money left. */
+    public boolean undo(TileWorld world) {
+        if (done == 0) return false;
+        Step s = read(world, done - 1);
+        if (!settle(world, -s.money)) return false;
+
+        replaying = true;
+        try {
+            world.beginEdit();
+            for (int i = s.cells.length - 1; i >= 0; i--) {
+                int cx = s.cells[i] % s.wCells, cy = s.cells[i] / s.wCells;
+                if (s.oldPacked[i] == 0) {
+                    world.deleteTile(cx, cy);
+                    continue;
+                }
+                world.placeTile(cx, cy, s.oldPacked[i] >>> 2, s.oldPacked[i] & 3);
+                if (s.oldSettings[i] != null || s.oldItems[i] != null) {
+                    WorldGrid.TileSave ts = (s.oldSettings[i] != null) ? s.oldSettings[i] : new WorldGrid.TileSave();
+                    ts.cx = cx;
+                    ts.cy = cy;
+                    world.importTileSave(ts, s.oldItems[i]);
+                }
+            }
+            world.commitEdit();
+        } finally {
+            replaying = false;
+        }
+        done--;
+        return true;
+    }
+
+    /** Applies the step undone last again; false if there is none, or the money for it is missing. */
+    public boolean redo(TileWorld world) {
+        if (done == count) return false;
+        Step s = read(world, done);
+        if (!settle(world, s.money)) return false;
+
+        replaying = true;
+        try {
+            world.beginEdit();
+            for (int i = 0; i < s.cells.length; i++) {
+                int cx = s.cells[i] % s.wCells, cy = s.cells[i] / s.wCells;
+                if (s.newPacked[i] == 0) {
+                    world.deleteTile(cx, cy);
+                    continue;
+                }
+                world.placeTile(cx, cy, s.newPacked[i] >>> 2, s.newPacked[i] & 3);
+                if (s.newSettings[i] != null) {
+                    s.newSettings[i].cx = cx;
+                    s.newSettings[i].cy = cy;
+                    world.importTileSave(s.newSettings[i], null);
+                }
+            }
+            world.commitEdit();
+        } finally {
+            replaying = false;
+        }
+        done++;
+        return true;
+    }
+
+    // Applies a money change, unless it would take more than there is.
+    private static boolean settle(TileWorld world, long delta) {
+        if (delta < 0) return world.trySpendMoney(-delta);
+        if (delta > 0) world.addMoney(delta);
+        return true;
+    }
+
+    // ---------------- Ring buffer ----------------
+
+    private long startOf(int step) {
+        return starts[(first + step) % starts.length];
+    }
+
+    private long endOf(int step) {
+        return (step + 1 < count) ? startOf(step + 1) : head;
+    }
+
+    private void push(byte[] a, byte[] b, byte[] c) {
+        int len = a.length + b.length + c.length;
+
+        // A new step replaces whatever could be redone.
+        if (done < count) {
+            head = startOf(done);
+            count = done;
+        }
+        if (len > ring.length) {
+            clear();
+            return;
+        }
+        while (count > 0 && head + len - startOf(0) > ring.length) {
+            first = (first + 1) % starts.length;
+            count--;
+            done--;
+        }
+        if (count == 0) {
+            first = 0;
+            head = 0;
+        }
+
+        if (count == starts.length) {
+            long[] n = new long[count * 2];
+            for (int i = 0; i < count; i++) n[i] = startOf(i);
+            starts = n;
+            first = 0;
+        }
+        starts[(first + count) % starts.length] = head;
+        count++;
+        done = count;
+        copyIn(a);
+        copyIn(b);
+        copyIn(c);
+    }
+
+    private void copyIn(byte[] src) {
+        int at = (int) (head % ring.length);
+        int n = Math.min(src.length, ring.length - at);
+        System.arraycopy(src, 0, ring, at, n);
+        System.arraycopy(src, n, ring, 0, src.length - n);
+        head += src.length;
+    }
+
+    private byte[] copyOut(int step) {
+        long start = startOf(step);
+        byte[] out = new byte[(int) (endOf(step) - start)];
+        int at = (int) (start % ring.length);
+        int n = Math.min(out.length, ring.length - at);
+        System.arraycopy(ring, at, out, 0, n);
+        System.arraycopy(ring, 0, out, n, out.length - n);
+        return out;
+    }
+
+    // ---------------- Decoding ----------------
+
+    private static final class Step {
+        long money;
+        int wCells;
+        int[] cells, oldPacked, newPacked;
+        WorldGrid.TileSave[] oldSettings, newSettings;
+        WorldGrid.ItemSave[][] oldItems;
+    }
+
+    private Step read(TileWorld world, int step) {
+        SaveIO.Reader in = new SaveIO.Reader(copyOut(step));
+        Step s = new Step();
+        s.wCells = world.worldGrid().wCells;
+        s.money = in.readSVarLong();
+        int n = in.readVarInt();
+        s.cells = new int[n];
+        s.oldPacked = new int[n];
+        s.newPacked = new int[n];
+        s.oldSettings = new WorldGrid.TileSave[n];
+        s.newSettings = new WorldGrid.TileSave[n];
+        s.oldItems = new WorldGrid.ItemSave[n][];
+
+        int cell = 0;
+        for (int i = 0; i < n; i++) {
+            cell += in.readSVarInt();
+            s.cells[i] = cell;
+            s.oldPacked[i] = in.readVarInt();
+            s.newPacked[i] = in.readVarInt();
+            int flags = in.readUByte();
+            if ((flags & OLD_SETTINGS) != 0) s.oldSettings[i] = readSettings(in);
+            if ((flags & OLD_ITEMS) != 0) {
+                WorldGrid.ItemSave[] items = new WorldGrid.ItemSave[in.readVarInt()];
+                for (int k = 0; k < items.length; k++) {
+                    WorldGrid.ItemSave it = new WorldGrid.ItemSave();
+                    it.id = in.readVarInt();
+                    it.typeId = (byte) in.readUByte();
+                    it.value = in.readVarInt();
+                    int uv = in.readUByte();
+                    it.u = uv / TileEntity.N;
+                    it.v = uv % TileEntity.N;
+                    items[k] = it;
+                }
+                s.oldItems[i] = items;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (in.readUByte() != 0) s.newSettings[i] = readSettings(in);
+        }
+        return s;
+    }
+
+    // Belts and sellpads have no save data; they are most of any edit, so they don't spend bytes on it.
+    private static boolean hasSettings(TileEntity te) {
+        return !(te instanceof ConveyorEntity) && !(te instanceof SellpadEntity);
+    }
+
+    private static void writeSettings(SaveIO.Writer out, WorldGrid.TileSave ts) {
+        out.writeSVarInt(ts.t0);
+        out.writeSVarInt(ts.i0);
+        out.writeSVarInt(ts.i1);
+        out.writeSVarInt(ts.i2);
+        out.writeByte(ts.b0 ? 1 : 0);
+    }
+
+    private static WorldGrid.TileSave readSettings(SaveIO.Reader in) {
+        WorldGrid.TileSave ts = new WorldGrid.TileSave();
+        ts.t0 = in.readSVarInt();
+        ts.i0 = in.readSVarInt();
+        ts.i1 = in.readSVarInt();
+        ts.i2 = in.readSVarInt();
+        ts.b0 = (in.readUByte() != 0);
+        return ts;
+    }
+}
@@ -0,0 +1,210 @@
+package org.gudu0.AwareMemory;
+
+import org.gudu0.AwareMemory.entities.FilterEntity;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Seeded factory layouts at any scale, for benchmarks and soak tests. Same seed and size, same world.
+ * <p>
+ * The map is filled band by band (three rows of tiles plus an empty one) with production modules, each
+ * a spawner -> crusher -> smelter -> press -> roller -> sellpad chain with belts of random length in
+ * between. Bands alternate between flowing east and west. Some modules split the dust onto a second
+ * lane and merge it back:
+ * <ul>
+ *   <li>PLAIN (half of them): the chain as is.</li>
+ *   <li>PARALLEL: a second smelter on the side lane.</li>
+ *   <li>BYPASS: the side lane skips the smelter, and a filter after the merge sends the leftover dust
+ *       to its own sellpad.</li>
+ * </ul>
+ * Tiles are placed the way the player places them ({@link TileWorld#placeTile}), upstream first, all in
+ * one edit: SmartPlacement runs once on commit and turns the branch points into splitters and mergers.
+ */
+public final class FactoryGenerator {
+    private static final int PLAIN = 0, PARALLEL = 1, BYPASS = 2;
+    private static final int BAND_ROWS = 4;
+
+    private final Random rnd;
+    private final int width;     // cells
+    private int bandY = 0;
+    private int bandX = 0;       // next free column in the band
+    private boolean eastward = true;
+
+    // Planned tiles in placement order: cell, tile id, rot.
+    private int count = 0;
+    private int[] xs = new int[256], ys = new int[256], ids = new int[256], rots = new int[256];
+
+    // The module being planned: tiles at (u along the flow, row 0 = main lane / 1 / 2 = side lane).
+    private int moduleSize = 0;
+    private int[] mu = new int[64], mRow = new int[64], mId = new int[64], mDir = new int[64];
+    private int cursor = 0;
+
+    private FactoryGenerator(long seed, int width) {
+        this.rnd = new Random(seed);
+        this.width = width;
+    }
+
+    /** A new world holding about {@code tiles} tiles (whole modules, so a few more). */
+    public static TileWorld generate(long seed, int tiles) {
+        // Roughly square for the sizes benchmarks use; a band holds about 1.1 tiles per column.
+        int width = Math.max(64, Math.min(2048, (int) Math.sqrt(tiles * 6.0)));
+        FactoryGenerator g = new FactoryGenerator(seed, width);
+        while (g.count < tiles) g.addModule();
+
+        // WorldGrid takes its size in 2x2-cell tiles.
+        WorldGrid grid = new WorldGrid((width + 1) / 2, (g.bandY + BAND_ROWS + 1) / 2);
+        TileWorld world = new TileWorld(grid);
+        g.placeInto(world);
+        return world;
+    }
+
+    // ---------------- Planning ----------------
+
+    private void addModule() {
+        moduleSize = 0;
+        cursor = 0;
+        int kind = rnd.nextInt(10);
+        kind = (kind < 5) ? PLAIN : (kind < 8) ? PARALLEL : BYPASS;
+
+        add(WorldGrid.TILE_SPAWNER);
+        belt(1, 3);
+        add(WorldGrid.TILE_CRUSHER);
+        belt(1, 2);
+        if (kind == PLAIN) {
+            add(WorldGrid.TILE_SMELTER);
+        } else {
+            sideLane(kind == PARALLEL);
+        }
+        if (kind == BYPASS) {
+            belt(1, 1);
+            dustFilter();
+        }
+        belt(1, 2);
+        add(WorldGrid.TILE_PRESS);
+        belt(1, 2);
+        add(WorldGrid.TILE_ROLLER);
+        belt(1, 3);
+        add(WorldGrid.TILE_SELLPAD);
+
+        int length = cursor;
+        if (bandX + length > width) {
+            bandY += BAND_ROWS;
+            bandX = 0;
+            eastward = !eastward;
+        }
+        commitModule(length);
+        bandX += length + 1;
+    }
+
+    // A smelter on the main lane, and a side lane from the splitter cell to the merger cell (two rows
+    // over), with a smelter of its own or none.
+    private void sideLane(boolean smelter) {
+        int a = cursor;
+        int b = a + 5 + rnd.nextInt(3);
+
+        // Main lane: splitter cell, belt, smelter, belts, merger cell.
+        addAt(a, 0, WorldGrid.TILE_CONVEYOR, FLOW);
+        addAt(a + 1, 0, WorldGrid.TILE_CONVEYOR, FLOW);
+        addAt(a + 2, 0, WorldGrid.TILE_SMELTER, FLOW);
+        for (int u = a + 3; u < b; u++) addAt(u, 0, WorldGrid.TILE_CONVEYOR, FLOW);
+
+        // Side lane, upstream first, then the merger cell it feeds.
+        addAt(a, 1, WorldGrid.TILE_CONVEYOR, OUT);
+        for (int u = a; u < b; u++) {
+            addAt(u, 2, (smelter && u == a + 2) ? WorldGrid.TILE_SMELTER : WorldGrid.TILE_CONVEYOR, FLOW);
+        }
+        addAt(b, 2, WorldGrid.TILE_CONVEYOR, BACK);
+        addAt(b, 1, WorldGrid.TILE_CONVEYOR, BACK);
+        addAt(b, 0, WorldGrid.TILE_CONVEYOR, FLOW);
+        cursor = b + 1;
+    }
+
+    // Ingots carry on, dust goes out to the side into a sellpad.
+    private void dustFilter() {
+        int f = cursor;
+        addAt(f, 0, FILTER, FLOW);
+        addAt(f, 1, WorldGrid.TILE_CONVEYOR, OUT);
+        addAt(f, 2, WorldGrid.TILE_SELLPAD, FLOW);
+        cursor = f + 1;
+    }
+
+    private void belt(int min, int max) {
+        int n = min + rnd.nextInt(max - min + 1);
+        for (int i = 0; i < n; i++) add(WorldGrid.TILE_CONVEYOR);
+    }
+
+    private void add(int id) {
+        addAt(cursor++, 0, id, FLOW);
+    }
+
+    // Directions relative to the band: along the flow, out to the side lane, back to the main lane.
+    private static final int FLOW = 0, OUT = 1, BACK = 2;
+    // Filter variant depends on which side the side lane is on; resolved in commitModule.
+    private static final int FILTER = -1;
+
+    private void addAt(int u, int row, int id, int dir) {
+        if (moduleSize == mu.length) {
+            int n = moduleSize * 2;
+            mu = Arrays.copyOf(mu, n);
+            mRow = Arrays.copyOf(mRow, n);
+            mId = Arrays.copyOf(mId, n);
+            mDir = Arrays.copyOf(mDir, n);
+        }
+        mu[moduleSize] = u;
+        mRow[moduleSize] = row;
+        mId[moduleSize] = id;
+        mDir[moduleSize] = dir;
+        moduleSize++;
+    }
+
+    // Lays the planned module at the band cursor. Side lanes are always on the +y (north) side.
+    private void commitModule(int length) {
+        Dir flow = eastward ? Dir.EAST : Dir.WEST;
+        int filter = (flow.left() == Dir.NORTH) ? WorldGrid.TILE_FILTER_FL : WorldGrid.TILE_FILTER_FR;
+        for (int i = 0; i < moduleSize; i++) {
+            int x = eastward ? bandX + mu[i] : bandX + length - 1 - mu[i];
+            Dir d;
+            switch (mDir[i]) {
+                case OUT: d = Dir.NORTH; break;
+                case BACK: d = Dir.SOUTH; break;
+                default: d = flow; break;
+            }
+            plan(x, bandY + mRow[i], mId[i] == FILTER ? filter : mId[i], d.ordinal());
+        }
+    }
+
+    private void plan(int x, int y, int id, int rot) {
+        if (count == xs.length) {
+            int n = count * 2;
+            xs = Arrays.copyOf(xs, n);
+            ys = Arrays.copyOf(ys, n);
+            ids = Arrays.copyOf(ids, n);
+            rots = Arrays.copyOf(rots, n);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        ids[count] = id;
+        rots[count] = rot;
+        count++;
+    }
+
+    // ---------------- Placing ----------------
+
+    private void placeInto(TileWorld world) {
+        world.beginEdit();
+        for (int i = 0; i < count; i++) {
+            int x = xs[i], y = ys[i];
+            world.placeTile(x, y, ids[i], rots[i]);
+
+            TileEntity te = world.getEntity(x, y);
+            if (te instanceof FilterEntity) {
+                FilterEntity f = (FilterEntity) te;
+                f.setRule(FilterEntity.Out.FORWARD, ItemType.INGOT.ordinal());
+                f.setRule(FilterEntity.Out.LEFT, ItemType.DUST.ordinal());
+                f.setRule(FilterEntity.Out.RIGHT, ItemType.DUST.ordinal());
+            }
+        }
+        world.commitEdit();
+    }
+}
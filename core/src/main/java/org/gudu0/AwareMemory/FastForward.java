@@ -0,0 +1,47 @@
+package org.gudu0.AwareMemory;
+
+/**
+ * A fast-forward in progress: a fixed number of ticks, run a time budget at a time through
+ * {@link TileWorld#simulateTicks}. The game calls {@link #run} once per frame (so the window stays
+ * responsive and can show {@link #progress}); a headless caller can just loop on it. Cancelling keeps
+ * whatever was simulated so far.
+ */
+public final class FastForward {
+    private final TileWorld world;
+    private final long total;
+    private long done = 0;
+    private boolean cancelled = false;
+
+    public FastForward(TileWorld world, long ticks) {
+        this.world = world;
+        this.total = Math.max(0L, ticks);
+    }
+
+    // Runs ticks until the budget is spent or the job is finished. Returns the ticks run by this call.
+    public int run(long budgetNanos) {
+        if (isFinished()) return 0;
+        int n = (int) Math.min(total - done, Integer.MAX_VALUE);
+        int ran = world.simulateTicks(n, budgetNanos);
+        done += ran;
+        return ran;
+    }
+
+    // Runs the whole job now (headless batch use).
+    public void runToEnd() {
+        while (!isFinished()) run(Long.MAX_VALUE);
+    }
+
+    public void cancel() { cancelled = true; }
+
+    public boolean isCancelled() { return cancelled; }
+
+    public boolean isFinished() { return cancelled || done >= total; }
+
+    public long ticksDone() { return done; }
+
+    public long ticksTotal() { return total; }
+
+    public float progress() {
+        return (total == 0L) ? 1f : (float) done / total;
+    }
+}
@@ -137,10 +137,10 @@ public class Hud {
         uiFont.dispose();
         smallFont.dispose();
     }
-    public void draw(SpriteBatch batch, float money, int itemCount, int page, int slot, int hoverSlot, int[] pageTiles, TextureRegion[] iconByTileId, TextureRegion white, float[] costByTile) {
+    public void draw(SpriteBatch batch, long money, int itemCount, int page, int slot, int hoverSlot, int[] pageTiles, TextureRegion[] iconByTileId, TextureRegion white, long[] costByTile) {
         batch.setProjectionMatrix(cam.combined);
         batch.begin();
-        uiFont.draw(batch, "Money: $" + (Math.round(money * 10f) / 10f), 20, 1060);
+        uiFont.draw(batch, "Money: $" + Money.format(money), 20, 1060);
         uiFont.draw(batch, "Items: " + itemCount, 20, 1020);
 
         // background strip
@@ -188,10 +188,10 @@ public class Hud {
             if (tileId != 0) {
                 String name = tileName(tileId);
 
-                float cost = (tileId >= 0 && tileId < costByTile.length) ? costByTile[tileId] : 0f;
+                long cost = (tileId >= 0 && tileId < costByTile.length) ? costByTile[tileId] : 0L;
 
                 String line1 = name;
-                String line2 = "$" + (int) ((int) (cost * 10f) / 10f);
+                String line2 = "$" + Money.wholeDollars(cost);
 
                 // position tooltip above the hovered slot
                 float sx = hotbarX + pad + hoverSlot * (slotSize + pad);
@@ -244,6 +244,28 @@ public class Hud {
         return hudX >= hotbarX && hudX <= hotbarX + hotbarWidth && hudY >= hotbarY && hudY <= hotbarY + barH;
     }
 
+    // Fast-forward progress bar, top centre.
+    public void drawFastForward(SpriteBatch batch, FastForward ff, TextureRegion white) {
+        float w = 600f, h = 24f;
+        float x = 960f - w * 0.5f, y = 1000f;
+
+        batch.setProjectionMatrix(cam.combined);
+        batch.begin();
+        batch.setColor(0f, 0f, 0f, 0.75f);
+        batch.draw(white, x - 10f, y - 10f, w + 20f, h + 50f);
+        batch.setColor(0.15f, 0.15f, 0.15f, 1f);
+        batch.draw(white, x, y, w, h);
+        batch.setColor(0.3f, 0.7f, 0.3f, 1f);
+        batch.draw(white, x, y, w * ff.progress(), h);
+        batch.setColor(1f, 1f, 1f, 1f);
+
+        long secs = ff.ticksDone() / TileWorld.TICKS_PER_SECOND;
+        long total = ff.ticksTotal() / TileWorld.TICKS_PER_SECOND;
+        smallFont.draw(batch, "Skipping ahead: " + secs / 60 + "m" + secs % 60 + "s / " + total / 60 + "m  (Esc to stop)",
+            x, y + h + 30f);
+        batch.end();
+    }
+
     public BitmapFont getSmallFont() {
         return smallFont;
     }
@@ -357,7 +379,7 @@ public class Hud {
     public boolean isOrdersPanelOpen() {
         return ordersOpen;
     }
-    public void drawOrdersPanel(SpriteBatch batch, OrderManager orders, float currentMoney, TextureRegion white, Viewport hudViewport) {
+    public void drawOrdersPanel(SpriteBatch batch, OrderManager orders, long currentMoney, TextureRegion white, Viewport hudViewport) {
         if (!ordersOpen) return;
 
         batch.setProjectionMatrix(cam.combined);
@@ -0,0 +1,26 @@
+package org.gudu0.AwareMemory;
+
+/**
+ * Runs the per-island part of a tick.
+ * <p>
+ * Islands are connected components of the entity graph; nothing flows between them, so they may be
+ * stepped in any order or at the same time. Core only ships {@link #SERIAL} (the web build has no
+ * threads); the desktop launcher plugs in a thread pool. Either way TileWorld applies the world-wide
+ * effects afterwards in island order, so the result is the same bit for bit.
+ * <p>
+ * Two-phase ticks (TileWorld.setTwoPhaseTick) use the same executor for each of their phases, with
+ * blocks of 64 entities in place of islands; the same guarantees hold.
+ */
+public interface IslandExecutor {
+
+    interface Islands {
+        void step(int island);
+    }
+
+    /** Calls islands.step(i) once for every i in [0, count) and returns when all of them are done. */
+    void runAll(int count, Islands islands);
+
+    IslandExecutor SERIAL = (count, islands) -> {
+        for (int i = 0; i < count; i++) islands.step(i);
+    };
+}
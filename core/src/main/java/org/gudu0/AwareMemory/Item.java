@@ -1,23 +1,45 @@
 package org.gudu0.AwareMemory;
 
+/**
+ * Handle onto one slot of the world's {@link ItemTable}.
+ * Handles are reused when a slot is recycled, so don't hold one past the current tick/frame.
+ */
 public final class Item {
-    public final int id;
-    public ItemType type;
-    public float value;
+    private final ItemTable table;
+    int id;
 
-    private int enteredTick = -1;
-
-    public Item(int id, ItemType type, float value) {
+    Item(ItemTable table, int id) {
+        this.table = table;
         this.id = id;
-        this.type = type;
-        this.value = value;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public ItemType type() {
+        return table.type(id & ItemTable.SLOT_MASK);
+    }
+
+    // Entities change items through TileWorld.transformItem, which keeps the world hash in step.
+    void setType(ItemType type) {
+        table.setType(id & ItemTable.SLOT_MASK, type);
+    }
+
+    // In cents (see Money).
+    public int value() {
+        return table.value(id & ItemTable.SLOT_MASK);
+    }
+
+    void setValue(int value) {
+        table.setValue(id & ItemTable.SLOT_MASK, value);
     }
 
     public boolean enteredThisTick(int tick) {
-        return enteredTick == tick;
+        return table.enteredTick(id & ItemTable.SLOT_MASK) == tick;
     }
 
     public void markEntered(int tick) {
-        enteredTick = tick;
+        table.setEnteredTick(id & ItemTable.SLOT_MASK, tick);
     }
 }
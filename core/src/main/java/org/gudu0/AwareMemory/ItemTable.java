@@ -0,0 +1,205 @@
+package org.gudu0.AwareMemory;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays item storage owned by TileWorld.
+ * <p>
+ * Items live in dense slots (parallel type/value/enteredTick arrays) recycled through a free list,
+ * so create/delete/lookup never allocate once the table has grown to its working size.
+ * <p>
+ * Ids are generational: the low SLOT_BITS pick the slot, the bits above hold the slot's generation.
+ * Deleting an item bumps the generation, so a stale id left in some occupancy grid keeps resolving
+ * to null (same as the old HashMap) instead of aliasing whatever reuses the slot next.
+ */
+final class ItemTable {
+    static final int SLOT_BITS = 24;
+    static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GEN_MASK = 0x7F; // 31 - SLOT_BITS, keeps ids positive
+
+    private static final byte FREE = -1;
+    private static final ItemType[] TYPES = ItemType.values();
+
+    private byte[] type = new byte[256];       // ItemType ordinal, FREE when unused
+    private int[] value = new int[256];        // cents
+    private int[] enteredTick = new int[256];
+    private byte[] gen = new byte[256];
+    private Item[] handles = new Item[256];    // one reusable handle per slot
+
+    private int[] freeSlots = new int[64];
+    private int freeCount = 0;
+
+    // Slot 0 is never handed out: id 0 isn't a valid item.
+    private int highWater = 1;
+    private int count = 0;
+
+    // Sum of TileWorld.itemTerm over live items as created and deleted. In-place changes
+    // (TileWorld.transformItem) are counted by the world instead: they happen during parallel steps.
+    private long hash = 0L;
+
+    ItemTable() {
+        Arrays.fill(type, FREE);
+    }
+
+    int count() {
+        return count;
+    }
+
+    long hash() {
+        return hash;
+    }
+
+    // The sum from scratch, over what the items are now.
+    long hashFromScratch() {
+        long h = 0L;
+        for (int slot = 1; slot < highWater; slot++) {
+            if (type[slot] == FREE) continue;
+            h += TileWorld.itemTerm((gen[slot] << SLOT_BITS) | slot, TYPES[type[slot]], value[slot]);
+        }
+        return h;
+    }
+
+    void resetHash() {
+        hash = hashFromScratch();
+    }
+
+    // One past the highest slot ever used (what saves call "nextItemId").
+    int highWater() {
+        return highWater;
+    }
+
+    int create(ItemType t, int v) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater > SLOT_MASK) throw new IllegalStateException("Item table full");
+            slot = highWater++;
+            ensureCapacity(highWater);
+        }
+        return occupy(slot, gen[slot], t, v);
+    }
+
+    void delete(int id) {
+        if (!isLive(id)) return;
+        int slot = id & SLOT_MASK;
+        hash -= TileWorld.itemTerm(id, TYPES[type[slot]], value[slot]);
+        type[slot] = FREE;
+        gen[slot] = (byte) ((gen[slot] + 1) & GEN_MASK);
+        pushFree(slot);
+        count--;
+    }
+
+    boolean isLive(int id) {
+        if (id <= 0) return false;
+        int slot = id & SLOT_MASK;
+        return slot < highWater && type[slot] != FREE && gen[slot] == (id >>> SLOT_BITS);
+    }
+
+    /**
+     * Handle for a live id, or null. There is one shared handle per slot: every get() of that slot
+     * returns the same object, and it re-points to the new occupant when the slot is reused. Look ids
+     * up again after anything that may delete items rather than holding a handle across it.
+     */
+    Item get(int id) {
+        return isLive(id) ? handles[id & SLOT_MASK] : null;
+    }
+
+    void clear() {
+        for (int slot = 1; slot < highWater; slot++) {
+            if (type[slot] == FREE) continue;
+            // Same as delete: ids still sitting in occupancy must not match the next occupant.
+            hash -= TileWorld.itemTerm((gen[slot] << SLOT_BITS) | slot, TYPES[type[slot]], value[slot]);
+            type[slot] = FREE;
+            gen[slot] = (byte) ((gen[slot] + 1) & GEN_MASK);
+        }
+        highWater = 1;
+        freeCount = 0;
+        count = 0;
+    }
+
+    /**
+     * Load path: put an item back under its saved id. Returns false if the slot is taken.
+     * Call {@link #rebuildFreeList()} once all saved items are placed.
+     */
+    boolean restore(int id, ItemType t, int v) {
+        if (id <= 0) return false;
+        int slot = id & SLOT_MASK;
+        ensureCapacity(slot + 1);
+        if (type[slot] != FREE) return false;
+        if (slot >= highWater) highWater = slot + 1;
+        occupy(slot, (byte) (id >>> SLOT_BITS), t, v);
+        return true;
+    }
+
+    void rebuildFreeList() {
+        freeCount = 0;
+        // Push high slots first so low slots are reused first.
+        for (int slot = highWater - 1; slot >= 1; slot--) {
+            if (type[slot] == FREE) pushFree(slot);
+        }
+    }
+
+    // ---------------- Column access (Item delegates here) ----------------
+
+    ItemType type(int slot) {
+        return TYPES[type[slot]];
+    }
+
+    void setType(int slot, ItemType t) {
+        type[slot] = (byte) t.ordinal();
+    }
+
+    int value(int slot) {
+        return value[slot];
+    }
+
+    void setValue(int slot, int v) {
+        value[slot] = v;
+    }
+
+    int enteredTick(int slot) {
+        return enteredTick[slot];
+    }
+
+    void setEnteredTick(int slot, int tick) {
+        enteredTick[slot] = tick;
+    }
+
+    // ---------------- Internals ----------------
+
+    private int occupy(int slot, byte generation, ItemType t, int v) {
+        int id = (generation << SLOT_BITS) | slot;
+        gen[slot] = generation;
+        type[slot] = (byte) t.ordinal();
+        value[slot] = v;
+        enteredTick[slot] = -1;
+        hash += TileWorld.itemTerm(id, t, v);
+
+        Item h = handles[slot];
+        if (h == null) handles[slot] = new Item(this, id);
+        else h.id = id;
+
+        count++;
+        return id;
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots <= type.length) return;
+        int n = type.length;
+        while (n < slots) n *= 2;
+
+        int old = type.length;
+        type = Arrays.copyOf(type, n);
+        Arrays.fill(type, old, n, FREE);
+        value = Arrays.copyOf(value, n);
+        enteredTick = Arrays.copyOf(enteredTick, n);
+        gen = Arrays.copyOf(gen, n);
+        handles = Arrays.copyOf(handles, n);
+    }
+}
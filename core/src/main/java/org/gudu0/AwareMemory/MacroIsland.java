@@ -0,0 +1,168 @@
+package org.gudu0.AwareMemory;
+
+import java.util.Arrays;
+
+/**
+ * Record-and-replay of one off-screen island; see TileWorld's "Macro regions" section.
+ * <p>
+ * Watching: after every tick the island's steady-state hash is fed to a Brent cycle search (constant
+ * memory). A candidate period p is then recorded: every sale and processed item over the next p ticks,
+ * with its offset. If the island is back at the state it started the recording in, that recording is
+ * exactly one period of its output.
+ * <p>
+ * Hashing the island costs O(entities), so a search window of MAX_PERIOD that finds nothing puts
+ * watching to rest for a while before starting over; each fruitless search doubles the rest.
+ * <p>
+ * Frozen: the island is no longer stepped. Each tick advances the phase and replays that offset's
+ * events (money and order progress), so the rest of the game sees the same output at the same ticks.
+ * Thawing steps the island through the current phase, so it resumes exactly where it would have been.
+ */
+final class MacroIsland {
+    // Replayed events (same meaning as TickEffects.SELL / PROCESSED).
+    static final byte SELL = 0;
+    static final byte PROCESSED = 1;
+
+    // Longest cycle looked for (one minute). Islands with longer ones just keep being stepped; capping
+    // Brent's window also means a cycle is found within about this long of the island settling.
+    static final int MAX_PERIOD = 3600;
+
+    // Rest after a fruitless search: MAX_PERIOD at first, doubling up to this.
+    static final int MAX_REST = 64 * MAX_PERIOD;
+
+    // Any entity of the island: islands are renumbered on every tick order rebuild.
+    final TileEntity anchor;
+
+    // Brent search: compare each hash with the one saved at the last power of two.
+    private long saved;
+    private int power = 1, lam = 0;
+
+    // Resting: ticks left before the search starts over (from whatever hash comes next).
+    private int rest = 0;
+    private int nextRest = MAX_PERIOD;
+    private boolean restart = false;
+
+    // Recording (period > 0, !frozen) / replay (frozen).
+    private int period = 0;
+    private long periodStart;
+    private int at = 0;          // ticks recorded so far, or the phase while frozen
+    private boolean frozen = false;
+    int frozenAt;                // tick it froze on (TileWorld keeps its timers relative to this)
+
+    private int size = 0;
+    private int[] offset = new int[16];
+    private byte[] kind = new byte[16];
+    private ItemType[] type = new ItemType[16];
+    private int[] value = new int[16];
+    private int[] a = new int[16];  // PROCESSED: tile id
+    private int[] b = new int[16];  // PROCESSED: count
+    private int cursor = 0;
+
+    MacroIsland(TileEntity anchor, long hash) {
+        this.anchor = anchor;
+        this.saved = hash;
+    }
+
+    boolean isFrozen() { return frozen; }
+
+    boolean isRecording() { return period > 0 && !frozen; }
+
+    int phase() { return frozen ? at : 0; }
+
+    // Watching: one tick passed. True while resting; the caller then skips hashing and observe().
+    boolean resting() {
+        if (rest == 0) return false;
+        rest--;
+        return true;
+    }
+
+    // Watching: the hash after this tick. True once the island froze.
+    boolean observe(long hash) {
+        if (restart) {
+            restart = false;
+            saved = hash;
+            power = 1;
+            lam = 0;
+            return false;
+        }
+        if (isRecording()) {
+            at++;
+            if (at < period) return false;
+            if (hash == periodStart) {
+                frozen = true;
+                at = 0;
+                return true;
+            }
+            // Not periodic after all: drop the recording and keep searching from here.
+            period = 0;
+            size = 0;
+            saved = hash;
+            power = 1;
+            lam = 0;
+            return false;
+        }
+
+        lam++;
+        if (hash == saved) {
+            period = lam;
+            periodStart = hash;
+            at = 0;
+            size = 0;
+            return false;
+        }
+        if (lam == power) {
+            if (power >= MAX_PERIOD) {
+                // A whole window at the longest period we look for: no cycle yet.
+                rest = nextRest;
+                nextRest = Math.min(nextRest * 2, MAX_REST);
+                restart = true;
+                return false;
+            }
+            saved = hash;
+            power <<= 1;
+            lam = 0;
+        }
+        return false;
+    }
+
+    // Recording: an event of the tick being recorded (offset at + 1, as observe() comes after).
+    void recordSell(ItemType itemType, int itemValue) {
+        int i = add(SELL);
+        type[i] = itemType;
+        value[i] = itemValue;
+    }
+
+    void recordProcessed(int tileId, ItemType itemType, int count) {
+        int i = add(PROCESSED);
+        type[i] = itemType;
+        a[i] = tileId;
+        b[i] = count;
+    }
+
+    // Frozen: one tick passes. Replays that tick's events through the world.
+    void replay(TileWorld world) {
+        at++;
+        while (cursor < size && offset[cursor] == at) {
+            world.replayMacroEvent(kind[cursor], type[cursor], value[cursor], a[cursor], b[cursor]);
+            cursor++;
+        }
+        if (at == period) {
+            at = 0;
+            cursor = 0;
+        }
+    }
+
+    private int add(byte k) {
+        if (size == kind.length) {
+            int n = size * 2;
+            offset = Arrays.copyOf(offset, n);
+            kind = Arrays.copyOf(kind, n);
+            type = Arrays.copyOf(type, n);
+            value = Arrays.copyOf(value, n);
+            a = Arrays.copyOf(a, n);
+            b = Arrays.copyOf(b, n);
+        }
+        offset[size] = at + 1;
+        kind[size] = k;
+        return size++;
+    }
+}
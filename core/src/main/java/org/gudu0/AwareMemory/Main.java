@@ -46,16 +46,16 @@ public class Main extends ApplicationAdapter {
     private int filterCx = -1, filterCy = -1;
     private FilterEntity editingFilter = null;
 
-    private static final float COST_CONVEYOR = 1f;
-    private static final float COST_SMELTER  = 15f;
-    private static final float COST_SELLPAD  = 10f;
-    private static final float COST_SPAWNER  = 25f;
-    private static final float COST_CRUSHER  = 20f;
-    private static final float COST_SPLITTER = 12f;
-    private static final float COST_MERGER = 12f;
-    private static final float COST_PRESS = 25f;
-    private static final float COST_ROLLER = 50f;
-    private static final float COST_FILTER = 50f;
+    private static final long COST_CONVEYOR = Money.cents(1);
+    private static final long COST_SMELTER  = Money.cents(15);
+    private static final long COST_SELLPAD  = Money.cents(10);
+    private static final long COST_SPAWNER  = Money.cents(25);
+    private static final long COST_CRUSHER  = Money.cents(20);
+    private static final long COST_SPLITTER = Money.cents(12);
+    private static final long COST_MERGER = Money.cents(12);
+    private static final long COST_PRESS = Money.cents(25);
+    private static final long COST_ROLLER = Money.cents(50);
+    private static final long COST_FILTER = Money.cents(50);
 
     private static final int HOTBAR_SLOTS = 10;
     // Each page is an array of tile IDs.
@@ -87,7 +87,7 @@ public class Main extends ApplicationAdapter {
     private static final int MAX_TILE_ID = 256;
 
     // simple registries (indexed by tile id)
-    private final float[] costByTile = new float[MAX_TILE_ID];
+    private final long[] costByTile = new long[MAX_TILE_ID]; // cents
     private final boolean[] placeableByTile = new boolean[MAX_TILE_ID];
 
     // [tileId][rot] -> animation (null means “no generic animation draw”)
@@ -95,7 +95,7 @@ public class Main extends ApplicationAdapter {
     private final Animation<TextureRegion>[][] animByTileRot = new Animation[MAX_TILE_ID][4];
 
 
-    private static final float REFUND_RATE = 0.75f;
+    private static final int REFUND_PERCENT = 75;
 
     private int selectedTile = WorldGrid.TILE_CONVEYOR; // default
 
@@ -149,6 +149,14 @@ public class Main extends ApplicationAdapter {
 
     private boolean debugOverlay = false;
 
+    // F6: skip ahead this much game time, simulating within a per-frame budget (Esc stops early).
+    private static final float FAST_FORWARD_SECONDS = 10f * 60f;
+    private static final long FAST_FORWARD_FRAME_NANOS = 12_000_000L;
+    private FastForward fastForward = null;
+
+    // Ctrl+Z / Ctrl+Y: undo history of the player's edits, capped at this many bytes.
+    private static final int EDIT_LOG_BYTES = 1 << 20;
+
     private Texture whiteTex;
     private TextureRegion whiteRegion;
     private TextureRegion[] iconByTileId;
@@ -184,6 +192,24 @@ public class Main extends ApplicationAdapter {
         */
     }
 
+    // How TileWorld runs independent islands each tick (desktop passes a thread pool; web stays serial).
+    private final IslandExecutor islandExecutor;
+    // Two-phase ticks also spread a single big island over the executor (see TileWorld.setTwoPhaseTick).
+    private final boolean twoPhaseTick;
+
+    public Main() {
+        this(IslandExecutor.SERIAL, false);
+    }
+
+    public Main(IslandExecutor islandExecutor) {
+        this(islandExecutor, false);
+    }
+
+    public Main(IslandExecutor islandExecutor, boolean twoPhaseTick) {
+        this.islandExecutor = islandExecutor;
+        this.twoPhaseTick = twoPhaseTick;
+    }
+
     // --- METHODS --- \\
     @SuppressWarnings({"SpellCheckingInspection"})
     @Override
@@ -193,10 +219,12 @@ public class Main extends ApplicationAdapter {
         playerTex = new Texture(Gdx.files.internal("player.png"));
         player = new PlayerSystem(playerTex, world);
         tileWorld = new TileWorld(world);
+        tileWorld.setIslandExecutor(islandExecutor);
+        tileWorld.setTwoPhaseTick(twoPhaseTick);
         hud = new Hud();
         audio = new AudioManager();
         audio.load();
-        tileWorld.addMoney(999.0f); // temp test starting money
+        tileWorld.addMoney(Money.cents(999)); // temp test starting money
 
         hud.addToggle("Show port overlay", new Hud.BoolGetter() {
             @Override public boolean get() { return drawPortOverlay; }
@@ -227,7 +255,7 @@ public class Main extends ApplicationAdapter {
         ArrayList<Order> milestones = new ArrayList<>();
         milestones.add(Order.sellItems("sell_10_any", "First Sales", "Sell 10 items.", 100, -1, 10));
         milestones.add(Order.processInMachine("roll_20", "Rods", "Make 20 rods in a Roller.", 250, WorldGrid.TILE_ROLLER, ItemType.ROD.ordinal(), 20));
-        int targetMoney = (int) tileWorld.getMoney() + 100;
+        int targetMoney = (int) Money.wholeDollars(tileWorld.getMoney()) + 100;
         milestones.add(Order.reachMoney("money_1000", "Savings", "Reach $" + targetMoney + "!", 400, targetMoney));
 
         tileWorld.getOrders().setMilestones(milestones);
@@ -469,17 +497,21 @@ public class Main extends ApplicationAdapter {
 
         // sample placement.
         int start = 30;
-        placeTile(start, start, 0, WorldGrid.TILE_SPAWNER);
-        placeTile(start + 1, start, 0, WorldGrid.TILE_CONVEYOR);
-        placeTile(start + 2, start, 0, WorldGrid.TILE_CRUSHER);
-        placeTile(start + 3, start, 0, WorldGrid.TILE_CONVEYOR);
-        placeTile(start + 4, start, 0, WorldGrid.TILE_SMELTER);
-        placeTile(start + 5, start, 0, WorldGrid.TILE_CONVEYOR);
-        placeTile(start + 6, start, 0, WorldGrid.TILE_PRESS);
-        placeTile(start + 7, start, 0, WorldGrid.TILE_CONVEYOR);
-        placeTile(start + 8, start, 0, WorldGrid.TILE_ROLLER);
-        placeTile(start + 9, start, 0, WorldGrid.TILE_CONVEYOR);
-        placeTile(start + 10, start, 0, WorldGrid.TILE_SELLPAD);
+        tileWorld.beginEdit();
+        tileWorld.placeTile(start, start, WorldGrid.TILE_SPAWNER, 0);
+        tileWorld.placeTile(start + 1, start, WorldGrid.TILE_CONVEYOR, 0);
+        tileWorld.placeTile(start + 2, start, WorldGrid.TILE_CRUSHER, 0);
+        tileWorld.placeTile(start + 3, start, WorldGrid.TILE_CONVEYOR, 0);
+        tileWorld.placeTile(start + 4, start, WorldGrid.TILE_SMELTER, 0);
+        tileWorld.placeTile(start + 5, start, WorldGrid.TILE_CONVEYOR, 0);
+        tileWorld.placeTile(start + 6, start, WorldGrid.TILE_PRESS, 0);
+        tileWorld.placeTile(start + 7, start, WorldGrid.TILE_CONVEYOR, 0);
+        tileWorld.placeTile(start + 8, start, WorldGrid.TILE_ROLLER, 0);
+        tileWorld.placeTile(start + 9, start, WorldGrid.TILE_CONVEYOR, 0);
+        tileWorld.placeTile(start + 10, start, WorldGrid.TILE_SELLPAD, 0);
+        tileWorld.commitEdit();
+
+        tileWorld.setEditLog(new EditLog(EDIT_LOG_BYTES));
     }
 
     @Override
@@ -516,7 +548,13 @@ public class Main extends ApplicationAdapter {
         }
 
 
-        tileWorld.update(dt)    ;
+        if (fastForward != null) {
+            // Skipping ahead: spend most of the frame simulating instead of the normal real-time step.
+            fastForward.run(FAST_FORWARD_FRAME_NANOS);
+            if (fastForward.isFinished()) fastForward = null;
+        } else {
+            tileWorld.update(dt)    ;
+        }
 
         doGridDraw();
         doPlacedTilesDraw();
@@ -547,6 +585,7 @@ public class Main extends ApplicationAdapter {
 
         hud.drawOrdersPanel(batch, tileWorld.getOrders(), tileWorld.getMoney(), whiteRegion, hudViewport);
         hud.drawOptionsMenu(batch, whiteRegion);
+        if (fastForward != null) hud.drawFastForward(batch, fastForward, whiteRegion);
 
 
     }
@@ -643,7 +682,7 @@ public class Main extends ApplicationAdapter {
                 if (claimIndex != -1) {
                     int reward = tileWorld.getOrders().tryClaimActiveIndex(claimIndex, tileWorld.getTick(), tileWorld.getMoney());
                     if (reward > 0) {
-                        tileWorld.addMoney(reward);
+                        tileWorld.addMoney(Money.cents(reward));
                         audio.playClaim();
                     }
                     audio.playClaim();
@@ -664,6 +703,9 @@ public class Main extends ApplicationAdapter {
 
         }
         if (Gdx.input.isKeyJustPressed(Input.Keys.C)) tileWorld.clearItems();
+        boolean ctrl = Gdx.input.isKeyPressed(Input.Keys.CONTROL_LEFT) || Gdx.input.isKeyPressed(Input.Keys.CONTROL_RIGHT);
+        if (ctrl && Gdx.input.isKeyJustPressed(Input.Keys.Z)) tileWorld.getEditLog().undo(tileWorld);
+        if (ctrl && Gdx.input.isKeyJustPressed(Input.Keys.Y)) tileWorld.getEditLog().redo(tileWorld);
         if (Gdx.input.isKeyJustPressed(Input.Keys.F4)){
             saveGame();
             Gdx.app.exit();
@@ -676,22 +718,27 @@ public class Main extends ApplicationAdapter {
             }
         }
         if (Gdx.input.isKeyJustPressed(Input.Keys.F5)) saveGame();
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F6) && fastForward == null) {
+            fastForward = new FastForward(tileWorld, tileWorld.ticksFor(FAST_FORWARD_SECONDS));
+        }
+        if (fastForward != null && Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) fastForward.cancel();
         if (Gdx.input.isKeyJustPressed(Input.Keys.F9)) {
             loadGame();
             // Second pass: now that all entities exist, refresh conveyor shapes everywhere
             tileWorld.refreshAllConveyorShapes();
+            catchUpOfflineTime();
         }
         if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) {
             // Spawn onto the hovered tile (if it has an entity)
             if (hoverValid) {
                 int cx = hoverCellX, cy = hoverCellY;
-                int rot = world.rot[cx][cy];
+                int rot = world.getRot(cx, cy);
                 Dir fwd = Dir.fromRot(rot);
 
                 // Conveyor accepts from BACK side, so spawn "coming from back"
                 Dir fromEdge = fwd.opposite();
 
-                tileWorld.spawnOnTile(cx, cy, ItemType.ORE, 1f, fromEdge);
+                tileWorld.spawnOnTile(cx, cy, ItemType.ORE, 100, fromEdge);
             }
         }
         if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
@@ -791,6 +838,9 @@ public class Main extends ApplicationAdapter {
         if (hit == 0) editingFilter.cycleRule(FilterEntity.Out.FORWARD, delta);
         if (hit == 1) editingFilter.cycleRule(FilterEntity.Out.LEFT, delta);
         if (hit == 2) editingFilter.cycleRule(FilterEntity.Out.RIGHT, delta);
+
+        // A rule change can unjam a sleeping filter.
+        tileWorld.wakeEntityAt(filterCx, filterCy);
     }
 
     private void drawDebugOverlay() {
@@ -803,24 +853,23 @@ public class Main extends ApplicationAdapter {
         // 1) Draw 5x5 subcell grid lines ONLY for built tiles
         shapes.begin(ShapeRenderer.ShapeType.Line);
         shapes.setColor(0.5f, 0.5f, 0.5f, 0.5f);
-        for (int y = 0; y < world.hCells; y++) {
-            for (int x = 0; x < world.wCells; x++) {
-                if (world.grid[x][y] == WorldGrid.TILE_EMPTY) continue;
+        for (ChunkSet.Walk c = world.liveCells(); c.next(); ) {
+            int x = c.x, y = c.y;
+            if (world.getTile(x, y) == WorldGrid.TILE_EMPTY) continue;
 
-                float x0 = x * WorldGrid.CELL;
-                float y0 = y * WorldGrid.CELL;
+            float x0 = x * WorldGrid.CELL;
+            float y0 = y * WorldGrid.CELL;
 
-                // vertical sub-lines
-                for (int i = 1; i < 5; i++) {
-                    float lx = x0 + i * sub;
-                    shapes.line(lx, y0, lx, y0 + WorldGrid.CELL);
-                }
+            // vertical sub-lines
+            for (int i = 1; i < 5; i++) {
+                float lx = x0 + i * sub;
+                shapes.line(lx, y0, lx, y0 + WorldGrid.CELL);
+            }
 
-                // horizontal sub-lines
-                for (int i = 1; i < 5; i++) {
-                    float ly = y0 + i * sub;
-                    shapes.line(x0, ly, x0 + WorldGrid.CELL, ly);
-                }
+            // horizontal sub-lines
+            for (int i = 1; i < 5; i++) {
+                float ly = y0 + i * sub;
+                shapes.line(x0, ly, x0 + WorldGrid.CELL, ly);
             }
         }
 
@@ -829,23 +878,22 @@ public class Main extends ApplicationAdapter {
         // 2) Draw occupied subcells as filled boxes
         shapes.begin(ShapeRenderer.ShapeType.Filled);
 
-        for (int y = 0; y < world.hCells; y++) {
-            for (int x = 0; x < world.wCells; x++) {
-                TileEntity te = tileWorld.getEntity(x, y);
-                if (te == null) continue;
+        for (ChunkSet.Walk c = tileWorld.entityCells(); c.next(); ) {
+            int x = c.x, y = c.y;
+            TileEntity te = tileWorld.getEntity(x, y);
+            if (te == null) continue;
 
-                float x0 = x * WorldGrid.CELL;
-                float y0 = y * WorldGrid.CELL;
+            float x0 = x * WorldGrid.CELL;
+            float y0 = y * WorldGrid.CELL;
 
-                for (int u = 0; u < 5; u++) {
-                    for (int v = 0; v < 5; v++) {
-                        int id = te.getItemIdAt(u, v);
-                        if (id == TileEntity.EMPTY) continue;
+            for (int u = 0; u < 5; u++) {
+                for (int v = 0; v < 5; v++) {
+                    int id = te.getItemIdAt(u, v);
+                    if (id == TileEntity.EMPTY) continue;
 
-                        float rx = x0 + u * sub;
-                        float ry = y0 + v * sub;
-                        shapes.rect(rx + 1f, ry + 1f, sub - 2f, sub - 2f);
-                    }
+                    float rx = x0 + u * sub;
+                    float ry = y0 + v * sub;
+                    shapes.rect(rx + 1f, ry + 1f, sub - 2f, sub - 2f);
                 }
             }
         }
@@ -867,22 +915,34 @@ public class Main extends ApplicationAdapter {
         world.saveWithTileWorld("save2", tileWorld);
     }
 
+    // Credit the time the save spent on disk (OfflineProgress: simulate to a steady state, extrapolate the rest).
+    private void catchUpOfflineTime() {
+        long savedAt = world.getLoadedSavedAtMillis();
+        if (savedAt <= 0L) return;
+        long awayMillis = TimeUtils.millis() - savedAt;
+        if (awayMillis <= 0L) return;
+
+        long t0 = TimeUtils.millis();
+        OfflineProgress.Result r = OfflineProgress.catchUp(tileWorld, tileWorld.ticksFor(awayMillis / 1000f));
+        long t1 = TimeUtils.millis();
+
+        Gdx.app.log("Offline", "away " + awayMillis / 1000 + "s: " + r.ticks + " ticks, " + r.simulatedTicks
+            + " simulated, period " + r.period + ", +$" + Money.format(r.moneyEarned) + " in " + (t1 - t0) + "ms");
+    }
+
     private void loadGame() {
         long t0 = TimeUtils.millis();
         world.loadWithTileWorld("save2");
         long t1 = TimeUtils.millis();
 
-        for (int x = 0; x < world.wCells; x++) {
-            for (int y = 0; y < world.hCells; y++) {
-                if (world.grid[x][y] == WorldGrid.TILE_EMPTY)
-                    tileWorld.clearEntityAtFromSmartPlacement(x, y);
-                else
-                    tileWorld.rebuildEntityAtFromSmartPlacement(x, y);
-            }
-        }
+        // The history is of the world being replaced.
+        tileWorld.getEditLog().clear();
+
+        tileWorld.beginEdit();
+        tileWorld.rebuildAllFromGrid();
         long t2 = TimeUtils.millis();
 
-        SmartPlacement.refreshAll(tileWorld);
+        tileWorld.commitEdit();
         long t3 = TimeUtils.millis();
 
         world.applyLoadedItemsTo(tileWorld);
@@ -916,6 +976,13 @@ public class Main extends ApplicationAdapter {
         camera.position.y = clamp(camera.position.y, halfH, world.WORLD_H - halfH);
 
         camera.update();
+
+        // Islands outside the view only run at full detail again once they come back into it.
+        tileWorld.setFocus(
+            (int) ((camera.position.x - halfW) / WorldGrid.CELL),
+            (int) ((camera.position.y - halfH) / WorldGrid.CELL),
+            (int) ((camera.position.x + halfW) / WorldGrid.CELL),
+            (int) ((camera.position.y + halfH) / WorldGrid.CELL));
     }
 
     public void doGridDraw(){
@@ -981,7 +1048,7 @@ public class Main extends ApplicationAdapter {
         float x = hoverCellX * WorldGrid.CELL;
         float y = hoverCellY * WorldGrid.CELL;
 
-        boolean ok = world.grid[hoverCellX][hoverCellY] == WorldGrid.TILE_EMPTY && !player.blocksCell(world, hoverCellX, hoverCellY) && tileWorld.getMoney() >= getTileCost(selectedTile);
+        boolean ok = world.getTile(hoverCellX, hoverCellY) == WorldGrid.TILE_EMPTY && !player.blocksCell(world, hoverCellX, hoverCellY) && tileWorld.getMoney() >= getTileCost(selectedTile);
 
         Gdx.gl.glEnable(GL20.GL_BLEND);
         Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
@@ -1007,8 +1074,8 @@ public class Main extends ApplicationAdapter {
         batch.end();
     }
 
-    private float getTileCost(int tile) {
-        if (tile < 0 || tile >= MAX_TILE_ID) return 0f;
+    private long getTileCost(int tile) {
+        if (tile < 0 || tile >= MAX_TILE_ID) return 0L;
         return costByTile[tile];
     }
 
@@ -1094,7 +1161,7 @@ public class Main extends ApplicationAdapter {
         return rotValueForDir;
     }
 
-    private void registerTile(int tileId, float cost, @SuppressWarnings("SameParameterValue") boolean placeable, Animation<TextureRegion>[] anim4, boolean iconLoop) {
+    private void registerTile(int tileId, long cost, @SuppressWarnings("SameParameterValue") boolean placeable, Animation<TextureRegion>[] anim4, boolean iconLoop) {
         if (tileId < 0 || tileId >= MAX_TILE_ID) {
             throw new RuntimeException("tileId out of range: " + tileId);
         }
@@ -1136,115 +1203,114 @@ public class Main extends ApplicationAdapter {
         batch.setProjectionMatrix(camera.combined);
         batch.begin();
 
-        for (int x = 0; x < worldCellsX(); x++) {
-            for (int y = 0; y < worldCellsY(); y++) {
-                int id = world.grid[x][y];
-                if (id == WorldGrid.TILE_EMPTY) continue;
-
-                float drawX = x * WorldGrid.CELL;
-                float drawY = y * WorldGrid.CELL;
-                int outRot = world.rot[x][y];
-
-
-                if (id == WorldGrid.TILE_CONVEYOR){
-                    if (tileWorld.getEntity(x, y) instanceof ConveyorEntity) {
-                        ConveyorEntity c = (ConveyorEntity) tileWorld.getEntity(x, y);
-
-                        // your world rot = output direction
-                        Dir out = Dir.fromRot(outRot);
-
-                        assert c != null;
-                        ConveyorEntity.Shape conveyorShape = c.getShape();
-                        switch (conveyorShape) {
-                            case STRAIGHT: {
-                                TextureRegion frame = conveyorAnim[outRot].getKeyFrame(stateTime, true);
-                                batch.draw(frame, drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
-                                break;
-                            }
-                            case TURN_LEFT: {
-                                // input side relative to output
-                                @SuppressWarnings("ConstantValue") Dir in = (c.getShape() == ConveyorEntity.Shape.TURN_LEFT) ? out.left() : out.right();
-                                int inRot = dirToRot(in);
-                                // which way do we turn relative to the IN direction?
-                                // idx 0 = left-turn (CCW), idx 1 = right-turn (CW)
-                                int idx = (out == in.left()) ? 0 : 1;
-
-                                // ---- FIX: your corner sprites are 90° off ----
-                                // If it's a left turn, rotate sprite clockwise; if it's a right turn, rotate sprite counterclockwise.
-                                // (This matches your screenshot: C for one type, K for the other.)
-                                int correctedRot = (idx == 0) ? ((inRot + 1) & 3) : ((inRot + 3) & 3);
-
-                                batch.draw(conveyorTurn[correctedRot][1 - idx], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
-                                break;
-                            }
-                            case TURN_RIGHT: {
-                                // input side relative to output
-                                @SuppressWarnings("ConstantValue") Dir in = (c.getShape() == ConveyorEntity.Shape.TURN_LEFT) ? out.left() : out.right();
-
-                                int inRot = dirToRot(in);
-
-                                // which way do we turn relative to the IN direction?
-                                // idx 0 = left-turn (CCW), idx 1 = right-turn (CW)
-                                int idx = (out == in.left()) ? 0 : 1;
-
-                                // ---- FIX: your corner sprites are 90° off ----
-                                // If it's a left turn, rotate sprite clockwise; if it's a right turn, rotate sprite counterclockwise.
-                                // (This matches your screenshot: C for one type, K for the other.)
-                                int correctedRot = (idx == 0) ? ((inRot + 1) & 3) : ((inRot + 3) & 3);
-
-                                batch.draw(conveyorTurn[correctedRot][1 - idx], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
-                                break;
-                            }
+        for (TileWorld.EntityWalk e = tileWorld.entities(); e.next(); ) {
+            int x = e.x, y = e.y;
+            int id = world.getTile(x, y);
+            if (id == WorldGrid.TILE_EMPTY) continue;
+
+            float drawX = x * WorldGrid.CELL;
+            float drawY = y * WorldGrid.CELL;
+            int outRot = world.getRot(x, y);
+
+
+            if (id == WorldGrid.TILE_CONVEYOR){
+                if (tileWorld.getEntity(x, y) instanceof ConveyorEntity) {
+                    ConveyorEntity c = (ConveyorEntity) tileWorld.getEntity(x, y);
+
+                    // your world rot = output direction
+                    Dir out = Dir.fromRot(outRot);
+
+                    assert c != null;
+                    ConveyorEntity.Shape conveyorShape = c.getShape();
+                    switch (conveyorShape) {
+                        case STRAIGHT: {
+                            TextureRegion frame = conveyorAnim[outRot].getKeyFrame(stateTime, true);
+                            batch.draw(frame, drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+                            break;
                         }
-                    } else {
-                        TextureRegion frame = conveyorAnim[outRot].getKeyFrame(stateTime, true);
-                        batch.draw(frame, drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
-                    }
-                } else if (id == WorldGrid.TILE_MERGER) {
-                    int variantIdx = 0;
-
-                    TileEntity te = tileWorld.getEntity(x, y);
-                    if (te instanceof MergerEntity) {
-                        MergerEntity m = (MergerEntity) te;
-                        switch (m.getVariant()) {
-                            case LR: variantIdx = 0; break;
-                            case BR: variantIdx = 1; break;
-                            case BL: variantIdx = 2; break;
+                        case TURN_LEFT: {
+                            // input side relative to output
+                            @SuppressWarnings("ConstantValue") Dir in = (c.getShape() == ConveyorEntity.Shape.TURN_LEFT) ? out.left() : out.right();
+                            int inRot = dirToRot(in);
+                            // which way do we turn relative to the IN direction?
+                            // idx 0 = left-turn (CCW), idx 1 = right-turn (CW)
+                            int idx = (out == in.left()) ? 0 : 1;
+
+                            // ---- FIX: your corner sprites are 90° off ----
+                            // If it's a left turn, rotate sprite clockwise; if it's a right turn, rotate sprite counterclockwise.
+                            // (This matches your screenshot: C for one type, K for the other.)
+                            int correctedRot = (idx == 0) ? ((inRot + 1) & 3) : ((inRot + 3) & 3);
+
+                            batch.draw(conveyorTurn[correctedRot][1 - idx], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+                            break;
                         }
-                    } else {
-                        // fallback if something ever renders without an entity
-                        variantIdx = mergerVariantAt(x, y, outRot);
-                    }
-
-                    batch.draw(mergerSprite[outRot][variantIdx], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+                        case TURN_RIGHT: {
+                            // input side relative to output
+                            @SuppressWarnings("ConstantValue") Dir in = (c.getShape() == ConveyorEntity.Shape.TURN_LEFT) ? out.left() : out.right();
 
-                    if (debugOverlay) {
-                        batch.end();
+                            int inRot = dirToRot(in);
 
-                        batch.setProjectionMatrix(camera.combined);
-                        batch.begin();
+                            // which way do we turn relative to the IN direction?
+                            // idx 0 = left-turn (CCW), idx 1 = right-turn (CW)
+                            int idx = (out == in.left()) ? 0 : 1;
 
-                        hud.drawMergervariant(batch, variantIdx, drawX, drawY);
+                            // ---- FIX: your corner sprites are 90° off ----
+                            // If it's a left turn, rotate sprite clockwise; if it's a right turn, rotate sprite counterclockwise.
+                            // (This matches your screenshot: C for one type, K for the other.)
+                            int correctedRot = (idx == 0) ? ((inRot + 1) & 3) : ((inRot + 3) & 3);
 
-                        batch.end();
-                        batch.begin();
-                    }
-                } else if (id == WorldGrid.TILE_SPLITTER) {
-                    SplitterEntity s = (SplitterEntity) tileWorld.getEntity(x, y);
-                    int v = 0;
-                    if (s != null) {
-                        switch (s.getVariant()) {
-                            case FL: v = 0; break;
-                            case FR: v = 1; break;
-                            case LR: v = 2; break;
+                            batch.draw(conveyorTurn[correctedRot][1 - idx], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+                            break;
                         }
                     }
-                    batch.draw(splitterSprite[outRot][v], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
                 } else {
-                    Animation<TextureRegion> a = animByTileRot[id][outRot];
-                    if (a != null) {
-                        batch.draw(a.getKeyFrame(0f, false), drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+                    TextureRegion frame = conveyorAnim[outRot].getKeyFrame(stateTime, true);
+                    batch.draw(frame, drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+                }
+            } else if (id == WorldGrid.TILE_MERGER) {
+                int variantIdx = 0;
+
+                TileEntity te = tileWorld.getEntity(x, y);
+                if (te instanceof MergerEntity) {
+                    MergerEntity m = (MergerEntity) te;
+                    switch (m.getVariant()) {
+                        case LR: variantIdx = 0; break;
+                        case BR: variantIdx = 1; break;
+                        case BL: variantIdx = 2; break;
                     }
+                } else {
+                    // fallback if something ever renders without an entity
+                    variantIdx = mergerVariantAt(x, y, outRot);
+                }
+
+                batch.draw(mergerSprite[outRot][variantIdx], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+
+                if (debugOverlay) {
+                    batch.end();
+
+                    batch.setProjectionMatrix(camera.combined);
+                    batch.begin();
+
+                    hud.drawMergervariant(batch, variantIdx, drawX, drawY);
+
+                    batch.end();
+                    batch.begin();
+                }
+            } else if (id == WorldGrid.TILE_SPLITTER) {
+                SplitterEntity s = (SplitterEntity) tileWorld.getEntity(x, y);
+                int v = 0;
+                if (s != null) {
+                    switch (s.getVariant()) {
+                        case FL: v = 0; break;
+                        case FR: v = 1; break;
+                        case LR: v = 2; break;
+                    }
+                }
+                batch.draw(splitterSprite[outRot][v], drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
+            } else {
+                Animation<TextureRegion> a = animByTileRot[id][outRot];
+                if (a != null) {
+                    batch.draw(a.getKeyFrame(0f, false), drawX, drawY, WorldGrid.CELL, WorldGrid.CELL);
                 }
             }
         }
@@ -1272,66 +1338,68 @@ public class Main extends ApplicationAdapter {
     }
 
     private boolean feedsFrom(int cx, int cy, Dir fromEdgeIntoThis) {
-        int nx = cx + fromEdgeIntoThis.dx;
-        int ny = cy + fromEdgeIntoThis.dy;
-
-        TileEntity n = tileWorld.getEntity(nx, ny);
-        if (n == null) return false;
-
-        Dir dirFromNeighborToThis = fromEdgeIntoThis.opposite();
-        return n.outputsTo(dirFromNeighborToThis);
+        return tileWorld.neighborOutputsInto(cx, cy, fromEdgeIntoThis);
     }
 
-    private void placeTile(int x, int y, int rot, int tile){
-        world.grid[x][y] = tile;
-        world.rot[x][y] = rot;
-
-        if (tile == WorldGrid.TILE_CONVEYOR) {
-            int upgraded = tileWorld.decideAutoTileForConveyor(x, y, rot);
-            world.grid[x][y] = upgraded;
-        }
-        tileWorld.rebuildEntityAt(x, y);
-    }
+    // Last cell painted while a mouse button was held, and on which frame: a drag that skips cells between
+    // frames fills them in.
+    private int lastPaintX = -1, lastPaintY = -1;
+    private long lastPaintFrame = -1;
 
     public void doGetPlacement() {
-        if (!hoverValid) return;
-        if (player.blocksCell(world, hoverCellX, hoverCellY)) { return; }
-
-        // Left click = place
-        if (Gdx.input.isButtonPressed(Input.Buttons.LEFT)) {
-            if (world.grid[hoverCellX][hoverCellY] == WorldGrid.TILE_EMPTY)                                                                  {
-                if (!isManuallyPlaceable(selectedTile)) return;
+        boolean place = Gdx.input.isButtonPressed(Input.Buttons.LEFT);
+        boolean delete = Gdx.input.isButtonPressed(Input.Buttons.RIGHT);
+        if (!hoverValid || (!place && !delete)) return;
+
+        long frame = Gdx.graphics.getFrameId();
+        boolean stroke = lastPaintFrame == frame - 1;
+        int x = stroke ? lastPaintX : hoverCellX;
+        int y = stroke ? lastPaintY : hoverCellY;
+
+        // The whole stroke is one edit: SmartPlacement runs once on commit, not once per cell.
+        boolean placed = false;
+        tileWorld.beginEdit();
+        placed |= paintCell(x, y, place, delete);
+        while (x != hoverCellX || y != hoverCellY) {
+            if (x != hoverCellX) x += Integer.signum(hoverCellX - x);
+            else y += Integer.signum(hoverCellY - y);
+            placed |= paintCell(x, y, place, delete);
+        }
+        tileWorld.commitEdit();
+
+        if (placed) audio.playPlace();
+        lastPaintX = hoverCellX;
+        lastPaintY = hoverCellY;
+        lastPaintFrame = frame;
+    }
 
-                float cost = getTileCost(selectedTile);
-                if (!tileWorld.trySpendMoney(cost)) return;
+    // Left click = place, right click = delete. True if a tile was placed.
+    private boolean paintCell(int x, int y, boolean place, boolean delete) {
+        if (player.blocksCell(world, x, y)) return false;
+        boolean placed = false;
 
+        if (place) {
+            if (world.getTile(x, y) == WorldGrid.TILE_EMPTY) {
+                if (!isManuallyPlaceable(selectedTile)) return false;
 
-                world.grid[hoverCellX][hoverCellY] = selectedTile;
-                world.rot[hoverCellX][hoverCellY] = selectedRot;
+                long cost = getTileCost(selectedTile);
+                if (!tileWorld.trySpendMoney(cost)) return false;
 
-                // AUTO-UPGRADE: if we placed a conveyor, maybe it should become a splitter
-                if (selectedTile == WorldGrid.TILE_CONVEYOR) {
-                    int upgraded = tileWorld.decideAutoTileForConveyor(hoverCellX, hoverCellY, selectedRot);
-                    world.grid[hoverCellX][hoverCellY] = upgraded;
-                }
-                tileWorld.rebuildEntityAt(hoverCellX, hoverCellY);
-                int placedId = world.grid[hoverCellX][hoverCellY]; // includes auto-upgrade result
-                tileWorld.getOrders().onTilePlaced(placedId, tileWorld.getMoney(), tileWorld.getTick());
-                audio.playPlace();
+                // AUTO-UPGRADE: a conveyor may become a splitter or merger (placeTile decides)
+                tileWorld.placeTile(x, y, selectedTile, selectedRot);
+                tileWorld.countPlacement(x, y); // with the auto-upgrade result, on commit
+                placed = true;
             }
         }
 
-
-        // Right click = delete
-        if (Gdx.input.isButtonPressed(Input.Buttons.RIGHT)) {
-            int old = world.grid[hoverCellX][hoverCellY];
+        if (delete) {
+            int old = world.getTile(x, y);
             if (old != WorldGrid.TILE_EMPTY) {
-                tileWorld.addMoney(getTileCost(old) * REFUND_RATE);
+                tileWorld.addMoney(getTileCost(old) * REFUND_PERCENT / 100);
             }
-            world.grid[hoverCellX][hoverCellY] = WorldGrid.TILE_EMPTY;
-            tileWorld.clearEntityAt(hoverCellX, hoverCellY);
+            tileWorld.deleteTile(x, y);
         }
-
+        return placed;
     }
 
     public void doDrawPlayer(){
@@ -1350,7 +1418,7 @@ public class Main extends ApplicationAdapter {
 
         for (TileWorld.ItemRenderInfo info : tileWorld.renderInfos()) {
             Texture tex = oreTex;
-            switch (info.item().type) {
+            switch (info.item().type()) {
                 case ORE: {
                     //noinspection DataFlowIssue
                     tex = oreTex;
@@ -1385,7 +1453,7 @@ public class Main extends ApplicationAdapter {
                     break;
                 }
                 default: {
-                    throw new RuntimeException("Unhandled item type: " + info.item().type);
+                    throw new RuntimeException("Unhandled item type: " + info.item().type());
                 }
             }
 
@@ -1459,122 +1527,17 @@ public class Main extends ApplicationAdapter {
         inputs.clear();
         outputs.clear();
 
-        int id = world.grid[x][y];
+        int id = world.getTile(x, y);
         if (id == WorldGrid.TILE_EMPTY) return;
 
-        int outRot = world.rot[x][y];
-        Dir out = Dir.fromRot(outRot);
-
+        // Straight from the port graph, so the overlay shows exactly what the sim connects.
         TileEntity te = tileWorld.getEntity(x, y);
+        if (te == null) return;
 
-        // --- Logistics tiles (exact) ---
-        if (te instanceof ConveyorEntity) {
-            ConveyorEntity c = (ConveyorEntity) te;
-
-            outputs.add(out);
-
-            switch (c.getShape()) {
-                case STRAIGHT:
-                    inputs.add(out.opposite());
-                    break;
-                case TURN_LEFT:
-                    inputs.add(out.left());
-                    break;
-                case TURN_RIGHT:
-                    inputs.add(out.right());
-                    break;
-            }
-            return;
-        }
-
-        if (te instanceof MergerEntity) {
-            MergerEntity m = (MergerEntity) te;
-
-            outputs.add(out);
-
-            switch (m.getVariant()) {
-                case LR:
-                    inputs.add(out.left());
-                    inputs.add(out.right());
-                    break;
-                case BL:
-                    inputs.add(out.opposite());
-                    inputs.add(out.left());
-                    break;
-                case BR:
-                    inputs.add(out.opposite());
-                    inputs.add(out.right());
-                    break;
-            }
-            return;
-        }
-
-        if (te instanceof SplitterEntity) {
-            SplitterEntity s = (SplitterEntity) te;
-
-            inputs.add(out.opposite());
-
-            switch (s.getVariant()) {
-                case FL:
-                    outputs.add(out);
-                    outputs.add(out.left());
-                    break;
-                case FR:
-                    outputs.add(out);
-                    outputs.add(out.right());
-                    break;
-                case LR:
-                    outputs.add(out.left());
-                    outputs.add(out.right());
-                    break;
-            }
-            return;
-        }
-
-        if (te instanceof FilterEntity) {
-            // Your filter tiles are directional too; treat like splitter-style ports.
-            // Input is "back" relative to rot; outputs depend on variant.
-            FilterEntity f = (FilterEntity) te;
-
-            inputs.add(out.opposite());
-
-            switch (f.getVariant()) {
-                case FL:
-                    outputs.add(out);
-                    outputs.add(out.left());
-                    break;
-                case FR:
-                    outputs.add(out);
-                    outputs.add(out.right());
-                    break;
-                case LR:
-                    outputs.add(out.left());
-                    outputs.add(out.right());
-                    break;
-            }
-            return;
-        }
-
-        // --- Machines (reasonable defaults) ---
-        // Spawner: output only
-        if (te instanceof SpawnerEntity) {
-            outputs.add(out);
-            return;
-        }
-
-        // Sellpad: input only
-        if (te instanceof SellpadEntity) {
-            inputs.add(out.left());
-            inputs.add(out.right());
-            inputs.add(out.opposite());
-            inputs.add(out);
-            return;
-        }
-
-        // Most processors: input back, output forward
-        if (te != null) {
-            inputs.add(out.opposite());
-            outputs.add(out);
+        for (Dir d : Dir.values()) {
+            int bit = 1 << d.ordinal();
+            if ((te.inputPorts() & bit) != 0) inputs.add(d);
+            if ((te.outputPorts() & bit) != 0) outputs.add(d);
         }
     }
 
@@ -1592,18 +1555,17 @@ public class Main extends ApplicationAdapter {
 
         shapes.begin(ShapeRenderer.ShapeType.Filled);
 
-        for (int x = 0; x < worldCellsX(); x++) {
-            for (int y = 0; y < worldCellsY(); y++) {
-                if (world.grid[x][y] == WorldGrid.TILE_EMPTY) continue;
+        for (TileWorld.EntityWalk e = tileWorld.entities(); e.next(); ) {
+            int x = e.x, y = e.y;
+            if (world.getTile(x, y) == WorldGrid.TILE_EMPTY) continue;
 
-                computePortsForTile(x, y, inputs, outputs);
+            computePortsForTile(x, y, inputs, outputs);
 
-                float drawX = x * WorldGrid.CELL;
-                float drawY = y * WorldGrid.CELL;
+            float drawX = x * WorldGrid.CELL;
+            float drawY = y * WorldGrid.CELL;
 
-                for (Dir d : inputs)  drawPortMarker(drawX, drawY, d, true);
-                for (Dir d : outputs) drawPortMarker(drawX, drawY, d, false);
-            }
+            for (Dir d : inputs)  drawPortMarker(drawX, drawY, d, true);
+            for (Dir d : outputs) drawPortMarker(drawX, drawY, d, false);
         }
 
         shapes.end();
@@ -0,0 +1,35 @@
+package org.gudu0.AwareMemory;
+
+/**
+ * Money is kept in whole cents: the player's total as a long, item values as ints.
+ * <p>
+ * Integer sums come out the same in any order, on any JVM and under GWT (where float maths is done in
+ * doubles), so replays, macro islands and the parallel tick modes all land on the same total. Dollars
+ * only appear at the edges: tuned prices, order targets and what the HUD prints.
+ */
+public final class Money {
+    private Money() {}
+
+    public static final int CENTS_PER_DOLLAR = 100;
+
+    public static long cents(int dollars) {
+        return (long) dollars * CENTS_PER_DOLLAR;
+    }
+
+    // Whole dollars, rounded down (order targets are whole dollars).
+    public static long wholeDollars(long cents) {
+        return Math.floorDiv(cents, CENTS_PER_DOLLAR);
+    }
+
+    // A tuned multiplier applied to a value, as whole percent (200 = x2), rounded down.
+    public static int percentOf(int cents, int percent) {
+        return (int) Math.floorDiv((long) cents * percent, 100L);
+    }
+
+    // "12.30", "-0.05": for display only.
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long c = abs % CENTS_PER_DOLLAR;
+        return (cents < 0 ? "-" : "") + (abs / CENTS_PER_DOLLAR) + (c < 10 ? ".0" : ".") + c;
+    }
+}
@@ -0,0 +1,84 @@
+package org.gudu0.AwareMemory;
+
+import java.util.Arrays;
+
+/**
+ * Flat occupancy storage owned by TileWorld.
+ * <p>
+ * Every placed entity gets a slot of CELLS ints (its 5x5 subcells, index u * N + v) in one shared
+ * int[], instead of its own int[5][5]. Whole-world scans (renders, saves) walk the array front to back.
+ * <p>
+ * Slots are recycled through a free list. When the buffer has to grow, every live owner is re-pointed
+ * at the new array, so entities can index it directly with their base offset.
+ */
+final class OccupancyTable {
+    static final int CELLS = TileEntity.N * TileEntity.N;
+
+    private int[] cells = new int[64 * CELLS];
+    private TileEntity[] owners = new TileEntity[64];
+
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+    private int highWater = 0;
+
+    void attach(TileEntity te) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = highWater++;
+            ensureCapacity(highWater);
+        }
+
+        int base = slot * CELLS;
+        Arrays.fill(cells, base, base + CELLS, TileEntity.EMPTY);
+        owners[slot] = te;
+        te.bindOccupancy(cells, base);
+    }
+
+    void detach(TileEntity te) {
+        int slot = te.occupancyBase() / CELLS;
+        if (owners[slot] != te) return;
+
+        owners[slot] = null;
+        te.unbindOccupancy();
+
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Slots [0, slotCount()) may be live; check owner(slot) for null.
+    int slotCount() {
+        return highWater;
+    }
+
+    TileEntity owner(int slot) {
+        return owners[slot];
+    }
+
+    int[] cells() {
+        return cells;
+    }
+
+    /** Empties every live slot (load path; callers wake/relink afterwards). */
+    void clearAll() {
+        Arrays.fill(cells, 0, highWater * CELLS, TileEntity.EMPTY);
+        for (int slot = 0; slot < highWater; slot++) {
+            if (owners[slot] != null) owners[slot].clearOccupiedMask();
+        }
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots <= owners.length) return;
+        int n = owners.length;
+        while (n < slots) n *= 2;
+
+        cells = Arrays.copyOf(cells, n * CELLS);
+        owners = Arrays.copyOf(owners, n);
+
+        for (int slot = 0; slot < highWater; slot++) {
+            TileEntity te = owners[slot];
+            if (te != null) te.bindOccupancy(cells, slot * CELLS);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.gudu0.AwareMemory;
+
+import java.util.HashMap;
+
+/**
+ * Catches a loaded world up with the time its save spent on disk, without ticking through all of it.
+ * <p>
+ * The world is simulated normally until it settles into a cycle: a {@link TileWorld#steadyStateHash}
+ * seen p ticks earlier that then repeats tick for tick for p more ticks. From there on every p ticks sell
+ * and process the same items, so the remaining whole periods are credited in one go (money, and
+ * OrderManager.onItemSold/onItemProcessed with the totals) and the clock jumps ahead; only the leftover
+ * (&lt; p ticks) is simulated.
+ * <p>
+ * A layout that doesn't settle within {@link #MAX_SEARCH_TICKS} is credited at the rate it had over the
+ * second half of the search instead; the world itself is then left as it was at the end of the search.
+ * <p>
+ * At most {@link #MAX_CATCH_UP_TICKS} are caught up; a longer absence counts as that long.
+ */
+public final class OfflineProgress {
+    private OfflineProgress() {}
+
+    // Ten minutes of game time. The stock machine timers line up every 12600 ticks (LCM of 60, 75, 90,
+    // 105 and 120), so even a factory using all of them shows its cycle twice after some warm-up.
+    public static final int MAX_SEARCH_TICKS = 60 * 60 * 10;
+
+    // A week of game time. The clock is an int tick count (about 414 days at 60 ticks per second), so
+    // crediting unbounded absences would eventually wrap it.
+    public static final long MAX_CATCH_UP_TICKS = 60L * 60 * 60 * 24 * 7;
+
+    public static final class Result {
+        public long ticks;              // everything caught up (capped, see MAX_CATCH_UP_TICKS)
+        public long simulatedTicks;     // ... of which actually stepped
+        public int period;              // steady-state period in ticks, 0 if none was found
+        public long moneyEarned;        // cents
+    }
+
+    public static Result catchUp(TileWorld world, long ticks) {
+        Result r = new Result();
+        // Only what the clock really moves on is credited.
+        long cap = Math.min(MAX_CATCH_UP_TICKS, Integer.MAX_VALUE - (long) world.getTick());
+        r.ticks = Math.min(Math.max(0L, ticks), cap);
+        long moneyBefore = world.getMoney();
+
+        int search = (int) Math.min(r.ticks, MAX_SEARCH_TICKS);
+        long[] sig = new long[search + 1];
+        HashMap<Long, Integer> lastSeen = new HashMap<>();
+        sig[0] = world.steadyStateHash();
+        lastSeen.put(sig[0], 0);
+
+        TickTally tally = new TickTally();
+        TickTally periodStart = null;   // tally at the start of the period being confirmed
+        TickTally halfway = null;       // tally at search / 2, for the no-cycle fallback
+        int period = 0, confirmFrom = 0;
+        int t = 0;
+
+        world.setTally(tally);
+        try {
+            while (t < search) {
+                world.simulateTicks(1, Long.MAX_VALUE);
+                t++;
+                long h = world.steadyStateHash();
+                sig[t] = h;
+
+                if (period > 0 && h != sig[t - period]) period = 0; // not a cycle after all
+                if (period > 0 && t - confirmFrom == period) break;  // one full period repeated
+
+                if (period == 0) {
+                    Integer prev = lastSeen.get(h);
+                    if (prev != null) {
+                        period = t - prev;
+                        confirmFrom = t;
+                        periodStart = tally.copy();
+                    }
+                }
+                lastSeen.put(h, t);
+                if (t == search / 2) halfway = tally.copy();
+            }
+        } finally {
+            world.setTally(null);
+        }
+        r.simulatedTicks = t;
+
+        long remaining = r.ticks - t;
+        if (remaining > 0) {
+            if (period > 0 && t - confirmFrom == period) {
+                // Whole periods in one go, then the leftover for real.
+                long periods = remaining / period;
+                credit(world, periodStart, tally, periods);
+                world.skipTicks((int) (periods * period));
+                int rest = (int) (remaining - periods * period);
+                while (rest > 0) rest -= world.simulateTicks(rest, Long.MAX_VALUE);
+                r.simulatedTicks += remaining - periods * period;
+                r.period = period;
+            } else if (halfway != null) {
+                // No cycle: scale the second half of the search up to the time left.
+                credit(world, halfway, tally, (double) remaining / (t - search / 2));
+                world.skipTicks((int) remaining);
+            }
+        }
+
+        r.moneyEarned = world.getMoney() - moneyBefore;
+        return r;
+    }
+
+    // Credit (to - from) * factor: money, then orders with the totals.
+    private static void credit(TileWorld world, TickTally from, TickTally to, double factor) {
+        world.addMoney(Math.round((to.soldValue() - from.soldValue()) * factor));
+
+        OrderManager orders = world.getOrders();
+        for (ItemType type : ItemType.values()) {
+            int sold = scaled(to.soldCount(type) - from.soldCount(type), factor);
+            if (sold > 0) orders.onItemSold(type, sold, world.getMoney(), world.getTick());
+        }
+        for (int tileId = 0; tileId < to.processedTileLimit(); tileId++) {
+            for (ItemType type : ItemType.values()) {
+                int made = scaled(to.processedCount(tileId, type) - from.processedCount(tileId, type), factor);
+                if (made > 0) orders.onItemProcessed(tileId, type, made, world.getMoney());
+            }
+        }
+    }
+
+    private static int scaled(long count, double factor) {
+        return (int) Math.min(Math.round(count * factor), Integer.MAX_VALUE);
+    }
+}
@@ -126,19 +126,19 @@ public final class Order {
 
     // ---------- UI helpers ----------
 
-    /** 0..1 progress for a bar, given currentMoney. */
-    public float progress01(float currentMoney) {
+    /** 0..1 progress for a bar, given currentMoney (in cents, see Money). */
+    public float progress01(long currentMoney) {
         if (kind == Kind.REACH_MONEY) {
             if (targetMoney <= 0) return 1f;
-            return clamp01(currentMoney / (float) targetMoney);
+            return clamp01(currentMoney / (float) Money.cents(targetMoney));
         }
         if (targetCount <= 0) return 1f;
         return clamp01(currentCount / (float) targetCount);
     }
 
-    public String progressText(float currentMoney) {
+    public String progressText(long currentMoney) {
         if (kind == Kind.REACH_MONEY) {
-            return ((int) currentMoney) + " / " + targetMoney;
+            return Money.wholeDollars(currentMoney) + " / " + targetMoney;
         }
         return currentCount + " / " + targetCount;
     }
@@ -92,7 +92,7 @@ public final class OrderGenerator {
      * Generate one new order.
      * Pass the current active order list so we can avoid duplicates.
      */
-    public Order generateNext(long currentTick, float currentMoney, List<Order> existingActive) {
+    public Order generateNext(long currentTick, long currentMoney, List<Order> existingActive) {
         int tier = completedCount / 4; // every 4 claims, difficulty steps up
 
         // Try a few times to avoid duplicates like "Sell 10 items" appearing twice.
@@ -110,7 +110,7 @@ public final class OrderGenerator {
 
     // ---------------- Internals ----------------
 
-    private Order generateOne(int tier, float currentMoney) {
+    private Order generateOne(int tier, long currentMoney) {
         int nextAutoIDForFormat = nextAutoId++;
         String id = "auto_" + pad4(nextAutoIDForFormat);
 
@@ -201,12 +201,12 @@ public final class OrderGenerator {
         );
     }
 
-    private Order makeMoneyOrder(String id, int tier, float currentMoney) {
+    private Order makeMoneyOrder(String id, int tier, long currentMoney) {
         // "delta" increases with tier + has randomness so it doesn't feel repetitive.
         int baseDelta = 250 + tier * 350;
         int delta = baseDelta + rng.nextInt(250);
 
-        int targetMoney = (int) currentMoney + delta;
+        int targetMoney = (int) Money.wholeDollars(currentMoney) + delta;
         int reward = 140 + tier * 90;
 
         return Order.reachMoney(
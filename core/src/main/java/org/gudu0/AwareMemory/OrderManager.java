@@ -59,7 +59,7 @@ public final class OrderManager {
 
         // Fill initial active orders.
         refillActiveOrders(0);
-        generateOrdersIfNeeded(0, 0f);
+        generateOrdersIfNeeded(0, 0L);
     }
 
     /** Makes sure activeOrders has up to desiredActiveCount items. */
@@ -75,9 +75,11 @@ public final class OrderManager {
     // Events (these are what your game calls)
     // -------------------------
 
-    public void onItemSold(ItemType itemType, int amount, float currentMoney, @SuppressWarnings("unused") long currentTick) {
+    public void onItemSold(ItemType itemType, int amount, long currentMoney, @SuppressWarnings("unused") long currentTick) {
         int typeId = itemType.ordinal();
-        for (Order o : activeOrders) {
+        // Sale/process/money events fire from step(): indexed loops keep the tick allocation-free.
+        for (int i = 0; i < activeOrders.size(); i++) {
+            Order o = activeOrders.get(i);
             if (o.claimed) continue;
             if (o.kind != Order.Kind.SELL_ITEMS) continue;
 
@@ -92,10 +94,11 @@ public final class OrderManager {
         updateMoneyMilestones(currentMoney);
     }
 
-    public void onItemProcessed(int machineTileId, ItemType outputType, int amount, float currentMoney) {
+    public void onItemProcessed(int machineTileId, ItemType outputType, int amount, long currentMoney) {
         int outputId = outputType.ordinal();
 
-        for (Order o : activeOrders) {
+        for (int i = 0; i < activeOrders.size(); i++) {
+            Order o = activeOrders.get(i);
             if (o.claimed) continue;
             if (o.kind != Order.Kind.PROCESS_IN_MACHINE) continue;
 
@@ -112,7 +115,7 @@ public final class OrderManager {
         updateMoneyMilestones(currentMoney);
     }
 
-    public void onTilePlaced(int tileId, float currentMoney, @SuppressWarnings("unused") long currentTick) {
+    public void onTilePlaced(int tileId, long currentMoney, @SuppressWarnings("unused") long currentTick) {
         for (Order o : activeOrders) {
             if (o.claimed) continue;
             if (o.kind != Order.Kind.PLACE_TILES) continue;
@@ -127,16 +130,18 @@ public final class OrderManager {
         updateMoneyMilestones(currentMoney);
     }
 
-    public void onMoneyChanged(float newMoney) {
+    public void onMoneyChanged(long newMoney) {
         updateMoneyMilestones(newMoney);
     }
 
-    private void updateMoneyMilestones(float money) {
-        for (Order o : activeOrders) {
+    // money in cents; order targets are whole dollars.
+    private void updateMoneyMilestones(long money) {
+        for (int i = 0; i < activeOrders.size(); i++) {
+            Order o = activeOrders.get(i);
             if (o.claimed) continue;
             if (o.kind != Order.Kind.REACH_MONEY) continue;
 
-            if (money >= o.targetMoney) o.completed = true;
+            if (money >= Money.cents(o.targetMoney)) o.completed = true;
         }
     }
 
@@ -150,7 +155,7 @@ public final class OrderManager {
      * <p>
      * UI should call this when player clicks "Claim".
      */
-    public int tryClaimActiveIndex(int activeIndex, long currentTick, float currentMoney) {
+    public int tryClaimActiveIndex(int activeIndex, long currentTick, long currentMoney) {
         if (activeIndex < 0 || activeIndex >= activeOrders.size()) return 0;
 
         Order o = activeOrders.get(activeIndex);
@@ -188,7 +193,7 @@ public final class OrderManager {
         refillActiveOrders(currentTick);
     }
 
-    private void generateOrdersIfNeeded(long currentTick, float currentMoney) {
+    private void generateOrdersIfNeeded(long currentTick, long currentMoney) {
         if (!autoGenerate) return;
 
         while (activeOrders.size() < maxActiveOrders) {
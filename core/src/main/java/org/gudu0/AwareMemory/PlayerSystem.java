@@ -67,10 +67,10 @@ public class PlayerSystem {
         for (int cx = minX; cx <= maxX; cx++) {
             for (int cy = minY; cy <= maxY; cy++) {
                 if (cx < 0 || cy < 0 || cx >= world.wCells || cy >= world.hCells) continue;
-                int id = world.grid[cx][cy];
+                int id = world.getTile(cx, cy);
                 if (id != WorldGrid.TILE_CONVEYOR && id != WorldGrid.TILE_SMELTER) continue;
 
-                int rot = world.rot[cx][cy];
+                int rot = world.getRot(cx, cy);
 
                 // 0 right, 1 down, 2 left, 3 up
                 if (rot == 0) pushX += 1f;
@@ -108,7 +108,7 @@ public class PlayerSystem {
         for (int cx = minX; cx <= maxX; cx++) {
             for (int cy = minY; cy <= maxY; cy++) {
                 if (cx < 0 || cy < 0 || cx >= world.wCells || cy >= world.hCells) continue;
-                int id = world.grid[cx][cy];
+                int id = world.getTile(cx, cy);
                 if (id != WorldGrid.TILE_CONVEYOR && id != WorldGrid.TILE_SMELTER) continue;
 
                 // Weight by overlap area between feet box and the tile
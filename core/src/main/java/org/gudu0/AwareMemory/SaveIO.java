@@ -7,6 +7,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Base64Coder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Binary (packed) save/load that works on Desktop + WebGL.
@@ -15,9 +16,9 @@ import java.util.ArrayList;
  * - WebGL: Preferences "saves"
  * - Desktop: local file (Gdx.files.local)
  * <p>
- * Format v1 (magic + version):
+ * Format v4 (magic + version):
  *   u32 MAGIC = 'FGS1'
- *   u8  VERSION = 1
+ *   u8  VERSION = 4
  *   varint w, varint h
  *   RLE-packed grid:
  *     packed = (tileId << 2) | rot (rot 0..3)
@@ -28,33 +29,42 @@ import java.util.ArrayList;
  *   varint tileSaveCount
  *     for each:
  *       varint cx, varint cy
- *       float f0, float f1
+ *       svarint t0                    (ticks)
  *       svarint i0, svarint i1, svarint i2
  *       u8 b0 (0/1)
  *   varint itemCount
  *     for each:
  *       varint id
  *       u8 typeId
- *       float value
+ *       varint value                  (cents)
  *       varint cx, varint cy
  *       u8 u, u8 v
+ *   u32 savedAtLo, u32 savedAtHi   (wall-clock millis; v3+, 0 = unknown)
+ * <p>
+ * v2/v3 stored the timer as two floats (seconds, unused) and the item value as float dollars; both are
+ * rounded to ticks / cents on load.
  */
 public final class SaveIO {
     private SaveIO() {}
 
     private static final int MAGIC = 0x46475331; // 'F' 'G' 'S' '1'
-    private static final int VERSION = 2;
+    private static final int VERSION = 4;
 
     public static final class LoadedData {
         public int w, h;
 
-        // These are already the final arrays you want to stash into WorldGrid
-        public int[] tiles; // length w*h
-        public int[] rots;  // length w*h
+        // The grid as it was stored: runs of identical packed cells ((tileId << 2) | rot) in raster order.
+        // Kept as runs so a big, mostly empty map never needs a w*h array.
+        public int runCount;
+        public int[] runLength;
+        public int[] runPacked;
 
         public WorldGrid.TileSave[] tileSaves;
         public WorldGrid.ItemSave[] items;
         public int nextItemId;
+
+        // Wall-clock time of the save (System.currentTimeMillis), 0 if the save predates it.
+        public long savedAtMillis;
     }
 
     // ---------------- Public API ----------------
@@ -116,9 +126,10 @@ public final class SaveIO {
 
     // ---------------- Encoding ----------------
 
-    private static byte[] encode(WorldGrid world, int nextItemId,
-                                 WorldGrid.TileSave[] tileSaves,
-                                 WorldGrid.ItemSave[] items) {
+    // Package-private for the benchmarks.
+    static byte[] encode(WorldGrid world, int nextItemId,
+                         WorldGrid.TileSave[] tileSaves,
+                         WorldGrid.ItemSave[] items) {
         Writer w = new Writer(32_768);
 
         w.writeInt(MAGIC);
@@ -127,31 +138,51 @@ public final class SaveIO {
         w.writeVarInt(world.wCells);
         w.writeVarInt(world.hCells);
 
-        // RLE of packed cells, scanning same order you already use (y outer, x inner)
+        // RLE of packed cells, scanning same order you already use (y outer, x inner).
+        // Only live chunks are visited; the gaps between them are empty cells (packed 0) by definition.
         final int W = world.wCells;
-        final int H = world.hCells;
-        final int total = W * H;
+        final int total = W * world.hCells;
 
-        int lastPacked = -1;
+        int lastPacked = 0;
         int runLen = 0;
-
-        for (int y = 0; y < H; y++) {
-            for (int x = 0; x < W; x++) {
-                int tile = world.grid[x][y];
-                int rot  = world.rot[x][y] & 3;
-                int packed = (tile << 2) | rot;
-
-                if (packed == lastPacked && runLen < Integer.MAX_VALUE) {
-                    runLen++;
-                } else {
-                    if (runLen > 0) {
-                        w.writeVarInt(runLen);
-                        w.writeVarInt(lastPacked);
-                    }
-                    lastPacked = packed;
-                    runLen = 1;
+        int next = 0; // raster index of the first cell not yet counted
+
+        for (ChunkSet.Walk c = world.liveCells(); c.next(); ) {
+            int i = c.x + c.y * W;
+            int tile = world.getTile(c.x, c.y);
+            int packed = (tile << 2) | (world.getRot(c.x, c.y) & 3);
+
+            if (i > next) {
+                // Skipped empty cells.
+                if (lastPacked != 0 && runLen > 0) {
+                    w.writeVarInt(runLen);
+                    w.writeVarInt(lastPacked);
+                    runLen = 0;
                 }
+                lastPacked = 0;
+                runLen += i - next;
+            }
+            next = i + 1;
+
+            if (packed == lastPacked) {
+                runLen++;
+            } else {
+                if (runLen > 0) {
+                    w.writeVarInt(runLen);
+                    w.writeVarInt(lastPacked);
+                }
+                lastPacked = packed;
+                runLen = 1;
+            }
+        }
+        if (next < total) {
+            if (lastPacked != 0 && runLen > 0) {
+                w.writeVarInt(runLen);
+                w.writeVarInt(lastPacked);
+                runLen = 0;
             }
+            lastPacked = 0;
+            runLen += total - next;
         }
         // flush last run
         if (runLen > 0) {
@@ -169,8 +200,7 @@ public final class SaveIO {
             w.writeVarInt(ts.cx);
             w.writeVarInt(ts.cy);
 
-            w.writeFloat(ts.f0);
-            w.writeFloat(ts.f1);
+            w.writeSVarInt(ts.t0);
 
             w.writeSVarInt(ts.i0);
             w.writeSVarInt(ts.i1);
@@ -185,7 +215,7 @@ public final class SaveIO {
         for (WorldGrid.ItemSave it : items) {
             w.writeVarInt(it.id);
             w.writeByte(it.typeId & 0xFF);
-            w.writeFloat(it.value);
+            w.writeVarInt(it.value);
 
             w.writeVarInt(it.cx);
             w.writeVarInt(it.cy);
@@ -193,43 +223,47 @@ public final class SaveIO {
             w.writeByte(it.v & 0xFF);
         }
 
+        long savedAt = System.currentTimeMillis();
+        w.writeInt((int) savedAt);
+        w.writeInt((int) (savedAt >>> 32));
+
         return w.toByteArray();
     }
 
     // ---------------- Decoding ----------------
 
-    private static LoadedData decode(byte[] bytes) {
+    static LoadedData decode(byte[] bytes) {
         Reader r = new Reader(bytes);
 
         int magic = r.readInt();
         int ver = r.readUByte();
 
         if (magic != MAGIC) throw new RuntimeException("Bad save magic");
-        if (ver != VERSION) throw new RuntimeException("Unsupported save version: " + ver);
+        if (ver < 2 || ver > VERSION) throw new RuntimeException("Unsupported save version: " + ver);
 
         LoadedData out = new LoadedData();
         out.w = r.readVarInt();
         out.h = r.readVarInt();
 
-        int total = out.w * out.h;
-        out.tiles = new int[total];
-        out.rots  = new int[total];
+        long total = (long) out.w * out.h;
+        out.runLength = new int[64];
+        out.runPacked = new int[64];
 
         // Decode RLE packed cells
-        int i = 0;
+        long i = 0;
         while (i < total) {
             int runLen = r.readVarInt();
             int packed = r.readVarInt();
+            if (runLen <= 0 || i + runLen > total) throw new RuntimeException("RLE overflow");
 
-            int tile = packed >>> 2;
-            int rot  = packed & 3;
-
-            for (int k = 0; k < runLen; k++) {
-                if (i >= total) throw new RuntimeException("RLE overflow");
-                out.tiles[i] = tile;
-                out.rots[i]  = rot;
-                i++;
+            if (out.runCount == out.runLength.length) {
+                out.runLength = Arrays.copyOf(out.runLength, out.runCount * 2);
+                out.runPacked = Arrays.copyOf(out.runPacked, out.runCount * 2);
             }
+            out.runLength[out.runCount] = runLen;
+            out.runPacked[out.runCount] = packed;
+            out.runCount++;
+            i += runLen;
         }
 
         out.nextItemId = r.readVarInt();
@@ -242,8 +276,12 @@ public final class SaveIO {
             ts.cx = r.readVarInt();
             ts.cy = r.readVarInt();
 
-            ts.f0 = r.readFloat();
-            ts.f1 = r.readFloat();
+            if (ver >= 4) {
+                ts.t0 = r.readSVarInt();
+            } else {
+                ts.t0 = Math.round(r.readFloat() * TileWorld.TICKS_PER_SECOND);
+                r.readFloat(); // f1, never used
+            }
 
             ts.i0 = r.readSVarInt();
             ts.i1 = r.readSVarInt();
@@ -260,7 +298,7 @@ public final class SaveIO {
             WorldGrid.ItemSave it = new WorldGrid.ItemSave();
             it.id = r.readVarInt();
             it.typeId = (byte) r.readUByte();
-            it.value = r.readFloat();
+            it.value = (ver >= 4) ? r.readVarInt() : Math.round(r.readFloat() * Money.CENTS_PER_DOLLAR);
 
             it.cx = r.readVarInt();
             it.cy = r.readVarInt();
@@ -269,6 +307,13 @@ public final class SaveIO {
             out.items[t] = it;
         }
 
+        // v2 is the same minus the timestamp.
+        if (ver >= 3) {
+            long lo = r.readInt() & 0xFFFFFFFFL;
+            long hi = r.readInt() & 0xFFFFFFFFL;
+            out.savedAtMillis = lo | (hi << 32);
+        }
+
         return out;
     }
 
@@ -278,7 +323,8 @@ public final class SaveIO {
         return Gdx.app != null && Gdx.app.getType() == ApplicationType.WebGL;
     }
 
-    private static final class Writer {
+    // Package-private: Blueprint and EditLog use the same encoding.
+    static final class Writer {
         private byte[] buf;
         private int pos;
 
@@ -316,10 +362,6 @@ public final class SaveIO {
             buf[pos++] = (byte) (v >>> 24);
         }
 
-        void writeFloat(float f) {
-            writeInt(Float.floatToIntBits(f));
-        }
-
         void writeVarInt(int v) {
             // unsigned LEB128 (expects v >= 0)
             while ((v & ~0x7F) != 0) {
@@ -334,9 +376,18 @@ public final class SaveIO {
             int zz = (v << 1) ^ (v >> 31);
             writeVarInt(zz);
         }
+
+        void writeSVarLong(long v) {
+            long zz = (v << 1) ^ (v >> 63);
+            while ((zz & ~0x7FL) != 0) {
+                writeByte((int) ((zz & 0x7F) | 0x80));
+                zz >>>= 7;
+            }
+            writeByte((int) zz);
+        }
     }
 
-    private static final class Reader {
+    static final class Reader {
         private final byte[] buf;
         private int pos;
 
@@ -379,5 +430,18 @@ public final class SaveIO {
             int zz = readVarInt();
             return (zz >>> 1) ^ -(zz & 1);
         }
+
+        long readSVarLong() {
+            long zz = 0;
+            int shift = 0;
+            while (true) {
+                int b = readUByte();
+                zz |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+                shift += 7;
+                if (shift > 63) throw new RuntimeException("VarLong too long");
+            }
+            return (zz >>> 1) ^ -(zz & 1);
+        }
     }
 }
@@ -1,16 +1,23 @@
 package org.gudu0.AwareMemory;
 
 import org.gudu0.AwareMemory.entities.ConveyorEntity;
-import org.gudu0.AwareMemory.entities.SellpadEntity;
 import org.gudu0.AwareMemory.entities.SplitterEntity;
 import org.gudu0.AwareMemory.entities.MergerEntity;
 
+import java.util.Arrays;
 
 /**
  * SmartPlacement is EDIT-TIME logic only:
  * - Called after place/delete (not during simulation tick)
  * - Never changes rot (player-owned)
  * - Phase 1: only updates Conveyor shape + Splitter variant
+ * - Each refresh snapshots its changes in raster order, then applies them
+ * <p>
+ * Edits only refresh around what changed ({@link #refreshDirty}). A cell's decision depends only on itself
+ * and the ports of its 4 neighbours, and a neighbour's ports only on its own state; so once the world is
+ * stable, the cells next to a change are the only ones that can decide differently. Each phase therefore
+ * visits the changed cells and their neighbours (in raster order, so changes apply in the same order), and
+ * the region grows only where something actually changes. The result is the same as {@link #refreshAll}.
  */
 @SuppressWarnings({"PatternVariableCanBeUsed", "EnhancedSwitchMigration"})
 public final class SmartPlacement {
@@ -20,20 +27,185 @@ public final class SmartPlacement {
     // Keep iterations small; this converges fast.
     private static final int MAX_PASSES = 4;
 
+    private static final MergerEntity.Variant[] MERGER_VARIANTS = MergerEntity.Variant.values();
+    private static final SplitterEntity.Variant[] SPLITTER_VARIANTS = SplitterEntity.Variant.values();
+    private static final ConveyorEntity.Shape[] SHAPES = ConveyorEntity.Shape.values();
+
+    // Tiles each phase looks at; a full refresh visits just those, from TileWorld's per-type lists.
+    private static final int[] AUTO_TILES = {WorldGrid.TILE_CONVEYOR, WorldGrid.TILE_SPLITTER, WorldGrid.TILE_MERGER};
+    private static final int[] MERGERS = {WorldGrid.TILE_MERGER};
+    private static final int[] SPLITTERS = {WorldGrid.TILE_SPLITTER};
+    private static final int[] CONVEYORS = {WorldGrid.TILE_CONVEYOR};
+
+    // Every placed tile. Loading, generated maps, anything that wrote the grid without going through
+    // rebuildEntityAt (rebuild the entities first: the phases find their tiles through them).
     public static void refreshAll(TileWorld world) {
+        run(world, world.placementWork, true);
+    }
+
+    // Around the cells edited since the last refresh (TileWorld marks them in rebuildEntityAt/clearEntityAt).
+    // Assumes the world was stable before those edits, which every refresh leaves it.
+    static void refreshDirty(TileWorld world) {
+        Worklist w = world.placementWork;
+        if (w.all) {
+            refreshAll(world);
+            return;
+        }
+        if (w.pendingCount == 0) return;
+        run(world, w, false);
+    }
+
+    private static void run(TileWorld world, Worklist w, boolean everything) {
         WorldGrid grid = world.worldGrid();
 
+        // The edits so far are where changes start.
+        w.changedCount = 0;
+        w.takePending();
+
         // Repeat because conveyors depend on splitter variants and vice versa.
+        boolean changed = false;
+        int passStart = 0;
         for (int pass = 0; pass < MAX_PASSES; pass++) {
-            boolean changed = false;
+            changed = false;
+            passStart = w.changedCount;
+
+            w.collect(world, everything, AUTO_TILES);
+            changed |= refreshAutoTiles(world, grid, w);       // NEW: id upgrades/downgrades
+            w.collect(world, everything, MERGERS);
+            changed |= refreshMergerVariants(world, grid, w);
+            w.collect(world, everything, SPLITTERS);
+            changed |= refreshSplitterVariants(world, grid, w);
+            w.collect(world, everything, CONVEYORS);
+            changed |= refreshConveyorShapes(world, grid, w);
+
+
+            if (!changed) break; // stable
+        }
+        // Our own rebuilds marked cells too; they are covered.
+        w.pendingCount = 0;
+        w.all = false;
+
+        // Out of passes while still changing (some layouts flip back and forth forever): only the cells next
+        // to this last pass's changes would decide differently now, so the next refresh starts from them.
+        if (changed) {
+            for (int i = passStart; i < w.changedCount; i++) {
+                int cell = w.changed[i];
+                w.mark(cell % w.wCells, cell / w.wCells);
+            }
+        }
+    }
+
+    /**
+     * Per-world state for the refreshes: the cells edited since the last one, and reused scratch
+     * (cells as y * wCells + x).
+     */
+    static final class Worklist {
+        // Past this many edits a full refresh is cheaper than the sort.
+        private static final int MAX_PENDING = 4096;
+
+        private final int wCells;
+
+        // Edited since the last refresh; `all` once there were too many (or an unknown number).
+        private int[] pending = new int[64];
+        private int pendingCount = 0;
+        private boolean all = false;
+
+        // Changed during this refresh (the edits, then whatever the phases changed).
+        private int[] changed = new int[64];
+        private int changedCount = 0;
+
+        // Cells the current phase visits, sorted.
+        private int[] cells = new int[256];
+        private int cellCount = 0;
 
-            changed |= refreshAllAutoTiles(world, grid);       // NEW: id upgrades/downgrades
-            changed |= refreshAllMergerVariants(world, grid);
-            changed |= refreshAllSplitterVariants(world, grid);
-            changed |= refreshAllConveyorShapes(world, grid);
+        // A phase's decisions before they are applied: cell and new id/variant/shape.
+        private int[] decidedCell = new int[64];
+        private int[] decidedValue = new int[64];
+        private int decidedCount = 0;
+
+        Worklist(int wCells) {
+            this.wCells = wCells;
+        }
+
+        void mark(int cx, int cy) {
+            if (all) return;
+            if (pendingCount == MAX_PENDING) {
+                all = true;
+                return;
+            }
+            if (pendingCount == pending.length) pending = Arrays.copyOf(pending, pendingCount * 2);
+            pending[pendingCount++] = cy * wCells + cx;
+        }
+
+        // State changed in ways no one tracked (e.g. save data set variants): refresh everything next time.
+        void markAll() {
+            all = true;
+        }
+
+        private void takePending() {
+            for (int i = 0; i < pendingCount; i++) touched(pending[i]);
+            pendingCount = 0;
+        }
+
+        private void touched(int cell) {
+            if (changedCount == changed.length) changed = Arrays.copyOf(changed, changedCount * 2);
+            changed[changedCount++] = cell;
+        }
+
+        // The cells the next phase visits: every entity of its tile types, or only those around the changes.
+        private void collect(TileWorld world, boolean everything, int[] tileIds) {
+            if (!everything) {
+                collectAround(world.worldGrid());
+                return;
+            }
+            cellCount = 0;
+            for (int tileId : tileIds) {
+                for (int i = 0; i < world.entityCount(tileId); i++) {
+                    TileEntity te = world.entityOfType(tileId, i);
+                    addCell(te.cellY * wCells + te.cellX);
+                }
+            }
+            // Raster order, like the incremental refresh: decisions apply in the same order either way.
+            Arrays.sort(cells, 0, cellCount);
+        }
+
+        // The changed cells and their 4 neighbours.
+        private void collectAround(WorldGrid grid) {
+            cellCount = 0;
+            for (int i = 0; i < changedCount; i++) {
+                int cell = changed[i];
+                int x = cell % wCells, y = cell / wCells;
+                addCell(cell);
+                if (x > 0) addCell(cell - 1);
+                if (x + 1 < wCells) addCell(cell + 1);
+                if (y > 0) addCell(cell - wCells);
+                if (y + 1 < grid.hCells) addCell(cell + wCells);
+            }
+            sortCells();
+        }
+
+        private void addCell(int cell) {
+            if (cellCount == cells.length) cells = Arrays.copyOf(cells, cellCount * 2);
+            cells[cellCount++] = cell;
+        }
 
+        private void sortCells() {
+            Arrays.sort(cells, 0, cellCount);
+            int n = 0;
+            for (int i = 0; i < cellCount; i++) {
+                if (n == 0 || cells[i] != cells[n - 1]) cells[n++] = cells[i];
+            }
+            cellCount = n;
+        }
 
-            if (!changed) return; // stable
+        private void decide(int cell, int value) {
+            if (decidedCount == decidedCell.length) {
+                decidedCell = Arrays.copyOf(decidedCell, decidedCount * 2);
+                decidedValue = Arrays.copyOf(decidedValue, decidedCount * 2);
+            }
+            decidedCell[decidedCount] = cell;
+            decidedValue[decidedCount] = value;
+            decidedCount++;
         }
     }
 
@@ -41,71 +213,62 @@ public final class SmartPlacement {
     // Merger variant refresh
     // -------------------------
 
-    private static boolean refreshAllMergerVariants(TileWorld world, WorldGrid grid) {
-        boolean changedAny = false;
-
-        MergerEntity.Variant[][] desired = new MergerEntity.Variant[grid.wCells][grid.hCells];
+    private static boolean refreshMergerVariants(TileWorld world, WorldGrid grid, Worklist w) {
+        w.decidedCount = 0;
 
         // Snapshot pass: compute desired variants without mutating anything yet.
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                if (!(world.getEntity(x, y) instanceof MergerEntity)) continue;
-                MergerEntity m = (MergerEntity) world.getEntity(x, y);
-
-                assert m != null;
-                Dir outDir = Dir.fromRot(m.rot);
-
-                // Merger output is forward; the 3 possible inputs are:
-                Dir inputBack  = outDir.opposite();
-                Dir inputLeft  = outDir.left();
-                Dir inputRight = outDir.right();
-
-                boolean fedBack  = neighborOutputsInto(world, grid, x, y, inputBack);
-                boolean fedLeft  = neighborOutputsInto(world, grid, x, y, inputLeft);
-                boolean fedRight = neighborOutputsInto(world, grid, x, y, inputRight);
-
-                MergerEntity.Variant cur = m.getVariant();
-                MergerEntity.Variant next = cur;
-
-                // Stability rule: if current variant is still validly fed, keep it.
-                if (!isMergerVariantFed(cur, fedBack, fedLeft, fedRight)) {
-                    // Otherwise choose a variant that matches what is fed.
-                    // Priority:
-                    // 1) If back is fed, prefer a variant that includes back (BL / BR)
-                    // 2) If back isn't fed but left+right are fed, use LR
-                    // 3) If fewer than 2 inputs are fed, keep current (don’t thrash)
-                    if (fedBack) {
-                        if (fedLeft) next = MergerEntity.Variant.BL;
-                        else if (fedRight) next = MergerEntity.Variant.BR;
-                        // else: only back fed => keep current
-                    } else {
-                        if (fedLeft && fedRight) next = MergerEntity.Variant.LR;
-                        // else: only one side fed => keep current
-                    }
+        for (int i = 0; i < w.cellCount; i++) {
+            int x = w.cells[i] % w.wCells, y = w.cells[i] / w.wCells;
+            if (!(world.getEntity(x, y) instanceof MergerEntity)) continue;
+            MergerEntity m = (MergerEntity) world.getEntity(x, y);
+
+            assert m != null;
+            Dir outDir = Dir.fromRot(m.rot);
+
+            // Merger output is forward; the 3 possible inputs are:
+            Dir inputBack  = outDir.opposite();
+            Dir inputLeft  = outDir.left();
+            Dir inputRight = outDir.right();
+
+            boolean fedBack  = neighborOutputsInto(world, grid, x, y, inputBack);
+            boolean fedLeft  = neighborOutputsInto(world, grid, x, y, inputLeft);
+            boolean fedRight = neighborOutputsInto(world, grid, x, y, inputRight);
+
+            MergerEntity.Variant cur = m.getVariant();
+            MergerEntity.Variant next = cur;
+
+            // Stability rule: if current variant is still validly fed, keep it.
+            if (!isMergerVariantFed(cur, fedBack, fedLeft, fedRight)) {
+                // Otherwise choose a variant that matches what is fed.
+                // Priority:
+                // 1) If back is fed, prefer a variant that includes back (BL / BR)
+                // 2) If back isn't fed but left+right are fed, use LR
+                // 3) If fewer than 2 inputs are fed, keep current (don’t thrash)
+                if (fedBack) {
+                    if (fedLeft) next = MergerEntity.Variant.BL;
+                    else if (fedRight) next = MergerEntity.Variant.BR;
+                    // else: only back fed => keep current
+                } else {
+                    if (fedLeft && fedRight) next = MergerEntity.Variant.LR;
+                    // else: only one side fed => keep current
                 }
-
-                desired[x][y] = next;
             }
+
+            if (next != cur) w.decide(w.cells[i], next.ordinal());
         }
 
         // Apply pass
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                if (!(world.getEntity(x, y) instanceof MergerEntity)) continue;
-                MergerEntity m = (MergerEntity) world.getEntity(x, y);
-
-                MergerEntity.Variant next = desired[x][y];
-                if (next == null) continue;
-
-                assert m != null;
-                if (m.getVariant() != next) {
-                    m.setVariant(next);
-                    changedAny = true;
-                }
-            }
+        for (int i = 0; i < w.decidedCount; i++) {
+            int cell = w.decidedCell[i];
+            MergerEntity m = (MergerEntity) world.getEntity(cell % w.wCells, cell / w.wCells);
+            world.thawAround(m.cellX, m.cellY);
+            m.setVariant(MERGER_VARIANTS[w.decidedValue[i]]);
+            world.portsChangedAt(m.cellX, m.cellY);
+            world.wakeAround(m.cellX, m.cellY);
+            w.touched(cell);
         }
 
-        return changedAny;
+        return w.decidedCount > 0;
     }
 
     private static boolean isMergerVariantFed(
@@ -134,122 +297,102 @@ public final class SmartPlacement {
     // Splitter variant refresh
     // -------------------------
 
-    private static boolean refreshAllSplitterVariants(TileWorld world, WorldGrid grid) {
-        boolean changedAny = false;
-
+    private static boolean refreshSplitterVariants(TileWorld world, WorldGrid grid, Worklist w) {
         // Compute desired variants (snapshot style) then apply.
-        SplitterEntity.Variant[][] desired = new SplitterEntity.Variant[grid.wCells][grid.hCells];
-
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                if (!(world.getEntity(x, y) instanceof SplitterEntity)) continue;
-                SplitterEntity s = (SplitterEntity) world.getEntity(x, y);
-
-                assert s != null;
-                Dir travel = Dir.fromRot(s.rot);
-
-                boolean canForward = canOutputTo(world, grid, x, y, travel);
-                boolean canLeft    = canOutputTo(world, grid, x, y, travel.left());
-                boolean canRight   = canOutputTo(world, grid, x, y, travel.right());
-
-                // Your stated rules (rot never changes):
-                // - if left+right valid => LR
-                // - else if forward+left valid => FL
-                // - else if forward+right valid => FR
-                // - else keep current (don’t thrash)
-                //noinspection UnnecessaryLocalVariable
-                SplitterEntity.Variant cur = s.getVariant();
-                SplitterEntity.Variant next = cur;
-
-                if (canLeft && canRight) next = SplitterEntity.Variant.LR;
-                else if (canForward && canLeft) next = SplitterEntity.Variant.FL;
-                else if (canForward && canRight) next = SplitterEntity.Variant.FR;
-
-                desired[x][y] = next;
-            }
+        w.decidedCount = 0;
+
+        for (int i = 0; i < w.cellCount; i++) {
+            int x = w.cells[i] % w.wCells, y = w.cells[i] / w.wCells;
+            if (!(world.getEntity(x, y) instanceof SplitterEntity)) continue;
+            SplitterEntity s = (SplitterEntity) world.getEntity(x, y);
+
+            assert s != null;
+            Dir travel = Dir.fromRot(s.rot);
+
+            boolean canForward = canOutputTo(world, grid, x, y, travel);
+            boolean canLeft    = canOutputTo(world, grid, x, y, travel.left());
+            boolean canRight   = canOutputTo(world, grid, x, y, travel.right());
+
+            // Your stated rules (rot never changes):
+            // - if left+right valid => LR
+            // - else if forward+left valid => FL
+            // - else if forward+right valid => FR
+            // - else keep current (don’t thrash)
+            //noinspection UnnecessaryLocalVariable
+            SplitterEntity.Variant cur = s.getVariant();
+            SplitterEntity.Variant next = cur;
+
+            if (canLeft && canRight) next = SplitterEntity.Variant.LR;
+            else if (canForward && canLeft) next = SplitterEntity.Variant.FL;
+            else if (canForward && canRight) next = SplitterEntity.Variant.FR;
+
+            if (next != cur) w.decide(w.cells[i], next.ordinal());
         }
 
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                if (!(world.getEntity(x, y) instanceof SplitterEntity)) continue;
-                SplitterEntity s = (SplitterEntity) world.getEntity(x, y);
-
-                SplitterEntity.Variant next = desired[x][y];
-                if (next == null) continue;
-
-                assert s != null;
-                if (s.getVariant() != next) {
-                    s.setVariant(next);
-                    changedAny = true;
-                }
-            }
+        for (int i = 0; i < w.decidedCount; i++) {
+            int cell = w.decidedCell[i];
+            SplitterEntity s = (SplitterEntity) world.getEntity(cell % w.wCells, cell / w.wCells);
+            world.thawAround(s.cellX, s.cellY);
+            s.setVariant(SPLITTER_VARIANTS[w.decidedValue[i]]);
+            world.portsChangedAt(s.cellX, s.cellY);
+            world.wakeAround(s.cellX, s.cellY);
+            w.touched(cell);
         }
 
-        return changedAny;
+        return w.decidedCount > 0;
     }
 
     // -------------------------
     // Conveyor shape refresh
     // -------------------------
 
-    private static boolean refreshAllConveyorShapes(TileWorld world, WorldGrid grid) {
-        boolean changedAny = false;
+    private static boolean refreshConveyorShapes(TileWorld world, WorldGrid grid, Worklist w) {
+        w.decidedCount = 0;
 
-        ConveyorEntity.Shape[][] desired = new ConveyorEntity.Shape[grid.wCells][grid.hCells];
+        for (int i = 0; i < w.cellCount; i++) {
+            int x = w.cells[i] % w.wCells, y = w.cells[i] / w.wCells;
+            if (!(world.getEntity(x, y) instanceof ConveyorEntity)) continue;
+            ConveyorEntity belt = (ConveyorEntity) world.getEntity(x,y);
 
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                if (!(world.getEntity(x, y) instanceof ConveyorEntity)) continue;
-                ConveyorEntity belt = (ConveyorEntity) world.getEntity(x,y);
+            assert belt != null;
+            Dir out = Dir.fromRot(belt.rot);
 
-                assert belt != null;
-                Dir out = Dir.fromRot(belt.rot);
+            // These are the only 3 possible input sides for a conveyor with fixed rot.
+            Dir inputStraight = out.opposite(); // from behind
+            Dir inputLeft     = out.left();     // from left side
+            Dir inputRight    = out.right();    // from right side
 
-                // These are the only 3 possible input sides for a conveyor with fixed rot.
-                Dir inputStraight = out.opposite(); // from behind
-                Dir inputLeft     = out.left();     // from left side
-                Dir inputRight    = out.right();    // from right side
+            boolean fedStraight = neighborOutputsInto(world, grid, x, y, inputStraight);
+            boolean fedLeft     = neighborOutputsInto(world, grid, x, y, inputLeft);
+            boolean fedRight    = neighborOutputsInto(world, grid, x, y, inputRight);
 
-                boolean fedStraight = neighborOutputsInto(world, grid, x, y, inputStraight);
-                boolean fedLeft     = neighborOutputsInto(world, grid, x, y, inputLeft);
-                boolean fedRight    = neighborOutputsInto(world, grid, x, y, inputRight);
+            ConveyorEntity.Shape cur = belt.getShape();
 
-                ConveyorEntity.Shape cur = belt.getShape();
+            // Stability: if current shape is still fed, keep it.
+            if (isShapeFed(cur, fedStraight, fedLeft, fedRight)) continue;
 
-                // Stability: if current shape is still fed, keep it.
-                if (isShapeFed(cur, fedStraight, fedLeft, fedRight)) {
-                    desired[x][y] = cur;
-                    continue;
-                }
-
-                // Otherwise choose a fed input. Priority is deterministic.
-                ConveyorEntity.Shape next;
-                if (fedStraight) next = ConveyorEntity.Shape.STRAIGHT;
-                else if (fedLeft) next = ConveyorEntity.Shape.TURN_LEFT;
-                else if (fedRight) next = ConveyorEntity.Shape.TURN_RIGHT;
-                else next = ConveyorEntity.Shape.STRAIGHT; // default when isolated
+            // Otherwise choose a fed input. Priority is deterministic.
+            ConveyorEntity.Shape next;
+            if (fedStraight) next = ConveyorEntity.Shape.STRAIGHT;
+            else if (fedLeft) next = ConveyorEntity.Shape.TURN_LEFT;
+            else if (fedRight) next = ConveyorEntity.Shape.TURN_RIGHT;
+            else next = ConveyorEntity.Shape.STRAIGHT; // default when isolated
 
-                desired[x][y] = next;
-            }
+            if (next != cur) w.decide(w.cells[i], next.ordinal());
         }
 
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                if (!(world.getEntity(x, y) instanceof ConveyorEntity)) continue;
-                ConveyorEntity belt = (ConveyorEntity) world.getEntity(x,y);
-
-                ConveyorEntity.Shape next = desired[x][y];
-                if (next == null) continue;
-
-                assert belt != null;
-                if (belt.getShape() != next) {
-                    belt.setShape(next);
-                    changedAny = true;
-                }
-            }
+        for (int i = 0; i < w.decidedCount; i++) {
+            int cell = w.decidedCell[i];
+            ConveyorEntity belt = (ConveyorEntity) world.getEntity(cell % w.wCells, cell / w.wCells);
+            world.thawAround(belt.cellX, belt.cellY);
+            belt.setShape(SHAPES[w.decidedValue[i]]);
+            world.relinkAround(belt.cellX, belt.cellY);
+            world.portsChangedAt(belt.cellX, belt.cellY);
+            world.wakeAround(belt.cellX, belt.cellY);
+            w.touched(cell);
         }
 
-        return changedAny;
+        return w.decidedCount > 0;
     }
 
     private static boolean isShapeFed(
@@ -283,21 +426,8 @@ public final class SmartPlacement {
      * Example: fromEdgeIntoThis = WEST means neighbor is at (x-1,y) and must output EAST.
      */
     private static boolean neighborOutputsInto(TileWorld world, WorldGrid grid, int x, int y, Dir fromEdgeIntoThis) {
-        int nx = x + fromEdgeIntoThis.dx;
-        int ny = y + fromEdgeIntoThis.dy;
-
-        if (!grid.inBoundsCell(nx, ny)) return false;
-
-        TileEntity neighbor = world.getEntity(nx, ny);
-        if (neighbor == null) return false;
-
-        // Direction from neighbor to this cell.
-        Dir outFromNeighbor = fromEdgeIntoThis.opposite();
-
-        // Sellpad should never be treated as an output source.
-        if (neighbor instanceof SellpadEntity) return false;
-
-        return neighbor.outputsTo(outFromNeighbor);
+        // Port graph owns the rule (sellpads never count as sources: they have no output ports).
+        return world.neighborOutputsInto(x, y, fromEdgeIntoThis);
     }
 
     /**
@@ -306,15 +436,7 @@ public final class SmartPlacement {
      * (Empty space is NOT considered a valid output for splitters/variants.)
      */
     private static boolean canOutputTo(TileWorld world, WorldGrid grid, int x, int y, Dir outDir) {
-        int nx = x + outDir.dx;
-        int ny = y + outDir.dy;
-
-        if (!grid.inBoundsCell(nx, ny)) return false;
-
-        TileEntity neighbor = world.getEntity(nx, ny);
-        if (neighbor == null) return false;
-
-        return neighbor.acceptsFrom(outDir.opposite());
+        return world.canOutputTo(x, y, outDir);
     }
 
 
@@ -342,77 +464,69 @@ public final class SmartPlacement {
     }
 
 
-    private static boolean refreshAllAutoTiles(TileWorld world, WorldGrid grid) {
-        boolean changedAny = false;
-
-        int[][] desiredId = new int[grid.wCells][grid.hCells];
+    private static boolean refreshAutoTiles(TileWorld world, WorldGrid grid, Worklist w) {
+        w.decidedCount = 0;
 
         // Snapshot compute
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                int curId = grid.grid[x][y];
-                if (curId != WorldGrid.TILE_CONVEYOR &&
-                    curId != WorldGrid.TILE_SPLITTER &&
-                    curId != WorldGrid.TILE_MERGER) {
-                    continue;
-                }
-
-                int rot = grid.rot[x][y];
-                Dir out = Dir.fromRot(rot);
+        for (int i = 0; i < w.cellCount; i++) {
+            int x = w.cells[i] % w.wCells, y = w.cells[i] / w.wCells;
+            int curId = grid.getTile(x, y);
+            if (curId != WorldGrid.TILE_CONVEYOR &&
+                curId != WorldGrid.TILE_SPLITTER &&
+                curId != WorldGrid.TILE_MERGER) {
+                continue;
+            }
 
-                // Potential INPUT edges for this cell (relative to out)
-                Dir back  = out.opposite();
-                Dir left  = out.left();
-                Dir right = out.right();
+            int rot = grid.getRot(x, y);
+            Dir out = Dir.fromRot(rot);
 
-                boolean fedBack  = neighborOutputsInto(world, grid, x, y, back);
-                boolean fedLeft  = neighborOutputsInto(world, grid, x, y, left);
-                boolean fedRight = neighborOutputsInto(world, grid, x, y, right);
+            // Potential INPUT edges for this cell (relative to out)
+            Dir back  = out.opposite();
+            Dir left  = out.left();
+            Dir right = out.right();
 
-                // Potential OUTPUT edges a splitter/merger could use
-                boolean canForward = canOutputTo(world, grid, x, y, out);
-                // For merger upgrading, forward doesn't need a placed neighbor.
-                // It only needs to be a valid direction in-bounds (player can extend later).
-                boolean forwardInBounds = grid.inBoundsCell(x + out.dx, y + out.dy);
+            boolean fedBack  = neighborOutputsInto(world, grid, x, y, back);
+            boolean fedLeft  = neighborOutputsInto(world, grid, x, y, left);
+            boolean fedRight = neighborOutputsInto(world, grid, x, y, right);
 
-                boolean canLeft    = canOutputTo(world, grid, x, y, out.left());
-                boolean canRight   = canOutputTo(world, grid, x, y, out.right());
+            // Potential OUTPUT edges a splitter/merger could use
+            boolean canForward = canOutputTo(world, grid, x, y, out);
+            // For merger upgrading, forward doesn't need a placed neighbor.
+            // It only needs to be a valid direction in-bounds (player can extend later).
+            boolean forwardInBounds = grid.inBoundsCell(x + out.dx, y + out.dy);
 
-                boolean mergerHasTwoInputs =
-                    (fedBack && fedLeft) || (fedBack && fedRight) || (fedLeft && fedRight);
+            boolean canLeft    = canOutputTo(world, grid, x, y, out.left());
+            boolean canRight   = canOutputTo(world, grid, x, y, out.right());
 
-                boolean splitterHasTwoOutputs =
-                    (canLeft && canRight) || (canForward && canLeft) || (canForward && canRight);
+            boolean mergerHasTwoInputs =
+                (fedBack && fedLeft) || (fedBack && fedRight) || (fedLeft && fedRight);
 
-                int nextId = WorldGrid.TILE_CONVEYOR;
+            boolean splitterHasTwoOutputs =
+                (canLeft && canRight) || (canForward && canLeft) || (canForward && canRight);
 
-                if (forwardInBounds && mergerHasTwoInputs) {
-                    nextId = WorldGrid.TILE_MERGER;
-                } else if (splitterHasTwoOutputs) {
-                    nextId = WorldGrid.TILE_SPLITTER;
-                }
+            int nextId = WorldGrid.TILE_CONVEYOR;
 
-                desiredId[x][y] = nextId;
+            if (forwardInBounds && mergerHasTwoInputs) {
+                nextId = WorldGrid.TILE_MERGER;
+            } else if (splitterHasTwoOutputs) {
+                nextId = WorldGrid.TILE_SPLITTER;
             }
+
+            if (nextId != curId) w.decide(w.cells[i], nextId);
         }
 
         // Apply
-        for (int y = 0; y < grid.hCells; y++) {
-            for (int x = 0; x < grid.wCells; x++) {
-                int nextId = desiredId[x][y];
-                if (nextId == 0) continue; // untouched cells
-                if (grid.grid[x][y] == nextId) continue;
-
-                grid.grid[x][y] = nextId;
-
-                // IMPORTANT: rebuild without calling SmartPlacement again
-                world.rebuildEntityAtFromSmartPlacement(x, y);
-
-                changedAny = true;
-            }
+        for (int i = 0; i < w.decidedCount; i++) {
+            int cell = w.decidedCell[i];
+            int x = cell % w.wCells, y = cell / w.wCells;
+            grid.setTile(x, y, w.decidedValue[i]);
+
+            // IMPORTANT: rebuild without calling SmartPlacement again
+            world.rebuildEntityAtFromSmartPlacement(x, y);
+            w.touched(cell);
         }
 
-        return changedAny;
+        return w.decidedCount > 0;
     }
 
 }
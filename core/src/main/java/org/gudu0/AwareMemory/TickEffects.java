@@ -0,0 +1,134 @@
+package org.gudu0.AwareMemory;
+
+import java.util.Arrays;
+
+/**
+ * World-wide side effects one block of 64 ranks (one active word) queued during a tick.
+ * <p>
+ * While stepping, a block only touches its own entities and the items on them. Anything shared
+ * (item ids, money, order events) is recorded here and applied by TileWorld after every block has
+ * stepped, in rank order. Islands start on a block boundary, so that is also island order. Serial and
+ * parallel ticks therefore do exactly the same work in exactly the same order. The buffers are reused
+ * every tick.
+ * <p>
+ * Two-phase ticks also keep the block's proposed handoffs, the handoffs routed to its entities, and
+ * the entities whose step changed something (they wake their neighbours once the tick is committed).
+ */
+final class TickEffects {
+    static final byte SELL = 0;       // a = item id
+    static final byte PROCESSED = 1;  // a = tile id, type, b = count
+    static final byte SPAWN = 2;      // target = entity, a = cell (u * N + v), type, value = item value
+    static final byte TIMER = 3;      // target = entity that went to sleep until its wakeTick
+
+    private byte[] kind = new byte[16];
+    private int[] a = new int[16];
+    private int[] b = new int[16];
+    private ItemType[] type = new ItemType[16];
+    private int[] value = new int[16];
+    private TileEntity[] target = new TileEntity[16];
+    private int size = 0;
+
+    final Handoffs proposed = new Handoffs();
+    final Handoffs incoming = new Handoffs();
+    private TileEntity[] moved = new TileEntity[16];
+    private int movedCount = 0;
+
+    // Changes to TileWorld.worldHash() made by the block's entities; the world folds it in and zeroes it.
+    long hashDelta = 0L;
+
+    void sell(int itemId) {
+        int i = add(SELL);
+        a[i] = itemId;
+    }
+
+    void processed(int tileId, ItemType itemType, int count) {
+        int i = add(PROCESSED);
+        a[i] = tileId;
+        b[i] = count;
+        type[i] = itemType;
+    }
+
+    void spawn(TileEntity te, int u, int v, ItemType itemType, int itemValue) {
+        int i = add(SPAWN);
+        target[i] = te;
+        a[i] = u * TileEntity.N + v;
+        type[i] = itemType;
+        value[i] = itemValue;
+    }
+
+    void timer(TileEntity te) {
+        int i = add(TIMER);
+        target[i] = te;
+    }
+
+    int size() { return size; }
+    byte kind(int i) { return kind[i]; }
+    int a(int i) { return a[i]; }
+    int b(int i) { return b[i]; }
+    ItemType type(int i) { return type[i]; }
+    int value(int i) { return value[i]; }
+    TileEntity target(int i) { return target[i]; }
+
+    void moved(TileEntity te) {
+        if (movedCount == moved.length) moved = Arrays.copyOf(moved, movedCount * 2);
+        moved[movedCount++] = te;
+    }
+
+    int movedCount() { return movedCount; }
+    TileEntity moved(int i) { return moved[i]; }
+
+    void clear() {
+        // Drop entity references so removed entities don't linger.
+        Arrays.fill(target, 0, size, null);
+        size = 0;
+        Arrays.fill(moved, 0, movedCount, null);
+        movedCount = 0;
+        proposed.clear();
+        incoming.clear();
+    }
+
+    private int add(byte k) {
+        if (size == kind.length) {
+            int n = size * 2;
+            kind = Arrays.copyOf(kind, n);
+            a = Arrays.copyOf(a, n);
+            b = Arrays.copyOf(b, n);
+            type = Arrays.copyOf(type, n);
+            value = Arrays.copyOf(value, n);
+            target = Arrays.copyOf(target, n);
+        }
+        kind[size] = k;
+        return size++;
+    }
+
+    // Items on their way across an edge: target entity, the edge it enters through, item id.
+    static final class Handoffs {
+        private TileEntity[] target = new TileEntity[16];
+        private byte[] edge = new byte[16];
+        private int[] item = new int[16];
+        private int size = 0;
+
+        void add(TileEntity te, Dir fromEdge, int itemId) {
+            if (size == target.length) {
+                int n = size * 2;
+                target = Arrays.copyOf(target, n);
+                edge = Arrays.copyOf(edge, n);
+                item = Arrays.copyOf(item, n);
+            }
+            target[size] = te;
+            edge[size] = (byte) fromEdge.ordinal();
+            item[size] = itemId;
+            size++;
+        }
+
+        int size() { return size; }
+        TileEntity target(int i) { return target[i]; }
+        Dir edge(int i) { return Dir.fromRot(edge[i]); }
+        int item(int i) { return item[i]; }
+
+        void clear() {
+            Arrays.fill(target, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.gudu0.AwareMemory;
+
+import java.util.Arrays;
+
+/**
+ * Running totals of what the factory produced while attached to a TileWorld (setTally):
+ * items sold per type and their value, and items processed per (machine tile id, output type).
+ */
+final class TickTally {
+    private static final int TYPES = ItemType.values().length;
+
+    private final long[] sold = new long[TYPES];
+    private long soldValue = 0L;      // cents
+    private long[] processed = new long[16 * TYPES];
+
+    void sold(ItemType type, int value) {
+        sold[type.ordinal()]++;
+        soldValue += value;
+    }
+
+    void processed(int tileId, ItemType type, int count) {
+        int i = tileId * TYPES + type.ordinal();
+        if (i >= processed.length) processed = Arrays.copyOf(processed, Math.max(i + 1, processed.length * 2));
+        processed[i] += count;
+    }
+
+    long soldCount(ItemType type) { return sold[type.ordinal()]; }
+
+    long soldValue() { return soldValue; }
+
+    // Machine tile ids go up to processedTileLimit() - 1.
+    int processedTileLimit() { return processed.length / TYPES; }
+
+    long processedCount(int tileId, ItemType type) {
+        int i = tileId * TYPES + type.ordinal();
+        return (i < processed.length) ? processed[i] : 0L;
+    }
+
+    TickTally copy() {
+        TickTally c = new TickTally();
+        System.arraycopy(sold, 0, c.sold, 0, TYPES);
+        c.soldValue = soldValue;
+        c.processed = processed.clone();
+        return c;
+    }
+}
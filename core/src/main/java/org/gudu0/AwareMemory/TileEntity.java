@@ -7,14 +7,144 @@ public abstract class TileEntity {
     public final int cellX, cellY;   // build-grid cell position
     public int rot;                  // 0..3
 
-    // Occupancy: item id per subcell, or EMPTY
-    protected final int[][] occ = new int[N][N];
+    // Occupancy: item id per subcell, or EMPTY.
+    // Lives in TileWorld's flat OccupancyTable at occ[occBase + u * N + v]; bound when the entity is placed.
+    private int[] occ;
+    private int occBase = -1;
+    // Bit (u * N + v) is set while that subcell holds an item; kept in step by setOcc.
+    private int occMask = 0;
+
+    // Scheduler bookkeeping (TileWorld's active set).
+    // occVersion bumps on every occupancy write, so the world can tell whether a step changed anything.
+    private int occVersion = 0;
+    // Consecutive ticks whose passes moved nothing.
+    private int stalledTicks = 0;
+
+    // Port graph, indexed by Dir ordinal.
+    // links: the entity across each edge (TileWorld re-links the neighbours of every edited cell).
+    // entries: our entryCellFrom() per incoming edge; inPorts/outPorts: the same as 4-bit masks.
+    // refreshPorts() recomputes our own side whenever rot/shape/variant may have changed.
+    private final TileEntity[] links = new TileEntity[4];
+    private final int[][] entries = new int[4][];
+    private int inPorts = 0;
+    private int outPorts = 0;
+
+    // Island index for the current tick order (TileWorld assigns it; -1 until the first rebuild).
+    int island = -1;
+
+    // TileWorld's per-entity scheduler state (kept here rather than in per-cell arrays, so an empty
+    // stretch of map costs nothing): rank in the tick order (-1 until ranked), island union-find parent,
+    // a wake that arrived before we had a rank, and a scratch mark for graph walks.
+    int rank = -1;
+    TileEntity islandUp = this;
+    boolean wakeQueued = false;
+    int visitMark = 0;
+
+    // Sleeping on a timer (idleTimerTicks): the tick it is due, and the last tick we were stepped
+    // before it (kept after an early wake until the next step catches up); -1 when not.
+    int wakeTick = -1;
+    int sleptAt = -1;
+
+    // Where TileWorld lists us by type: the tile id we were built for, and our index in that list.
+    int typeId = WorldGrid.TILE_EMPTY;
+    int typeSlot = -1;
+
+    // Two-phase ticks only: bit d is set while the neighbour across d had a free entry cell when the
+    // tick started (snapshotOutputs). Claiming the bit uses it up, so each edge passes one item per tick.
+    private int outFree = 0;
+
+    // TileWorld's world hash (see worldHash): occupancy writes add their change to hashSink (the
+    // TickEffects of the block we step in, or the world's own until we have a rank); stateTerm is our
+    // hashState() term as of our last step.
+    TickEffects hashSink;
+    long stateTerm;
 
     protected TileEntity(int cellX, int cellY, int rot) {
         this.cellX = cellX;
         this.cellY = cellY;
         this.rot = rot;
-        for (int u = 0; u < N; u++) for (int v = 0; v < N; v++) occ[u][v] = EMPTY;
+    }
+
+    // OccupancyTable hooks (attach/detach, and re-pointing when the buffer grows).
+    final void bindOccupancy(int[] cells, int base) {
+        occ = cells;
+        occBase = base;
+    }
+
+    final void unbindOccupancy() {
+        occ = null;
+        occBase = -1;
+    }
+
+    final int occupancyBase() {
+        return occBase;
+    }
+
+    // OccupancyTable.clearAll() wipes the cells behind our back.
+    final void clearOccupiedMask() {
+        occMask = 0;
+    }
+
+    // TileWorld hook: point our edge at whatever sits across it now.
+    final void setLink(Dir edge, TileEntity neighbor) {
+        links[edge.ordinal()] = neighbor;
+    }
+
+    // The entity across this edge (null if empty / out of bounds). Cached; no world lookup.
+    public final TileEntity linked(Dir edge) {
+        return links[edge.ordinal()];
+    }
+
+    // Recompute entries/ports from entryCellFrom() and outputsTo().
+    // Subclasses call this after changing anything those depend on (conveyor shape, merger variant...).
+    protected final void refreshPorts() {
+        inPorts = 0;
+        outPorts = 0;
+        for (int i = 0; i < 4; i++) {
+            Dir d = Dir.fromRot(i);
+            entries[i] = entryCellFrom(d);
+            if (entries[i] != null) inPorts |= 1 << i;
+            if (outputsTo(d)) outPorts |= 1 << i;
+        }
+    }
+
+    // Two-phase tick, read-only phase: note which output edges lead to a free entry cell right now.
+    final void snapshotOutputs() {
+        int free = 0;
+        for (int i = 0; i < 4; i++) {
+            TileEntity n = links[i];
+            if (n == null || (outPorts & (1 << i)) == 0) continue;
+            int[] uv = n.entries[(i + 2) & 3];
+            if (uv != null && n.occAt(uv[0], uv[1]) == EMPTY) free |= 1 << i;
+        }
+        outFree = free;
+    }
+
+    final boolean claimOutput(Dir outEdge) {
+        int bit = 1 << outEdge.ordinal();
+        if ((outFree & bit) == 0) return false;
+        outFree &= ~bit;
+        return true;
+    }
+
+    // Edges we take items from / hand items to, as bits (1 << Dir.ordinal()).
+    public final int inputPorts() {
+        return inPorts;
+    }
+
+    public final int outputPorts() {
+        return outPorts;
+    }
+
+    // The neighbour across fromEdge outputs into us (it may not have a free cell right now).
+    public final boolean fedFrom(Dir fromEdge) {
+        TileEntity n = links[fromEdge.ordinal()];
+        return n != null && (n.outPorts & (1 << fromEdge.opposite().ordinal())) != 0;
+    }
+
+    // Cached entry cell for an incoming edge (entryCellFrom() as of the last refreshPorts()).
+    public final int[] entryCell(Dir fromEdge) {
+        return entries[fromEdge.ordinal()];
     }
 
     // Entry cell for an incoming edge, in LOCAL coords.
@@ -23,8 +153,13 @@ public abstract class TileEntity {
 
     // Can this tile accept this item coming from that edge right now?
     public boolean canAccept(Item item, Dir fromEdge) {
-        int[] uv = entryCellFrom(fromEdge);
-        return uv != null && occ[uv[0]][uv[1]] == EMPTY;
+        int[] uv = entries[fromEdge.ordinal()];
+        return uv != null && acceptsItem(item) && occAt(uv[0], uv[1]) == EMPTY;
+    }
+
+    // Type gate at the portal, independent of what's on the entry cell. Default: anything.
+    protected boolean acceptsItem(Item item) {
+        return true;
     }
     // Can this tile output items to this edge direction?
     // Default: "forward" only.
@@ -34,10 +169,10 @@ public abstract class TileEntity {
 
     // Actually place item into entry cell (TileWorld calls this after canAccept).
     public void accept(Item item, Dir fromEdge, int currentTick) {
-        int[] uv = entryCellFrom(fromEdge);
+        int[] uv = entries[fromEdge.ordinal()];
         if (uv == null) throw new IllegalStateException("No entry for " + fromEdge);
-        if (occ[uv[0]][uv[1]] != EMPTY) throw new IllegalStateException("Entry occupied");
-        occ[uv[0]][uv[1]] = item.id;
+        if (occAt(uv[0], uv[1]) != EMPTY) throw new IllegalStateException("Entry occupied");
+        setOcc(uv[0], uv[1], item.id());
         item.markEntered(currentTick);
     }
 
@@ -47,49 +182,143 @@ public abstract class TileEntity {
 
     // When tile is removed: delete any contained items (rule you chose).
     public void destroyContainedItems(TileWorld world) {
-        for (int u = 0; u < N; u++) {
-            for (int v = 0; v < N; v++) {
-                int id = occ[u][v];
-                if (id != EMPTY) {
-                    world.deleteItem(id);
-                    occ[u][v] = EMPTY;
-                }
-            }
+        for (int m = occMask; m != 0; m &= m - 1) {
+            int k = Integer.numberOfTrailingZeros(m);
+            int u = k / N, v = k % N;
+            world.deleteItem(occAt(u, v));
+            setOcc(u, v, EMPTY);
         }
     }
     public int getItemIdAt(int u, int v) {
-        return occ[u][v];
+        return occ[occBase + u * N + v];
+    }
+
+    protected final int occAt(int u, int v) {
+        return occ[occBase + u * N + v];
+    }
+
+    // All occupancy writes go through here (keeps occVersion honest).
+    protected final void setOcc(int u, int v, int id) {
+        setOcc(u, v, id, this);
+    }
+
+    // A write made while `stepper` steps (a transport line's exit moving items on its members): the hash
+    // change goes to stepper's block, the only TickEffects its thread may touch.
+    protected final void setOcc(int u, int v, int id, TileEntity stepper) {
+        TickEffects hashSink = stepper.hashSink;
+        int k = u * N + v;
+        int old = occ[occBase + k];
+        occ[occBase + k] = id;
+        if (id == EMPTY) occMask &= ~(1 << k);
+        else occMask |= 1 << k;
+        occVersion++;
+        if (hashSink != null && old != id) {
+            hashSink.hashDelta += TileWorld.occTerm(cellX, cellY, k, id) - TileWorld.occTerm(cellX, cellY, k, old);
+        }
+    }
+
+    // Occupied subcells as bits (u * N + v). Walk it with Integer.numberOfTrailingZeros
+    // instead of scanning all 25 cells.
+    public final int occupiedMask() {
+        return occMask;
+    }
+
+    protected final int occVersion() {
+        return occVersion;
+    }
+
+    // For steps that write other entities' cells (transport lines): count it as our own change.
+    protected final void markChanged() {
+        occVersion++;
+    }
+
+    // Movers call this once per tick that ran at least one pass.
+    protected final void endPasses(int versionBefore) {
+        stalledTicks = (occVersion == versionBefore) ? stalledTicks + 1 : 0;
+    }
+
+    // Called by TileWorld whenever this entity is (re)woken, and by machines when a
+    // timer flips state (a finished item may be able to move again).
+    protected final void resetStall() {
+        stalledTicks = 0;
+    }
+
+    // True when stepping again can't change anything until a neighbor does.
+    // A single stalled tick isn't enough: items that entered this tick are held by enteredThisTick,
+    // so we only trust a jam once two pass-ticks in a row moved nothing.
+    public boolean canSleep() {
+        return !hasAnyItems() || isStalled();
+    }
+
+    protected final boolean isStalled() {
+        return stalledTicks >= 2;
+    }
+
+    // Processing machines: when the only thing left to happen here is a running timer (nothing can move
+    // until the item in the process cell is done), the number of steps until the one that finishes it.
+    // TileWorld then skips us until that tick, or until a neighbour wakes us first. 0: no such timer.
+    public int idleTimerTicks(TileWorld world) {
+        return 0;
+    }
+
+    // Before the first step after a timer sleep: advance the timers exactly as the `ticks` skipped
+    // steps would have (with nothing able to move, that's all they would have done).
+    protected void skipIdleTicks(TileWorld world, int ticks) {
     }
 
     public boolean acceptsFrom(Dir fromEdge) {
-        return entryCellFrom(fromEdge) != null;
+        return (inPorts & (1 << fromEdge.ordinal())) != 0;
     }
 
     public boolean hasAnyItems() {
-        for (int u = 0; u < 5; u++) {
-            for (int v = 0; v < 5; v++) {
-                if (occ[u][v] != EMPTY) return true;
-            }
-        }
-        return false;
+        return occMask != 0;
     }
 
     // Rotate a LOCAL coordinate from base-rot(0) space into current rot space.
     // rot = 0 right, 1 down, 2 left, 3 up
+    // Returns a shared precomputed {u, v} pair (step() calls this constantly) -- never write to it.
     public static int[] rotUV(int u, int v, int rot) {
-        rot &= 3;
-        switch (rot) {
-            case 0:
-                return new int[]{u, v};
-            case 1:
-                return new int[]{v, N - 1 - u};
-            case 2:
-                return new int[]{N - 1 - u, N - 1 - v};
-            default:
-                return new int[]{N - 1 - v, u};
+        return ROT_UV[rot & 3][u][v];
+    }
+
+    // ROT_UV[rot][u][v] -> rotated {u, v}
+    private static final int[][][][] ROT_UV = new int[4][N][N][];
+    static {
+        for (int u = 0; u < N; u++) {
+            for (int v = 0; v < N; v++) {
+                ROT_UV[0][u][v] = new int[]{u, v};
+                ROT_UV[1][u][v] = new int[]{v, N - 1 - u};
+                ROT_UV[2][u][v] = new int[]{N - 1 - u, N - 1 - v};
+                ROT_UV[3][u][v] = new int[]{N - 1 - v, u};
+            }
         }
     }
 
+    // Steady-state signature (OfflineProgress): what, besides occupancy, decides what this entity does
+    // next. Subclasses mix in their timers, counters and pass phase on top of this; never item ids (they
+    // grow forever).
+    public long mixSteadyState(TileWorld world, long h) {
+        return mix(h, Math.min(stalledTicks, 2));
+    }
+
+    // What this entity's own state (timers, toggles) adds to TileWorld.worldHash; items are counted
+    // separately. `now` is the tick the fields are relative to. A running timer goes in as the tick it runs
+    // out on, so a machine asleep on it hashes the same as one stepped every tick.
+    public long hashState(int now) {
+        return 0L;
+    }
+
+    protected static long mix(long h, int v) {
+        h ^= v;
+        return h * 0x100000001b3L;
+    }
+
+    // True if writeSaveData puts the id of an item this entity holds into i0 (the item in process), so
+    // whoever restores the items under new ids must remap it.
+    public boolean savesItemId() {
+        return false;
+    }
+
     // Called during save
     public void writeSaveData(WorldGrid.TileSave out) {
         // default: nothing
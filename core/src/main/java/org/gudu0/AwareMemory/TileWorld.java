@@ -3,16 +3,97 @@ package org.gudu0.AwareMemory;
 import org.gudu0.AwareMemory.entities.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 @SuppressWarnings({"PatternVariableCanBeUsed", "EnhancedSwitchMigration"})
 public final class TileWorld {
-    private static final float FIXED_TICK = 1f / 60f;
+    public static final int TICKS_PER_SECOND = 60;
+    private static final float FIXED_TICK = 1f / TICKS_PER_SECOND;
+
+    // The sim never counts time in floats: timers are whole ticks, and movement runs off one integer
+    // clock (see passes()). Item speed is 16.16 fixed point; at 1x, 24 subcells/s is exactly 2 passes
+    // every 5 ticks.
+    public static final int SPEED_ONE = 1 << 16;
+    public static final int SUBCELL = TICKS_PER_SECOND * SPEED_ONE;
 
     private final WorldGrid world;
+
+    // Entities by cell, in 32x32 chunks that only exist while they hold an entity (see ChunkSet).
+    // Nothing else here is sized by the map: per-entity scheduler state lives on the entities.
+    private final ChunkSet entityChunks;
     private final TileEntity[][] entities;
 
+    // Cells edited since the last SmartPlacement refresh, which then only looks around them.
+    final SmartPlacement.Worklist placementWork;
+
+    // Open beginEdit() calls, and the placements to report to the orders on the last commit (x + y * wCells).
+    private int editDepth = 0;
+    private int[] placedCells = new int[16];
+    private int placedCount = 0;
+
+    // Undo history, if any: every outermost edit is one step (see EditLog).
+    private EditLog editLog;
+
+    // Live entities by the tile id they were built for, densely packed in no particular order
+    // (TileEntity.typeSlot is the index; removing one moves the last into its place). Systems that only
+    // care about one kind of tile walk its list instead of the map.
+    private final TileEntity[][] byType = new TileEntity[WorldGrid.TILE_COUNT][16];
+    private final int[] byTypeCount = new int[WorldGrid.TILE_COUNT];
+
+    // Active set: one bit per rank (see tickOrder), so bit order == step order.
+    // Only awake entities are stepped; idle ones sleep until a neighbor changes or the grid is edited.
+    private long[] active = new long[0];
+
+    // Entities asleep on a timer rather than on a jam (processing machines; see TileEntity.idleTimerTicks).
+    // They are woken by the wheel when the timer is due, or earlier by any neighbour, like everything else.
+    private final TimerWheel timers = new TimerWheel();
+
+    // Tick order: rank -> entity, or null for padding; TileEntity.rank is the inverse.
+    // Ranks are grouped by island, downstream first within each, and every island starts on a multiple
+    // of 64 so islands never share an active word. Rebuilt lazily after any port change (rebuildTickOrder).
+    private TileEntity[] tickOrder = new TileEntity[0];
+    private boolean tickOrderDirty = true;
+
+    // Islands: connected components of the flow graph, tracked as a union-find over entities
+    // (TileEntity.islandUp). Placement unions; anything that may have cut an edge queues the cell
+    // (x + y * wCells) for a local re-label.
+    private int[] islandSplitCells = new int[16];
+    private int islandSplitCount = 0;
+
+    // Stamp for TileEntity.visitMark: a graph walk marks what it has seen with a fresh value.
+    private int visitStamp = 0;
+
+    // Per-island rank ranges [islandStart, islandEnd), by island index.
+    private int islandCount = 0;
+    private int[] islandStart = new int[16];
+    private int[] islandEnd = new int[16];
+    // Per-island bounding box in cells: minX, minY, maxX, maxY at [4 * island] (see setFocus).
+    private int[] islandBounds = new int[64];
+
+    // Queued world-wide effects per active word (block of 64 ranks), created on first use.
+    // entityWords == active.length: ranks only exist for entities (plus island padding).
+    private TickEffects[] wordEffects = new TickEffects[0];
+    private int entityWords = 0;
+
+    private IslandExecutor islandExecutor = IslandExecutor.SERIAL;
+    private final IslandExecutor.Islands islandStepper = this::stepIsland;
+
+    // Two-phase tick (see tickTwoPhase): words with awake entities / with incoming handoffs this tick.
+    private boolean twoPhase = false;
+    private int[] stepWords = new int[16];
+    private int stepWordCount = 0;
+    private int[] commitWords = new int[16];
+    private int commitWordCount = 0;
+    private final IslandExecutor.Islands snapshotStepper = this::snapshotWord;
+    private final IslandExecutor.Islands proposeStepper = this::proposeWord;
+    private final IslandExecutor.Islands commitStepper = this::commitWord;
+
+    // Cells (x + y * wCells) whose conveyor chain may have changed; transport lines are relinked there
+    // before the next tick. A cell may be queued more than once.
+    private int[] relinkCells = new int[16];
+    private int relinkCount = 0;
+    private boolean transportLines = true;
+
     public float fixedDt() {
         return FIXED_TICK;
     }
@@ -20,46 +101,288 @@ public final class TileWorld {
     private float acc = 0f;
     private int tick = 0;
 
-    private int nextItemId = 1;
-    private final Map<Integer, Item> items = new HashMap<>();
+    // Struct-of-arrays item store; ids are dense slots recycled through a free list.
+    private final ItemTable items = new ItemTable();
+
+    // Every entity's 5x5 subcells, in one flat int[] (entities index it with a base offset).
+    private final OccupancyTable occupancy = new OccupancyTable();
 
     // TileWorld.java
     private float itemSpeedMul = 1f; // 1.0 = normal
+    private int itemSpeed = SPEED_ONE; // the same, as the sim uses it (see SUBCELL)
 
     public float getItemSpeedMul() {
         return itemSpeedMul;
     }
 
+    // Movement clock: item speed summed over every tick so far, as of moveClockTick (speed changes
+    // restart it there). Movers take their passes off this one clock rather than an accumulator of their
+    // own, so when an entity happens to be stepped (asleep, woken early, frozen, thawed) never changes
+    // when its items move.
+    private long moveClockBase = 0L;
+    private int moveClockTick = 0;
+
+    private long moveClock(int t) {
+        return moveClockBase + (long) (t - moveClockTick) * itemSpeed;
+    }
+
+    // Passes a mover of this speed makes in the tick being stepped.
+    public int passes(int subcellsPerSecond) {
+        long before = moveClock(tick - 1) * subcellsPerSecond / SUBCELL;
+        long after = moveClock(tick) * subcellsPerSecond / SUBCELL;
+        return (int) (after - before);
+    }
+
+    // Where a mover of this speed stands between passes, for steady-state hashing: exact, and it repeats
+    // exactly when the pass pattern does.
+    public int passPhase(int subcellsPerSecond) {
+        return (int) (moveClock(tick) * subcellsPerSecond % SUBCELL);
+    }
+
     public void setItemSpeedMul(float v) {
         if (Float.isNaN(v) || Float.isInfinite(v)) v = 1f;
 
         if (v < 0.05f) v = 0.05f;
         if (v > 10f) v = 10f;
 
+        // Frozen islands were recorded at the old speed.
+        if (v != itemSpeedMul) thawAll();
+        moveClockBase = moveClock(tick);
+        moveClockTick = tick;
         itemSpeedMul = v;
+        // Rounded once here; everything after is integer maths.
+        itemSpeed = Math.round(v * SPEED_ONE);
     }
 
     public TileWorld(WorldGrid world) {
         this.world = world;
-        this.entities = new TileEntity[world.wCells][world.hCells];
+        this.entityChunks = new ChunkSet(world.wCells, world.hCells);
+        this.entities = new TileEntity[entityChunks.chunkCount()][];
+        this.placementWork = new SmartPlacement.Worklist(world.wCells);
+    }
+
+    // Serial by default. Any executor gives bit-identical results (see IslandExecutor).
+    public void setIslandExecutor(IslandExecutor executor) {
+        islandExecutor = (executor != null) ? executor : IslandExecutor.SERIAL;
+    }
+
+    // Off by default. On: entities see each other as of the start of the tick and items cross edges in
+    // a separate commit phase, so one big island can be spread over all cores too (see tickTwoPhase).
+    // Results don't depend on the executor either way, but differ from the default mode: an item can't
+    // enter a cell freed earlier in the same tick, and each edge passes at most one item per tick.
+    public void setTwoPhaseTick(boolean on) {
+        if (on) thawAll();
+        twoPhase = on;
+    }
+
+    public boolean isTwoPhaseTick() {
+        return twoPhase;
     }
 
     public TileEntity getEntity(int cx, int cy) {
         if (!world.inBoundsCell(cx, cy)) return null;
-        return entities[cx][cy];
+        TileEntity[] chunk = entities[entityChunks.chunkOf(cx, cy)];
+        return (chunk == null) ? null : chunk[ChunkSet.slotOf(cx, cy)];
+    }
+
+    private void setEntity(int cx, int cy, TileEntity te) {
+        int c = entityChunks.chunkOf(cx, cy);
+        int slot = ChunkSet.slotOf(cx, cy);
+        TileEntity old = (entities[c] == null) ? null : entities[c][slot];
+        if (old == null && te == null) return;
+
+        if (old == null) {
+            if (entityChunks.retain(c)) entities[c] = new TileEntity[ChunkSet.AREA];
+        } else if (te == null) {
+            if (entityChunks.release(c)) {
+                entities[c] = null;
+                return;
+            }
+        }
+        entities[c][slot] = te;
+    }
+
+    // Every cell of every chunk holding an entity, in raster order.
+    ChunkSet.Walk entityCells() {
+        return entityChunks.walk();
+    }
+
+    // ---- Entities by type ----
+
+    /** Live entities built for tileId; index them 0 .. entityCount(tileId) - 1, in no particular order. */
+    public int entityCount(int tileId) {
+        return byTypeCount[tileId];
+    }
+
+    public TileEntity entityOfType(int tileId, int i) {
+        return byType[tileId][i];
+    }
+
+    /** Every live entity, type by type. Don't edit the world while walking. */
+    public EntityWalk entities() {
+        return new EntityWalk();
+    }
+
+    public final class EntityWalk {
+        public int x, y;
+        public TileEntity entity;
+        private int type = 0, i = -1;
+
+        public boolean next() {
+            if (type == WorldGrid.TILE_COUNT) return false; // done; keeps saying so
+            while (++i >= byTypeCount[type]) {
+                if (++type == WorldGrid.TILE_COUNT) return false;
+                i = -1;
+            }
+            entity = byType[type][i];
+            x = entity.cellX;
+            y = entity.cellY;
+            return true;
+        }
+    }
+
+    private void listByType(TileEntity te, int tileId) {
+        int n = byTypeCount[tileId];
+        if (n == byType[tileId].length) byType[tileId] = Arrays.copyOf(byType[tileId], n * 2);
+        byType[tileId][n] = te;
+        byTypeCount[tileId] = n + 1;
+        te.typeId = tileId;
+        te.typeSlot = n;
+    }
+
+    private void unlistByType(TileEntity te) {
+        TileEntity[] list = byType[te.typeId];
+        int last = --byTypeCount[te.typeId];
+        TileEntity moved = list[last];
+        list[te.typeSlot] = moved;
+        moved.typeSlot = te.typeSlot;
+        list[last] = null;
+        te.typeSlot = -1;
+    }
+
+    public int liveChunkCount() {
+        return entityChunks.liveCount();
     }
 
     public void importTileSaves(WorldGrid.TileSave[] saves) {
         if (saves == null) return;
+        dropMacro();
+        dropTimers();
 
         for (WorldGrid.TileSave ts : saves) {
             if (!world.inBoundsCell(ts.cx, ts.cy)) continue;
 
-            TileEntity te = entities[ts.cx][ts.cy];
+            TileEntity te = getEntity(ts.cx, ts.cy);
             if (te != null) {
                 te.readSaveData(ts);
             }
         }
+        // Saved variants and shapes bypass the placement path.
+        placementWork.markAll();
+        wakeAll();
+        resetWorldHash();
+    }
+
+    // One tile's saved settings onto the entity there (a pasted blueprint, an undo): importTileSaves for one
+    // tile. Items, if given, go into the entity's free subcells under fresh ids, since their old ids may be
+    // taken by now; an in-process item id in ts.i0 follows its item (see TileEntity.savesItemId).
+    void importTileSave(WorldGrid.TileSave ts, WorldGrid.ItemSave[] saved) {
+        TileEntity te = getEntity(ts.cx, ts.cy);
+        if (te == null) return;
+        thawIslandOf(te);
+        if (saved != null && saved.length > 0) {
+            relinkAround(ts.cx, ts.cy);
+            boolean remap = te.savesItemId();
+            int held = ts.i0;
+            if (remap) ts.i0 = TileEntity.EMPTY;
+            for (WorldGrid.ItemSave s : saved) {
+                if (te.getItemIdAt(s.u, s.v) != TileEntity.EMPTY) continue;
+                int id = items.create(ItemType.fromSaveId(s.typeId & 0xFF), s.value);
+                te.setOcc(s.u, s.v, id);
+                if (remap && s.id == held) ts.i0 = id;
+            }
+        }
+        te.readSaveData(ts);
+        rehashState(te, hashNow(te));
+        placementWork.mark(ts.cx, ts.cy);
+        wakeEntity(te);
+    }
+
+    // ---- Edit transactions ----
+    // Everything between beginEdit() and the matching commitEdit() is one edit: placements, deletions and
+    // rebuilds go through as usual, but SmartPlacement runs once on commit (around everything that changed)
+    // instead of after every tile, and placements count toward orders then, as SmartPlacement left them.
+    // Edits nest; only the outermost commit refreshes. Commit before ticking again.
+
+    public void beginEdit() {
+        if (editDepth++ == 0 && editLog != null) editLog.stepStarted(this);
+    }
+
+    public void commitEdit() {
+        if (editDepth == 0) throw new IllegalStateException("commitEdit() without beginEdit()");
+        if (--editDepth > 0) return;
+
+        SmartPlacement.refreshDirty(this);
+        for (int i = 0; i < placedCount; i++) {
+            int id = world.getTile(placedCells[i] % world.wCells, placedCells[i] / world.wCells);
+            if (id != WorldGrid.TILE_EMPTY) orders.onTilePlaced(id, money, tick);
+        }
+        placedCount = 0;
+        if (editLog != null) editLog.stepEnded(this);
+    }
+
+    public boolean inEdit() {
+        return editDepth > 0;
+    }
+
+    // Records placeTile/deleteTile from now on; null stops recording. Attach between edits.
+    public void setEditLog(EditLog log) {
+        if (editDepth > 0) throw new IllegalStateException("setEditLog() inside an edit");
+        editLog = log;
+    }
+
+    public EditLog getEditLog() {
+        return editLog;
+    }
+
+    // Brings the entity at (cx, cy) up to date before an edit reads its state: its island resumed, its
+    // timers caught up. The edit that follows would thaw it anyway.
+    void settleForEdit(int cx, int cy) {
+        thawAround(cx, cy);
+        TileEntity te = getEntity(cx, cy);
+        if (te == null || te.sleptAt < 0) return;
+        te.skipIdleTicks(this, tick - te.sleptAt);
+        te.sleptAt = tick;
+    }
+
+    // Places a tile the way the player does: grid write, conveyor auto-tile, entity rebuild.
+    public void placeTile(int cx, int cy, int tileId, int rot) {
+        if (!world.inBoundsCell(cx, cy)) return;
+        beginEdit();
+        if (editLog != null) editLog.record(this, cx, cy, tileId, rot);
+        world.setTile(cx, cy, tileId, rot);
+        if (tileId == WorldGrid.TILE_CONVEYOR) {
+            world.setTile(cx, cy, decideAutoTileForConveyor(cx, cy, rot));
+        }
+        rebuildEntityAt(cx, cy);
+        commitEdit();
+    }
+
+    public void deleteTile(int cx, int cy) {
+        if (!world.inBoundsCell(cx, cy)) return;
+        beginEdit();
+        if (editLog != null) editLog.record(this, cx, cy, WorldGrid.TILE_EMPTY, 0);
+        world.setTile(cx, cy, WorldGrid.TILE_EMPTY);
+        clearEntityAt(cx, cy);
+        commitEdit();
+    }
+
+    // Counts the tile at (cx, cy) toward placement orders: on commit if an edit is open, else right away.
+    public void countPlacement(int cx, int cy) {
+        beginEdit();
+        if (placedCount == placedCells.length) placedCells = Arrays.copyOf(placedCells, placedCount * 2);
+        placedCells[placedCount++] = cx + cy * world.wCells;
+        commitEdit();
     }
 
     // Called by placement code (normal path)
@@ -73,12 +396,21 @@ public final class TileWorld {
     }
 
     private void rebuildEntityAtInternal(int cx, int cy, boolean runSmartPlacement) {
+        thawAround(cx, cy);
+        // Lines through here must let go of their items before the old entity destroys them.
+        relinkAround(cx, cy);
+
         // Destroy old entity + its items (your current rule)
-        TileEntity old = entities[cx][cy];
-        if (old != null) old.destroyContainedItems(this);
+        TileEntity old = getEntity(cx, cy);
+        if (old != null) {
+            old.destroyContainedItems(this);
+            occupancy.detach(old);
+            hashSum -= old.stateTerm;
+            unlistByType(old);
+        }
 
-        int id = world.grid[cx][cy];
-        int rot = world.rot[cx][cy];
+        int id = world.getTile(cx, cy);
+        int rot = world.getRot(cx, cy);
 
         TileEntity created;
         switch (id) {
@@ -123,19 +455,55 @@ public final class TileWorld {
                 break;
         }
 
-        entities[cx][cy] = created;
-
-        if (runSmartPlacement) {
-            SmartPlacement.refreshAll(this);
+        if (created != null) {
+            occupancy.attach(created);
+            created.refreshPorts();
+            created.hashSink = editSink;
+            created.stateTerm = stateTerm(created, tick);
+            hashSum += created.stateTerm;
+            listByType(created, id);
+        }
+        setEntity(cx, cy, created);
+        linkNeighbors(cx, cy);
+        updateIslandsAt(cx, cy, old != null);
+        wakeAround(cx, cy);
+        placementWork.mark(cx, cy);
+
+        if (runSmartPlacement && editDepth == 0) {
+            SmartPlacement.refreshDirty(this);
         }
     }
 
     private void clearEntityAtInternal(int cx, int cy, boolean runSmartPlacement){
-        TileEntity old = entities[cx][cy];
-        if (old != null) old.destroyContainedItems(this);
-        entities[cx][cy] = null;
+        thawAround(cx, cy);
+        relinkAround(cx, cy);
+        TileEntity old = getEntity(cx, cy);
+        if (old != null) {
+            old.destroyContainedItems(this);
+            occupancy.detach(old);
+            hashSum -= old.stateTerm;
+            unlistByType(old);
+        }
+        setEntity(cx, cy, null);
+        linkNeighbors(cx, cy);
+        updateIslandsAt(cx, cy, true);
+        wakeAround(cx, cy);
+        placementWork.mark(cx, cy);
+
+        if (runSmartPlacement && editDepth == 0) SmartPlacement.refreshDirty(this);
+    }
 
-        if (runSmartPlacement) SmartPlacement.refreshAll(this);
+    // Port graph: point the entity at (cx, cy) at its neighbours, and each neighbour back at it.
+    // Only edits touch this; step() code just follows TileEntity.linked().
+    private void linkNeighbors(int cx, int cy) {
+        invalidateTickOrder();
+        TileEntity te = getEntity(cx, cy);
+        for (int r = 0; r < 4; r++) {
+            Dir d = Dir.fromRot(r);
+            TileEntity n = getEntity(cx + d.dx, cy + d.dy);
+            if (te != null) te.setLink(d, n);
+            if (n != null) n.setLink(d.opposite(), te);
+        }
     }
 
     public void clearEntityAt(int cx, int cy){
@@ -146,12 +514,26 @@ public final class TileWorld {
         clearEntityAtInternal(cx, cy, false);
     }
 
+    // After the grid was replaced wholesale (loading): drop entities whose tile is gone, build the rest.
+    // No SmartPlacement; run it inside an edit (or call refreshAll) to refresh once at the end. Only chunks
+    // with something in them are visited.
+    public void rebuildAllFromGrid() {
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            if (getEntity(c.x, c.y) != null && world.getTile(c.x, c.y) == WorldGrid.TILE_EMPTY)
+                clearEntityAtFromSmartPlacement(c.x, c.y);
+        }
+        for (ChunkSet.Walk c = world.liveCells(); c.next(); ) {
+            if (world.getTile(c.x, c.y) != WorldGrid.TILE_EMPTY)
+                rebuildEntityAtFromSmartPlacement(c.x, c.y);
+        }
+    }
+
     public void refreshAllConveyorShapes() {
-        for (int y = 0; y < world.hCells; y++) {
-            for (int x = 0; x < world.wCells; x++) {
-                refreshConveyorShapeAt(x, y);
-            }
+        for (int i = 0; i < byTypeCount[WorldGrid.TILE_CONVEYOR]; i++) {
+            TileEntity c = byType[WorldGrid.TILE_CONVEYOR][i];
+            refreshConveyorShapeAt(c.cellX, c.cellY);
         }
+        wakeAll();
     }
 
     public void update(float dt) {
@@ -174,6 +556,56 @@ public final class TileWorld {
         if (steps == MAX_STEPS_PER_FRAME) acc = 0f;
     }
 
+    /**
+     * Fast-forward: run up to n fixed ticks right now, without rendering or the per-frame cap, stopping
+     * early once budgetNanos has passed (checked between ticks; at least one tick always runs).
+     * Returns the number of ticks run. Leaves the frame accumulator alone, so update() carries on
+     * normally afterwards. See FastForward for a cancellable job spread over several frames.
+     */
+    public int simulateTicks(int n, long budgetNanos) {
+        if (n <= 0) return 0;
+        long start = System.nanoTime();
+        int ran = 0;
+        do {
+            tickOnce();
+            ran++;
+        } while (ran < n && System.nanoTime() - start < budgetNanos);
+        return ran;
+    }
+
+    public long ticksFor(float seconds) {
+        return (long) Math.ceil(seconds / FIXED_TICK);
+    }
+
+    // Advance the clock without simulating: the world is taken to be exactly where it would be
+    // after n more ticks (OfflineProgress, once it has found a steady state and credited the output).
+    void skipTicks(int n) {
+        tick += n;
+
+        // Timers and frozen islands are kept in absolute ticks: move them along with the clock.
+        timers.clear();
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null) continue;
+            if (te.sleptAt >= 0) te.sleptAt += n;
+            if (te.wakeTick >= 0) {
+                te.wakeTick += n;
+                timers.add(te);
+            }
+        }
+        for (int i = 0; i < islandCount; i++) {
+            if (macro[i] != null && macro[i].isFrozen()) macro[i].frozenAt += n;
+        }
+        resetWorldHash();
+    }
+
+    // Counts every sale and processed item while set (OfflineProgress measures a steady-state period).
+    void setTally(TickTally tally) {
+        this.tally = tally;
+    }
+
+    private TickTally tally = null;
+
     private String lastSimError = null;
 
     public String getLastSimError() { return lastSimError; }
@@ -182,18 +614,1109 @@ public final class TileWorld {
     private void tickOnce() {
         tick++;
         try {
-            for (int y = 0; y < world.hCells; y++) {
-                for (int x = 0; x < world.wCells; x++) {
-                    TileEntity te = entities[x][y];
-                    if (te != null) te.step(this, tick);
+            if (relinkCount > 0) relinkPendingCells();
+            if (tickOrderDirty) rebuildTickOrder();
+            fireTimers();
+
+            if (twoPhase) tickTwoPhase();
+            else islandExecutor.runAll(islandCount, islandStepper);
+
+            // World-wide effects in rank order: the same order whoever ran the islands.
+            // A frozen island replays its recorded effects in its place (see "Macro regions").
+            for (int i = 0; i < islandCount; i++) {
+                MacroIsland m = macro[i];
+                if (m != null && m.isFrozen()) {
+                    m.replay(this);
+                    continue;
+                }
+                MacroIsland recorder = (m != null && m.isRecording()) ? m : null;
+                for (int w = islandStart[i] >>> 6; (w << 6) < islandEnd[i]; w++) {
+                    if (wordEffects[w] != null) applyEffects(wordEffects[w], recorder);
                 }
             }
+            if (focusSet && !twoPhase) updateMacro();
         } catch (Throwable t) {
             lastSimError = t.getClass().getSimpleName() + ": " + t.getMessage();
             throw t; // or DON'T throw if you want to keep running
         }
     }
 
+    // One island's share of a tick. May run on any thread: it only touches this island's entities,
+    // items and active words, and queues everything else in its words' TickEffects.
+    private void stepIsland(int island) {
+        MacroIsland m = macro[island];
+        if (m != null && m.isFrozen()) return;
+        int end = islandEnd[island];
+
+        // Walk set bits in rank order (== tick order). Re-read the word every time:
+        // stepping an entity can wake a later cell in the same word.
+        for (int w = islandStart[island] >>> 6; (w << 6) < end; w++) {
+            int bit = 0;
+            while (bit < 64) {
+                long pending = active[w] & (-1L << bit);
+                if (pending == 0L) break;
+                bit = Long.numberOfTrailingZeros(pending);
+
+                int rank = (w << 6) + bit;
+                stepActive(tickOrder[rank], rank);
+                bit++;
+            }
+        }
+    }
+
+    private void stepActive(TileEntity te, int rank) {
+        if (te == null) {
+            active[rank >>> 6] &= ~(1L << rank);
+            return;
+        }
+
+        if (te.sleptAt >= 0) catchUpTimer(te);
+        int versionBefore = te.occVersion();
+        te.step(this, tick);
+
+        // Anything that moved may have filled a downstream entry or freed space for an upstream neighbor.
+        if (te.occVersion() != versionBefore) {
+            wakeLinked(te);
+
+            // A line is stepped at its exit; its feeder sits behind the head, possibly far away.
+            TransportLine line = lineOf(te);
+            if (line != null) wakeLinked(line.head());
+        }
+
+        if (te.canSleep()) active[rank >>> 6] &= ~(1L << rank);
+        else sleepOnTimer(te, rank);
+        rehashState(te, tick);
+    }
+
+    // ---------------- Timers ----------------
+    // A machine whose only pending change is its process timer sleeps until the step that finishes it.
+    // Whatever wakes it first (the wheel, a neighbour, an edit), its next step begins by running the
+    // timers through the steps it skipped, so the result is the same as stepping it every tick.
+
+    // Called right after te stepped. Same thread as the step: only te and its word's effects are touched.
+    private void sleepOnTimer(TileEntity te, int rank) {
+        int ticks = te.idleTimerTicks(this);
+        if (ticks <= 1) return;
+        active[rank >>> 6] &= ~(1L << rank);
+        te.sleptAt = tick;
+        te.wakeTick = tick + ticks;
+        effectsOf(te).timer(te);
+    }
+
+    private void catchUpTimer(TileEntity te) {
+        te.skipIdleTicks(this, tick - te.sleptAt - 1);
+        te.sleptAt = -1;
+        te.wakeTick = -1;
+    }
+
+    private void fireTimers() {
+        timers.advanceTo(tick);
+        for (int i = 0; i < timers.dueCount(); i++) {
+            TileEntity te = timers.due(i);
+            if (getEntity(te.cellX, te.cellY) != te) continue; // removed meanwhile
+            // A frozen island's timers are re-armed when it thaws.
+            MacroIsland m = (te.island >= 0 && te.island < islandCount) ? macro[te.island] : null;
+            if (m != null && m.isFrozen()) continue;
+            wakeEntity(te);
+        }
+    }
+
+    // Bring every timer sleeper's timers up to now, without waking it (before saving).
+    private void settleTimers() {
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null || te.sleptAt < 0) continue;
+            te.skipIdleTicks(this, tick - te.sleptAt);
+            te.sleptAt = tick;
+        }
+    }
+
+    // Loading replaces every entity's state: forget the timers (everything is woken afterwards).
+    private void dropTimers() {
+        timers.clear();
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null) continue;
+            te.sleptAt = -1;
+            te.wakeTick = -1;
+        }
+    }
+
+    // ---------------- Two-phase tick ----------------
+    // 0. snapshot: every awake entity notes which of its output edges lead to a free entry cell.
+    // 1. propose: every awake entity steps against that snapshot. It only moves items on its own cells;
+    //    an item leaving over an edge is taken off the source and queued (TileWorld.handOff).
+    // 2. commit: each queued item is placed on its target's entry cell.
+    // Each phase runs block by block through the executor and a block only writes its own entities, so
+    // blocks can run on any thread in any order. No conflicts are possible in the commit: an entry cell
+    // is fed by exactly one edge, nothing moves into it from inside, and the edge passes one item per tick.
+    // Waking and the world-wide effects are applied serially afterwards, in rank order.
+
+    private void tickTwoPhase() {
+        stepWordCount = 0;
+        for (int w = 0; w < entityWords; w++) {
+            if (active[w] == 0L) continue;
+            if (stepWordCount == stepWords.length) stepWords = Arrays.copyOf(stepWords, stepWordCount * 2);
+            stepWords[stepWordCount++] = w;
+        }
+
+        islandExecutor.runAll(stepWordCount, snapshotStepper);
+        islandExecutor.runAll(stepWordCount, proposeStepper);
+
+        // Route every proposal to the block of its target.
+        commitWordCount = 0;
+        for (int i = 0; i < stepWordCount; i++) {
+            TickEffects.Handoffs out = wordEffects[stepWords[i]].proposed;
+            for (int j = 0; j < out.size(); j++) {
+                TileEntity target = out.target(j);
+                int w = target.rank >>> 6;
+                TickEffects fx = effectsFor(w);
+                if (fx.incoming.size() == 0) {
+                    if (commitWordCount == commitWords.length) commitWords = Arrays.copyOf(commitWords, commitWordCount * 2);
+                    commitWords[commitWordCount++] = w;
+                }
+                fx.incoming.add(target, out.edge(j), out.item(j));
+            }
+        }
+
+        islandExecutor.runAll(commitWordCount, commitStepper);
+
+        // Anything that moved may have filled a downstream entry or freed space for an upstream neighbor.
+        for (int i = 0; i < stepWordCount; i++) {
+            TickEffects fx = wordEffects[stepWords[i]];
+            for (int j = 0; j < fx.movedCount(); j++) {
+                TileEntity te = fx.moved(j);
+                wakeLinked(te);
+                TransportLine line = lineOf(te);
+                if (line != null) wakeLinked(line.head());
+            }
+        }
+    }
+
+    private void snapshotWord(int i) {
+        int w = stepWords[i];
+        for (long bits = active[w]; bits != 0L; bits &= bits - 1) {
+            TileEntity te = tickOrder[(w << 6) + Long.numberOfTrailingZeros(bits)];
+            if (te != null) te.snapshotOutputs();
+        }
+    }
+
+    private void proposeWord(int i) {
+        int w = stepWords[i];
+        TickEffects fx = effectsFor(w);
+        for (long bits = active[w]; bits != 0L; bits &= bits - 1) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            TileEntity te = tickOrder[(w << 6) + bit];
+            if (te == null) {
+                active[w] &= ~(1L << bit);
+                continue;
+            }
+
+            if (te.sleptAt >= 0) catchUpTimer(te);
+            int versionBefore = te.occVersion();
+            te.step(this, tick);
+            if (te.occVersion() != versionBefore) fx.moved(te);
+            if (te.canSleep()) active[w] &= ~(1L << bit);
+            else sleepOnTimer(te, (w << 6) + bit);
+            rehashState(te, tick);
+        }
+    }
+
+    private void commitWord(int i) {
+        TickEffects.Handoffs in = wordEffects[commitWords[i]].incoming;
+        for (int j = 0; j < in.size(); j++) {
+            in.target(j).accept(items.get(in.item(j)), in.edge(j), tick);
+        }
+        in.clear();
+    }
+
+    // Entities hand an item across `out` through this; true if it left (the caller then clears its cell).
+    // Default mode: straight onto the neighbour. Two-phase: checked against the snapshot and queued.
+    public boolean handOff(TileEntity from, Dir out, Item item, int currentTick) {
+        TileEntity n = from.linked(out);
+        if (n == null) return false;
+        Dir edge = out.opposite();
+
+        if (!twoPhase) {
+            if (!n.canAccept(item, edge)) return false;
+            n.accept(item, edge, currentTick);
+            return true;
+        }
+
+        if (!n.acceptsItem(item) || !from.claimOutput(out)) return false;
+        effectsOf(from).proposed.add(n, edge, item.id());
+        return true;
+    }
+
+    // In-tick wake. A step can only affect neighbours it's connected to, which are on its own island;
+    // other islands may be running on other threads, so never touch them.
+    private void wakeLinked(TileEntity te) {
+        for (int r = 0; r < 4; r++) {
+            TileEntity n = te.linked(Dir.fromRot(r));
+            if (n != null && n.island == te.island) wakeEntity(n);
+        }
+    }
+
+    public void wakeEntityAt(int cx, int cy) {
+        TileEntity te = getEntity(cx, cy);
+        if (te == null) return;
+        thawIslandOf(te);
+        wakeEntity(te);
+    }
+
+    private void wakeEntity(TileEntity te) {
+        // Line members are driven by their line's exit conveyor.
+        TransportLine line = lineOf(te);
+        if (line != null) te = line.exit();
+
+        te.wakeTick = -1; // its wheel entry goes stale; sleptAt stays for the catch-up
+        if (te.rank < 0) {
+            // Placed since the last tick order rebuild; that rebuild sets its bit.
+            te.wakeQueued = true;
+        } else {
+            active[te.rank >>> 6] |= 1L << te.rank;
+        }
+        te.resetStall();
+    }
+
+    // Wake a cell and its 4 neighbors (edits, variant/shape changes, rule changes).
+    public void wakeAround(int cx, int cy) {
+        wakeEntityAt(cx, cy);
+        wakeNeighbors(cx, cy);
+    }
+
+    private void wakeNeighbors(int cx, int cy) {
+        wakeEntityAt(cx + 1, cy);
+        wakeEntityAt(cx - 1, cy);
+        wakeEntityAt(cx, cy + 1);
+        wakeEntityAt(cx, cy - 1);
+    }
+
+    public void wakeAll() {
+        thawAll();
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            wakeEntityAt(c.x, c.y);
+        }
+    }
+
+    public int activeEntityCount() {
+        int n = 0;
+        for (long word : active) n += Long.bitCount(word);
+        return n;
+    }
+
+    // ---------------- Tick order ----------------
+    // Entities are stepped downstream first: an item handed to a neighbour that already stepped
+    // this tick stays put (enteredThisTick), so stepping sinks before their feeders lets every
+    // belt move a full pass whichever way it points.
+
+    private void invalidateTickOrder() {
+        tickOrderDirty = true;
+    }
+
+    // Call after an entity changed its ports in place (conveyor shape, splitter/merger variant).
+    // Placement and removal are handled by rebuildEntityAt/clearEntityAt.
+    void portsChangedAt(int cx, int cy) {
+        thawAround(cx, cy);
+        invalidateTickOrder();
+        markIslandSplit(cx + cy * world.wCells);
+    }
+
+    // Iterative DFS over the flow graph (out port -> linked neighbour that accepts from us).
+    // An entity is ranked once everything downstream of it is ranked (post-order), so sinks come first.
+    // Roots are taken in raster order and edges in Dir order, which breaks cycles deterministically:
+    // the edge that closes a loop is simply ignored.
+    // The post-order is then grouped by island (islands numbered by their first cell in raster order),
+    // each island starting on a 64-aligned rank.
+    private void rebuildTickOrder() {
+        tickOrderDirty = false;
+
+        // Active bits are keyed by rank: remember them on the entities across the renumbering.
+        for (int w = 0; w < active.length; w++) {
+            for (long bits = active[w]; bits != 0L; bits &= bits - 1) {
+                TileEntity te = tickOrder[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                if (te != null) te.wakeQueued = true;
+            }
+        }
+
+        // Islands: number them, and tag every entity with its island.
+        if (islandSplitCount > 0) relabelSplitIslands();
+        int count = 0;
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null) continue;
+            te.island = -1;
+            count++;
+        }
+        int islands = 0;
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null) continue;
+            TileEntity root = findIsland(te);
+            if (root.island < 0) {
+                root.island = islands++;
+                if (islandBounds.length < islands * 4) islandBounds = Arrays.copyOf(islandBounds, islands * 8);
+                int b = root.island * 4;
+                islandBounds[b] = islandBounds[b + 2] = c.x;
+                islandBounds[b + 1] = islandBounds[b + 3] = c.y;
+            }
+            te.island = root.island;
+
+            // Raster order: minY is already right, and maxY only grows.
+            int b = te.island * 4;
+            islandBounds[b] = Math.min(islandBounds[b], c.x);
+            islandBounds[b + 2] = Math.max(islandBounds[b + 2], c.x);
+            islandBounds[b + 3] = c.y;
+        }
+        remapMacro(islands);
+
+        // Downstream-first post-order over all entities.
+        TileEntity[] post = new TileEntity[count];
+        count = 0;
+        int mark = ++visitStamp;
+        TileEntity[] stack = new TileEntity[16];
+        int[] nextEdge = new int[16];
+
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity root = getEntity(c.x, c.y);
+            if (root == null || root.visitMark == mark) continue;
+
+            root.visitMark = mark;
+            stack[0] = root;
+            nextEdge[0] = 0;
+            int sp = 1;
+
+            while (sp > 0) {
+                TileEntity te = stack[sp - 1];
+
+                TileEntity pushed = null;
+                while (nextEdge[sp - 1] < 4) {
+                    Dir d = Dir.fromRot(nextEdge[sp - 1]++);
+                    if ((te.outputPorts() & (1 << d.ordinal())) == 0) continue;
+
+                    TileEntity n = te.linked(d);
+                    if (n == null || !n.acceptsFrom(d.opposite())) continue;
+                    if (n.visitMark == mark) continue;
+                    n.visitMark = mark;
+                    pushed = n;
+                    break;
+                }
+
+                if (pushed != null) {
+                    if (sp == stack.length) {
+                        stack = Arrays.copyOf(stack, sp * 2);
+                        nextEdge = Arrays.copyOf(nextEdge, sp * 2);
+                    }
+                    stack[sp] = pushed;
+                    nextEdge[sp] = 0;
+                    sp++;
+                } else {
+                    sp--;
+                    post[count++] = te;
+                }
+            }
+        }
+
+        // Rank ranges per island, then place the post-order into them (stable, so still downstream-first).
+        if (islandStart.length < islands) {
+            int n = Math.max(islands, islandStart.length * 2);
+            islandStart = Arrays.copyOf(islandStart, n);
+            islandEnd = Arrays.copyOf(islandEnd, n);
+        }
+        Arrays.fill(islandEnd, 0, islands, 0);
+        for (int i = 0; i < count; i++) islandEnd[post[i].island]++;
+        int ranks = 0;
+        for (int i = 0; i < islands; i++) {
+            int size = islandEnd[i];
+            islandStart[i] = ranks;
+            islandEnd[i] = ranks; // fill cursor; ends up as the real end
+            ranks = (ranks + size + 63) & ~63;
+        }
+
+        if (tickOrder.length != ranks) tickOrder = new TileEntity[ranks];
+        else Arrays.fill(tickOrder, null);
+        for (int i = 0; i < count; i++) {
+            TileEntity te = post[i];
+            te.rank = islandEnd[te.island]++;
+            tickOrder[te.rank] = te;
+        }
+        islandCount = islands;
+        entityWords = ranks >>> 6;
+        if (wordEffects.length < entityWords) wordEffects = Arrays.copyOf(wordEffects, entityWords);
+        for (int i = 0; i < count; i++) post[i].hashSink = effectsFor(post[i].rank >>> 6);
+
+        if (active.length != entityWords) active = new long[entityWords];
+        else Arrays.fill(active, 0L);
+        for (int i = 0; i < count; i++) {
+            TileEntity te = post[i];
+            if (!te.wakeQueued) continue;
+            te.wakeQueued = false;
+            TransportLine line = lineOf(te);
+            if (line != null && line.exit() != te) continue; // stepped by its exit (see linkChainThrough)
+            active[te.rank >>> 6] |= 1L << te.rank;
+        }
+    }
+
+    // ---------------- Islands ----------------
+    // Two entities are on the same island when items can pass between them (either direction).
+    // Nothing else in a tick crosses islands, which is what lets IslandExecutor run them in parallel.
+
+    // Call after the entity at (cx, cy) was placed or removed. mayCut: there was an entity here before,
+    // so edges through this cell may be gone and the islands around it are re-labelled before the next tick.
+    private void updateIslandsAt(int cx, int cy, boolean mayCut) {
+        if (mayCut) markIslandSplit(cx + cy * world.wCells);
+
+        TileEntity te = getEntity(cx, cy);
+        if (te == null) return;
+
+        te.islandUp = te;
+        for (int r = 0; r < 4; r++) {
+            Dir d = Dir.fromRot(r);
+            if (flowsAcross(te, d)) unionIslands(te, te.linked(d));
+        }
+    }
+
+    private void markIslandSplit(int idx) {
+        if (islandSplitCount == islandSplitCells.length) {
+            islandSplitCells = Arrays.copyOf(islandSplitCells, islandSplitCount * 2);
+        }
+        islandSplitCells[islandSplitCount++] = idx;
+    }
+
+    private static boolean flowsAcross(TileEntity te, Dir d) {
+        TileEntity n = te.linked(d);
+        if (n == null) return false;
+        int out = 1 << d.ordinal();
+        int in = 1 << d.opposite().ordinal();
+        return ((te.outputPorts() & out) != 0 && (n.inputPorts() & in) != 0)
+            || ((n.outputPorts() & in) != 0 && (te.inputPorts() & out) != 0);
+    }
+
+    private static TileEntity findIsland(TileEntity te) {
+        while (te.islandUp != te) {
+            te.islandUp = te.islandUp.islandUp; // path halving
+            te = te.islandUp;
+        }
+        return te;
+    }
+
+    private void unionIslands(TileEntity a, TileEntity b) {
+        TileEntity ra = findIsland(a);
+        TileEntity rb = findIsland(b);
+        if (ra == rb) return;
+        // Lower cell index wins, so the result doesn't depend on union order.
+        if (cellIndex(ra) < cellIndex(rb)) rb.islandUp = ra;
+        else ra.islandUp = rb;
+    }
+
+    private int cellIndex(TileEntity te) {
+        return te.cellX + te.cellY * world.wCells;
+    }
+
+    // Re-label the islands around every queued cell by flood fill over the current edges.
+    // Any island that lost an edge touches a queued cell or one of its neighbours, so those are the only
+    // flood starts needed; everything else keeps its union-find tree.
+    private void relabelSplitIslands() {
+        int mark = ++visitStamp;
+        TileEntity[] queue = new TileEntity[16];
+
+        for (int i = 0; i < islandSplitCount; i++) {
+            int idx = islandSplitCells[i];
+            int cx = idx % world.wCells, cy = idx / world.wCells;
+            for (int r = -1; r < 4; r++) {
+                int sx = cx, sy = cy;
+                if (r >= 0) {
+                    sx += Dir.fromRot(r).dx;
+                    sy += Dir.fromRot(r).dy;
+                }
+                TileEntity start = getEntity(sx, sy);
+                if (start == null || start.visitMark == mark) continue;
+
+                // Flood this island; its first entity becomes the root.
+                start.visitMark = mark;
+                queue[0] = start;
+                int head = 0, tail = 1;
+                while (head < tail) {
+                    TileEntity te = queue[head++];
+                    te.islandUp = start;
+                    for (int e = 0; e < 4; e++) {
+                        Dir d = Dir.fromRot(e);
+                        if (!flowsAcross(te, d)) continue;
+                        TileEntity n = te.linked(d);
+                        if (n.visitMark == mark) continue;
+                        n.visitMark = mark;
+                        if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                        queue[tail++] = n;
+                    }
+                }
+            }
+        }
+        islandSplitCount = 0;
+    }
+
+    // ---------------- Macro regions ----------------
+    // With a focus set (the camera view), islands entirely outside it plus MACRO_MARGIN stop being
+    // stepped once their output repeats. Each is watched until its steady state cycles, then one period
+    // of its sales and processed items is recorded and checked, and from then on that recording is
+    // replayed tick by tick (MacroIsland) while the island's entities sit still. Coming into focus or
+    // being touched (edit, wake, spawn, shape/variant change) thaws it: it is stepped silently through the
+    // phase it had reached and carries on. Money and orders see exactly what stepping everything would
+    // give, at the same ticks; only item ids differ. An island that doesn't cycle within
+    // MacroIsland.MAX_PERIOD is looked at less and less often rather than hashed every tick.
+    // Off in two-phase mode, where handoffs are committed world-wide rather than per island.
+
+    private static final int MACRO_MARGIN = 8;
+
+    private boolean focusSet = false;
+    private int focusX0, focusY0, focusX1, focusY1;
+
+    // By island index; kept across tick order rebuilds through the anchor entity.
+    private MacroIsland[] macro = new MacroIsland[16];
+
+    // Cells [x0, x1] x [y0, y1] (inclusive) are on screen. Call whenever the view moves.
+    public void setFocus(int x0, int y0, int x1, int y1) {
+        focusSet = true;
+        focusX0 = x0 - MACRO_MARGIN;
+        focusY0 = y0 - MACRO_MARGIN;
+        focusX1 = x1 + MACRO_MARGIN;
+        focusY1 = y1 + MACRO_MARGIN;
+    }
+
+    // Back to stepping everything (the default).
+    public void clearFocus() {
+        focusSet = false;
+        thawAll();
+    }
+
+    public int frozenIslandCount() {
+        int n = 0;
+        for (int i = 0; i < islandCount; i++) {
+            if (macro[i] != null && macro[i].isFrozen()) n++;
+        }
+        return n;
+    }
+
+    private boolean inFocus(int island) {
+        int b = island * 4;
+        return islandBounds[b] <= focusX1 && islandBounds[b + 2] >= focusX0
+            && islandBounds[b + 1] <= focusY1 && islandBounds[b + 3] >= focusY0;
+    }
+
+    // After each tick: thaw what came into view, watch or record everything else.
+    private void updateMacro() {
+        for (int i = 0; i < islandCount; i++) {
+            MacroIsland m = macro[i];
+            if (inFocus(i)) {
+                if (m != null) thaw(i);
+            } else if (m == null) {
+                macro[i] = new MacroIsland(tickOrder[islandStart[i]], islandSteadyHash(i));
+            } else if (!m.isFrozen() && !m.resting()) {
+                if (m.observe(islandSteadyHash(i))) m.frozenAt = tick;
+            }
+        }
+    }
+
+    // Tick order rebuilt: islands were renumbered. Anything touched by an edit was thawed first, so every
+    // remaining entry still describes a whole island, now wherever its anchor ended up.
+    private void remapMacro(int islands) {
+        MacroIsland[] next = new MacroIsland[Math.max(islands, 16)];
+        for (int i = 0; i < islandCount; i++) {
+            MacroIsland m = macro[i];
+            if (m == null) continue;
+            TileEntity a = m.anchor;
+            if (getEntity(a.cellX, a.cellY) == a) next[a.island] = m;
+        }
+        macro = next;
+    }
+
+    // Between ticks, from outside the sim: resume the island of te before anything changes it.
+    void thawAround(int cx, int cy) {
+        thawIslandOf(getEntity(cx, cy));
+        for (int r = 0; r < 4; r++) {
+            Dir d = Dir.fromRot(r);
+            thawIslandOf(getEntity(cx + d.dx, cy + d.dy));
+        }
+    }
+
+    private void thawIslandOf(TileEntity te) {
+        // Entities placed since the last rebuild (rank -1) have no island yet, and nothing macro near them.
+        if (te == null || te.rank < 0 || te.island < 0 || te.island >= islandCount) return;
+        if (macro[te.island] != null) thaw(te.island);
+    }
+
+    private void thawAll() {
+        for (int i = 0; i < islandCount; i++) {
+            if (macro[i] != null) thaw(i);
+        }
+    }
+
+    // The whole state is about to be replaced (loading): forget the recordings without stepping.
+    private void dropMacro() {
+        Arrays.fill(macro, null);
+    }
+
+    // Step a frozen island through the phase it reached, as the ticks it missed. Its output over those
+    // ticks was already replayed, so sales only remove the item here. Watched islands are just dropped.
+    private void thaw(int island) {
+        MacroIsland m = macro[island];
+        macro[island] = null;
+        if (m == null || !m.isFrozen()) return;
+
+        int now = tick;
+        int phase = m.phase();
+
+        // Its timers stood still at the freeze. The state it froze in is also the state of `phase` ticks
+        // ago (whole periods later), so move them on by those periods.
+        thawSleepers.clear();
+        int shift = now - phase - m.frozenAt;
+        for (int rank = islandStart[island]; rank < islandEnd[island]; rank++) {
+            TileEntity te = tickOrder[rank];
+            if (te == null) continue;
+            if (te.sleptAt >= 0) te.sleptAt += shift;
+            if (te.wakeTick >= 0) {
+                te.wakeTick += shift;
+                thawSleepers.add(te);
+            }
+        }
+
+        for (int t = phase - 1; t >= 0; t--) {
+            tick = now - t;
+            for (int i = 0; i < thawSleepers.size(); i++) {
+                if (thawSleepers.get(i).wakeTick == tick) wakeEntity(thawSleepers.get(i));
+            }
+            stepIsland(island);
+            for (int w = islandStart[island] >>> 6; (w << 6) < islandEnd[island]; w++) {
+                if (wordEffects[w] != null) applyCatchUpEffects(wordEffects[w]);
+            }
+        }
+        tick = now;
+
+        for (int i = 0; i < thawSleepers.size(); i++) {
+            TileEntity te = thawSleepers.get(i);
+            if (te.wakeTick > now) timers.add(te);
+        }
+        thawSleepers.clear();
+
+        // Its timers moved with the shift, and whatever didn't step still hashes as of the freeze.
+        for (int rank = islandStart[island]; rank < islandEnd[island]; rank++) {
+            TileEntity te = tickOrder[rank];
+            if (te != null) rehashState(te, hashNow(te));
+        }
+    }
+
+    private final ArrayList<TileEntity> thawSleepers = new ArrayList<>();
+
+    void replayMacroEvent(byte kind, ItemType type, int value, int tileId, int count) {
+        switch (kind) {
+            case MacroIsland.SELL:
+                addMoney(value);
+                orders.onItemSold(type, 1, money, tick);
+                if (tally != null) tally.sold(type, value);
+                break;
+            case MacroIsland.PROCESSED:
+                orders.onItemProcessed(tileId, type, count, money);
+                if (tally != null) tally.processed(tileId, type, count);
+                break;
+        }
+    }
+
+    // ---------------- Tick effects ----------------
+    // Entities report world-wide changes through these while stepping; they are applied after all
+    // islands have stepped (see TickEffects).
+
+    public void sellItem(TileEntity seller, Item item) {
+        effectsOf(seller).sell(item.id());
+    }
+
+    public void reportProcessed(TileEntity machine, int tileId, ItemType type, int count) {
+        effectsOf(machine).processed(tileId, type, count);
+    }
+
+    // The new item lands on (u, v) of the spawner, entered this tick; that cell must be empty.
+    public void spawnItem(TileEntity spawner, int u, int v, ItemType type, int value) {
+        effectsOf(spawner).spawn(spawner, u, v, type, value);
+    }
+
+    // A machine turning the item in its process cell into its product (value in cents). Goes through
+    // here rather than onto the item directly so the world hash follows (see worldHash).
+    public void transformItem(TileEntity machine, Item item, ItemType type, int value) {
+        machine.hashSink.hashDelta += itemTerm(item.id(), type, value) - itemTerm(item.id(), item.type(), item.value());
+        item.setType(type);
+        item.setValue(value);
+    }
+
+    // The buffer of the word te is stepped in. Only that word's task writes it, whatever the executor.
+    private TickEffects effectsOf(TileEntity te) {
+        return effectsFor(te.rank >>> 6);
+    }
+
+    private TickEffects effectsFor(int word) {
+        TickEffects fx = wordEffects[word];
+        if (fx == null) wordEffects[word] = fx = new TickEffects();
+        return fx;
+    }
+
+    // recorder: the island is being recorded for macro replay (see MacroIsland), or null.
+    private void applyEffects(TickEffects fx, MacroIsland recorder) {
+        for (int i = 0; i < fx.size(); i++) {
+            switch (fx.kind(i)) {
+                case TickEffects.SELL: {
+                    Item it = items.get(fx.a(i));
+                    if (it == null) break;
+                    addMoney(it.value());
+                    orders.onItemSold(it.type(), 1, money, tick);
+                    if (tally != null) tally.sold(it.type(), it.value());
+                    if (recorder != null) recorder.recordSell(it.type(), it.value());
+                    items.delete(it.id());
+                    break;
+                }
+                case TickEffects.PROCESSED: {
+                    orders.onItemProcessed(fx.a(i), fx.type(i), fx.b(i), money);
+                    if (tally != null) tally.processed(fx.a(i), fx.type(i), fx.b(i));
+                    if (recorder != null) recorder.recordProcessed(fx.a(i), fx.type(i), fx.b(i));
+                    break;
+                }
+                case TickEffects.SPAWN:
+                    applySpawn(fx, i);
+                    break;
+                case TickEffects.TIMER: {
+                    TileEntity te = fx.target(i);
+                    if (te.wakeTick >= 0) timers.add(te);
+                    break;
+                }
+            }
+        }
+        fx.clear();
+    }
+
+    // Thawing (see thaw): the world already saw these, only the island's own items change.
+    private void applyCatchUpEffects(TickEffects fx) {
+        for (int i = 0; i < fx.size(); i++) {
+            switch (fx.kind(i)) {
+                case TickEffects.SELL:
+                    items.delete(fx.a(i));
+                    break;
+                case TickEffects.SPAWN:
+                    applySpawn(fx, i);
+                    break;
+                case TickEffects.TIMER:
+                    thawSleepers.add(fx.target(i));
+                    break;
+            }
+        }
+        fx.clear();
+    }
+
+    private void applySpawn(TickEffects fx, int i) {
+        TileEntity te = fx.target(i);
+        int k = fx.a(i);
+        Item it = createItem(fx.type(i), fx.value(i));
+        te.setOcc(k / TileEntity.N, k % TileEntity.N, it.id());
+        it.markEntered(tick);
+    }
+
+    // Hash of everything the sim evolves (tick, money, every item and the subcell it sits on).
+    // Two runs that agree on this every tick did the same thing, e.g. serial vs parallel islands.
+    public long stateHash() {
+        long h = 0xcbf29ce484222325L; // FNV-1a
+        h = hashMix(h, tick);
+        h = hashMix(h, (int) money);
+        h = hashMix(h, (int) (money >>> 32));
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null) continue;
+            for (int m = te.occupiedMask(); m != 0; m &= m - 1) {
+                int k = Integer.numberOfTrailingZeros(m);
+                int id = te.getItemIdAt(k / TileEntity.N, k % TileEntity.N);
+                h = hashMix(h, c.x + c.y * world.wCells);
+                h = hashMix(h, k);
+                h = hashMix(h, id);
+                Item it = items.get(id);
+                if (it == null) continue;
+                h = hashMix(h, it.type().ordinal());
+                h = hashMix(h, it.value());
+            }
+        }
+        return h;
+    }
+
+    // Like stateHash, but of what decides the future rather than of history: item ids, the tick and money
+    // are left out, machine timers and whether each entity is awake are added. Two ticks with the same
+    // value behave the same from then on (OfflineProgress relies on that to find a steady state).
+    long steadyStateHash() {
+        // Walks the tick order (entities only), so call it between ticks with no edits pending.
+        if (tickOrderDirty) rebuildTickOrder();
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < islandCount; i++) {
+            // A frozen island's entities stand still; where it is in its cycle is the phase.
+            MacroIsland m = macro[i];
+            boolean frozen = m != null && m.isFrozen();
+            if (frozen) h = hashMix(h, m.phase());
+            h = mixRanks(h, islandStart[i], islandEnd[i], frozen ? m.frozenAt : tick);
+        }
+        return h;
+    }
+
+    private long islandSteadyHash(int island) {
+        return mixRanks(0xcbf29ce484222325L, islandStart[island], islandEnd[island], tick);
+    }
+
+    // now: the tick the entities' timer fields are relative to (a frozen island's stand still).
+    private long mixRanks(long h, int from, int to, int now) {
+        for (int rank = from; rank < to; rank++) {
+            TileEntity te = tickOrder[rank];
+            if (te == null) continue;
+            h = hashMix(h, te.cellX + te.cellY * world.wCells);
+            h = hashMix(h, (active[rank >>> 6] & (1L << rank)) != 0L ? 1 : 0);
+            h = te.mixSteadyState(this, h);
+            h = hashMix(h, te.sleptAt < 0 ? -1 : now - te.sleptAt);
+            h = hashMix(h, te.wakeTick < 0 ? -1 : te.wakeTick - now);
+            for (int m = te.occupiedMask(); m != 0; m &= m - 1) {
+                int k = Integer.numberOfTrailingZeros(m);
+                h = hashMix(h, k);
+                Item it = items.get(te.getItemIdAt(k / TileEntity.N, k % TileEntity.N));
+                if (it == null) continue;
+                h = hashMix(h, it.type().ordinal());
+                h = hashMix(h, it.value());
+            }
+        }
+        return h;
+    }
+
+    private static long hashMix(long h, int v) {
+        h ^= v;
+        return h * 0x100000001b3L;
+    }
+
+    // ---------------- World hash ----------------
+    // worldHash() covers what stateHash() does plus the entities' own state (machine timers, toggles),
+    // but is kept up to date as the world changes instead of walking it. It is a sum (mod 2^64) of one
+    // well-mixed term per occupied subcell, per live item and per entity, so a change just adds its new
+    // term minus its old one, and sums come out the same whatever order the blocks ran in. Entities add
+    // their changes to the TickEffects of the block they step in (TileEntity.hashSink), which
+    // worldHash() folds in. Bulk changes (loading, skipTicks) recompute it instead.
+
+    private long hashSum = 0L;                              // occupancy and entity terms folded so far
+    private final TickEffects editSink = new TickEffects(); // sink of entities placed since the last rebuild
+
+    // O(blocks) between ticks. Equal values mean equal worlds, up to hash collisions; see DivergenceChecker.
+    public long worldHash() {
+        foldHashSinks();
+        return finishHash(hashSum + items.hash());
+    }
+
+    // The same value walked from scratch (tests check the incremental one against it).
+    long recomputeWorldHash() {
+        long sum = items.hashFromScratch();
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te != null) sum += entityTerms(te);
+        }
+        return finishHash(sum);
+    }
+
+    // One tile's share of the sum: its entity and the items on it; 0 for an empty cell.
+    long tileHash(int cx, int cy) {
+        TileEntity te = getEntity(cx, cy);
+        if (te == null) return 0L;
+        long h = entityTerms(te);
+        for (int m = te.occupiedMask(); m != 0; m &= m - 1) {
+            int k = Integer.numberOfTrailingZeros(m);
+            Item it = items.get(te.getItemIdAt(k / TileEntity.N, k % TileEntity.N));
+            if (it != null) h += itemTerm(it.id(), it.type(), it.value());
+        }
+        return h;
+    }
+
+    private void foldHashSinks() {
+        hashSum += editSink.hashDelta;
+        editSink.hashDelta = 0L;
+        for (TickEffects fx : wordEffects) {
+            if (fx == null) continue;
+            hashSum += fx.hashDelta;
+            fx.hashDelta = 0L;
+        }
+    }
+
+    private void resetWorldHash() {
+        foldHashSinks();
+        hashSum = 0L;
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null) continue;
+            te.stateTerm = stateTerm(te, hashNow(te));
+            hashSum += entityTerms(te);
+        }
+        items.resetHash();
+    }
+
+    // After te stepped (or its timers moved), on te's block's thread.
+    private void rehashState(TileEntity te, int now) {
+        long t = stateTerm(te, now);
+        te.hashSink.hashDelta += t - te.stateTerm;
+        te.stateTerm = t;
+    }
+
+    // The tick te's fields are relative to: when it went to sleep on its timer, when its island froze, or now.
+    private int hashNow(TileEntity te) {
+        if (te.sleptAt >= 0) return te.sleptAt;
+        MacroIsland m = (te.island >= 0 && te.island < islandCount) ? macro[te.island] : null;
+        return (m != null && m.isFrozen()) ? m.frozenAt : tick;
+    }
+
+    private long entityTerms(TileEntity te) {
+        long h = stateTerm(te, hashNow(te));
+        for (int m = te.occupiedMask(); m != 0; m &= m - 1) {
+            int k = Integer.numberOfTrailingZeros(m);
+            h += occTerm(te.cellX, te.cellY, k, te.getItemIdAt(k / TileEntity.N, k % TileEntity.N));
+        }
+        return h;
+    }
+
+    private long finishHash(long sum) {
+        return mix64(mix64(sum + tick) ^ money);
+    }
+
+    static long occTerm(int cx, int cy, int k, int id) {
+        if (id == TileEntity.EMPTY) return 0L;
+        return mix64(mix64(cellKey(cx, cy) * 32 + k) ^ ((long) id << 2 | 1));
+    }
+
+    static long itemTerm(int id, ItemType type, int value) {
+        return mix64(mix64((long) id << 8 | type.ordinal()) ^ ((long) value << 2 | 2));
+    }
+
+    private static long stateTerm(TileEntity te, int now) {
+        return mix64(mix64(cellKey(te.cellX, te.cellY)) ^ te.hashState(now) * 4 + 3);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return (long) cx << 32 | (cy & 0xFFFFFFFFL);
+    }
+
+    // SplitMix64's finalizer: every input bit reaches every output bit, so sums of terms don't cancel.
+    private static long mix64(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // ---------------- Transport lines ----------------
+    // Chains of 2+ conveyors (each feeding the next) are stepped as one TransportLine.
+    // Edits dissolve the lines around them and mark the cells; relinking happens at the start of the
+    // next tick, so a burst of edits (loading, SmartPlacement passes) only links once.
+
+    // Call around any change to which conveyors feed which: entity placed/removed, conveyor shape changed.
+    void relinkAround(int cx, int cy) {
+        markRelink(cx, cy);
+        markRelink(cx + 1, cy);
+        markRelink(cx - 1, cy);
+        markRelink(cx, cy + 1);
+        markRelink(cx, cy - 1);
+    }
+
+    // On by default. Off: every conveyor steps on its own, for comparing the two (see TransportLine).
+    public void setTransportLines(boolean on) {
+        if (on == transportLines) return;
+        transportLines = on;
+        relinkAll();
+    }
+
+    private void relinkAll() {
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            markRelink(c.x, c.y);
+        }
+    }
+
+    private void markRelink(int cx, int cy) {
+        if (!world.inBoundsCell(cx, cy)) return;
+
+        TransportLine line = lineOf(getEntity(cx, cy));
+        if (line != null) dissolveLine(line);
+
+        queueRelink(cx + cy * world.wCells);
+    }
+
+    private void dissolveLine(TransportLine line) {
+        line.dissolve();
+        for (int i = 0; i < line.memberCount(); i++) {
+            ConveyorEntity c = line.member(i);
+            queueRelink(c.cellX + c.cellY * world.wCells);
+            // Back on per-tile stepping until relinked; items may be mid-belt.
+            wakeEntityAt(c.cellX, c.cellY);
+        }
+    }
+
+    private void queueRelink(int idx) {
+        if (relinkCount == relinkCells.length) relinkCells = Arrays.copyOf(relinkCells, relinkCount * 2);
+        relinkCells[relinkCount++] = idx;
+    }
+
+    private void relinkPendingCells() {
+        // Linking can dissolve (and so queue) more lines; the loop picks those up in the same sweep.
+        for (int i = 0; i < relinkCount; i++) {
+            int idx = relinkCells[i];
+            TileEntity te = getEntity(idx % world.wCells, idx / world.wCells);
+            if (te instanceof ConveyorEntity && ((ConveyorEntity) te).line() == null) {
+                linkChainThrough((ConveyorEntity) te);
+            }
+        }
+        relinkCount = 0;
+    }
+
+    private void linkChainThrough(ConveyorEntity c) {
+        if (!transportLines) return;
+
+        // Walk upstream to the first conveyor. Each conveyor has at most one feeder and one target,
+        // so coming back around to c means a closed loop; those stay on per-tile stepping.
+        ConveyorEntity head = c;
+        for (ConveyorEntity p = feederOf(head); p != null; p = feederOf(head)) {
+            if (p == c) return;
+            head = p;
+        }
+
+        ArrayList<ConveyorEntity> chain = new ArrayList<>();
+        for (ConveyorEntity n = head; n != null; n = targetOf(n)) {
+            TransportLine old = n.line();
+            if (old != null) dissolveLine(old); // absorbed into the longer chain
+            chain.add(n);
+        }
+
+        TransportLine line = TransportLine.link(this, chain.toArray(new ConveyorEntity[0]));
+        if (line == null) return;
+        wakeEntityAt(line.exit().cellX, line.exit().cellY);
+
+        // The other members may still be awake from per-tile stepping. Their steps do nothing now, but
+        // in a two-phase tick they'd run in their own blocks while the exit's block moves their items.
+        for (int i = 0; i < line.memberCount() - 1; i++) {
+            TileEntity m = line.member(i);
+            m.wakeQueued = false;
+            if (!tickOrderDirty && m.rank >= 0) active[m.rank >>> 6] &= ~(1L << m.rank);
+        }
+    }
+
+    private ConveyorEntity feederOf(ConveyorEntity c) {
+        TileEntity n = c.linked(c.inputEdge());
+        if (!(n instanceof ConveyorEntity)) return null;
+        return feeds((ConveyorEntity) n, c) ? (ConveyorEntity) n : null;
+    }
+
+    private ConveyorEntity targetOf(ConveyorEntity c) {
+        TileEntity n = c.linked(Dir.fromRot(c.rot));
+        if (!(n instanceof ConveyorEntity)) return null;
+        return feeds(c, (ConveyorEntity) n) ? (ConveyorEntity) n : null;
+    }
+
+    private boolean feeds(ConveyorEntity from, ConveyorEntity to) {
+        Dir out = Dir.fromRot(from.rot);
+        return from.linked(out) == to && to.inputEdge() == out.opposite();
+    }
+
+    private static TransportLine lineOf(TileEntity te) {
+        return (te instanceof ConveyorEntity) ? ((ConveyorEntity) te).line() : null;
+    }
+
     // --- Rendering helper: subcell -> world coords ---
     public float subcellCenterX(int cellX, int u) {
         float sub = WorldGrid.CELL / 5f;
@@ -239,7 +1762,10 @@ public final class TileWorld {
         }
         if (curOk) return;
 
-        // Otherwise choose any valid incoming connection.
+        // Otherwise choose any valid incoming connection (the entry edge changes, so relink after).
+        relinkAround(cx, cy);
+        portsChangedAt(cx, cy);
+        placementWork.mark(cx, cy);
         // Priority is arbitrary; you said you don't care.
         if (straightIn) c.setShape( ConveyorEntity.Shape.STRAIGHT);
         else if (leftIn) c.setShape( ConveyorEntity.Shape.TURN_LEFT);
@@ -251,29 +1777,20 @@ public final class TileWorld {
         }
     }
 
-    private boolean neighborOutputsInto(int cx, int cy, Dir fromEdgeIntoThis) {
-        int nx = cx + fromEdgeIntoThis.dx;
-        int ny = cy + fromEdgeIntoThis.dy;
+    // --- Port graph queries by cell (SmartPlacement and Main's port overlay use these too) ---
+    // They work on empty cells as well: auto-tiling asks before the entity at (cx, cy) exists.
 
-        TileEntity n = getEntity(nx, ny);
+    // True if the neighbour across fromEdgeIntoThis outputs towards (cx, cy).
+    public boolean neighborOutputsInto(int cx, int cy, Dir fromEdgeIntoThis) {
+        TileEntity n = getEntity(cx + fromEdgeIntoThis.dx, cy + fromEdgeIntoThis.dy);
         if (n == null) return false;
-
-        Dir dirFromNeighborToThis = fromEdgeIntoThis.opposite();
-
-        // For now: treat "output direction" as forward rot for these tiles.
-        // (We'll extend for splitters/mergers later.)
-        if (n instanceof SellpadEntity) return false;
-
-        return n.outputsTo(dirFromNeighborToThis);
+        return (n.outputPorts() & (1 << fromEdgeIntoThis.opposite().ordinal())) != 0;
     }
 
-    private boolean canOutputTo(int cx, int cy, Dir out) {
-        int nx = cx + out.dx;
-        int ny = cy + out.dy;
-        TileEntity n = getEntity(nx, ny);
+    // True if a real neighbour across out would take items from (cx, cy).
+    public boolean canOutputTo(int cx, int cy, Dir out) {
+        TileEntity n = getEntity(cx + out.dx, cy + out.dy);
         if (n == null) return false;
-
-        // Can neighbor accept something entering from our side?
         return n.acceptsFrom(out.opposite());
     }
 
@@ -320,21 +1837,22 @@ public final class TileWorld {
         return tick;
     }
 
-    public float getMoney() {
+    // In cents (see Money).
+    public long getMoney() {
         return money;
     }
 
-    // Money is owned by TileWorld (single source of truth).
-    private float money = 0f;
+    // Money is owned by TileWorld (single source of truth), in cents.
+    private long money = 0L;
 
     // Optional: still track "earned this frame" if you like the concept (HUD effects).
-    private float earnedThisFrame = 0f;
+    private long earnedThisFrame = 0L;
 
     /**
-     * Add money to the player total.
+     * Add money (cents) to the player total.
      * IMPORTANT: this is the only place that should mutate money.
      */
-    public void addMoney(float amount) {
+    public void addMoney(long amount) {
         money += amount;
         earnedThisFrame += amount;
 
@@ -343,10 +1861,10 @@ public final class TileWorld {
     }
 
     /**
-     * Spend money for placement.
+     * Spend money (cents) for placement.
      * Returns true if the player could afford it.
      */
-    public boolean trySpendMoney(float amount) {
+    public boolean trySpendMoney(long amount) {
         if (money < amount) return false;
         money -= amount;
 
@@ -357,28 +1875,24 @@ public final class TileWorld {
     }
 
     public void clearItems(){
+        thawAll();
         items.clear();
+        // Stale ids are dropped lazily in step(), so sleeping holders must get a turn.
+        wakeAll();
     }
-    public int exportNextItemId() { return nextItemId; }
+    public int exportNextItemId() { return items.highWater(); }
     public Item getItem(int id) { return items.get(id); }
-    public void deleteItem(int id) { items.remove(id); }
-    public int itemCount() { return items.size(); }
+    public void deleteItem(int id) { items.delete(id); }
+    public int itemCount() { return items.count(); }
     public void importItemSaves(WorldGrid.ItemSave[] itemsFromSave, int nextIdFromSave) {
+        dropMacro();
+        dropTimers();
+        // Occupancy is rewritten below; lines re-adopt it when they relink next tick.
+        relinkAll();
+
         // Clear runtime items + occupancy
         items.clear();
-        for (int y = 0; y < world.hCells; y++) {
-            for (int x = 0; x < world.wCells; x++) {
-                TileEntity te = entities[x][y];
-                if (te == null) continue;
-                for (int u = 0; u < TileEntity.N; u++) {
-                    for (int v = 0; v < TileEntity.N; v++) {
-                        te.occ[u][v] = TileEntity.EMPTY;
-                    }
-                }
-            }
-        }
-
-        int maxId = 0;
+        occupancy.clearAll();
 
         if (itemsFromSave != null) {
             for (WorldGrid.ItemSave s : itemsFromSave) {
@@ -386,105 +1900,104 @@ public final class TileWorld {
                 if (!world.inBoundsCell(s.cx, s.cy)) continue;
                 if (s.u < 0 || s.u >= TileEntity.N || s.v < 0 || s.v >= TileEntity.N) continue;
 
-                TileEntity te = entities[s.cx][s.cy];
+                TileEntity te = getEntity(s.cx, s.cy);
                 if (te == null) continue;
-                if (te.occ[s.u][s.v] != TileEntity.EMPTY) continue;
+                if (te.getItemIdAt(s.u, s.v) != TileEntity.EMPTY) continue;
 
                 int tid = s.typeId & 0xFF;
                 ItemType type = ItemType.fromSaveId(tid);
 
 
 
-                Item it = new Item(s.id, type, s.value);
-                items.put(it.id, it);
-                te.occ[s.u][s.v] = it.id;
-
-                if (it.id > maxId) maxId = it.id;
+                // Saved ids are kept as-is: machines reference their in-process item by id.
+                if (!items.restore(s.id, type, s.value)) continue;
+                te.setOcc(s.u, s.v, s.id);
             }
         }
+        // Ids are slots now, so nextIdFromSave is only informational; free slots come from the gaps.
+        items.rebuildFreeList();
 
-        int candidate = nextIdFromSave;
-        if (candidate <= 0 || candidate <= maxId) candidate = maxId + 1;
-        nextItemId = candidate;
+        wakeAll();
+        resetWorldHash();
     }
-    public Item createItem(ItemType type, float value) {
-        Item it = new Item(nextItemId++, type, value);
-        items.put(it.id, it);
-        return it;
+    // value in cents, like everything else that is money.
+    public Item createItem(ItemType type, int value) {
+        return items.get(items.create(type, value));
     }
     // Spawn into a specific tile’s entry, if valid
-    public void spawnOnTile(int cx, int cy, ItemType type, float value, Dir fromEdge) {
+    public void spawnOnTile(int cx, int cy, ItemType type, int value, Dir fromEdge) {
         TileEntity te = getEntity(cx, cy);
         if (te == null) return;
-        Item it = new Item(nextItemId++, type, value);
-        if (!te.canAccept(it, fromEdge)) return;
-        items.put(it.id, it);
+        thawIslandOf(te);
+        Item it = createItem(type, value);
+        if (!te.canAccept(it, fromEdge)) {
+            items.delete(it.id());
+            return;
+        }
         te.accept(it, fromEdge, tick);
+        wakeEntityAt(cx, cy);
     }
     public WorldGrid.TileSave[] exportTileSaves() {
+        // Frozen islands are behind by their phase, timer sleepers by the ticks they slept through.
+        thawAll();
+        settleTimers();
         ArrayList<WorldGrid.TileSave> out = new ArrayList<>();
 
-        for (int y = 0; y < world.hCells; y++) {
-            for (int x = 0; x < world.wCells; x++) {
-                TileEntity te = entities[x][y];
-                if (te == null) continue;
+        for (ChunkSet.Walk c = entityCells(); c.next(); ) {
+            TileEntity te = getEntity(c.x, c.y);
+            if (te == null) continue;
 
-                WorldGrid.TileSave ts = new WorldGrid.TileSave();
-                ts.cx = x;
-                ts.cy = y;
+            WorldGrid.TileSave ts = new WorldGrid.TileSave();
+            ts.cx = c.x;
+            ts.cy = c.y;
 
-                te.writeSaveData(ts);
-                out.add(ts);
-            }
+            te.writeSaveData(ts);
+            out.add(ts);
         }
         return out.toArray(new WorldGrid.TileSave[0]);
     }
     // Expose occupancy for drawing:
     public Iterable<ItemRenderInfo> renderInfos() {
-        // Simple: walk entities, emit each occupied cell. Not optimized, but fine to start.
+        // Walk the flat occupancy buffer slot by slot; each slot's mask names its occupied cells.
         java.util.ArrayList<ItemRenderInfo> out = new java.util.ArrayList<>();
-        for (int y = 0; y < world.hCells; y++) {
-            for (int x = 0; x < world.wCells; x++) {
-                TileEntity te = entities[x][y];
-                if (te == null) continue;
-                for (int u = 0; u < 5; u++) {
-                    for (int v = 0; v < 5; v++) {
-                        int id = te.occ[u][v];
-                        if (id == TileEntity.EMPTY) continue;
-                        Item it = items.get (id);
-                        if (it == null) continue;
-                        out.add(new ItemRenderInfo(it, subcellCenterX(x, u), subcellCenterY(y, v)));
-                    }
-                }
+        int[] cells = occupancy.cells();
+        for (int slot = 0; slot < occupancy.slotCount(); slot++) {
+            TileEntity te = occupancy.owner(slot);
+            if (te == null) continue;
+
+            int base = slot * OccupancyTable.CELLS;
+            for (int m = te.occupiedMask(); m != 0; m &= m - 1) {
+                int k = Integer.numberOfTrailingZeros(m);
+                Item it = items.get(cells[base + k]);
+                if (it == null) continue;
+                int u = k / TileEntity.N, v = k % TileEntity.N;
+                out.add(new ItemRenderInfo(it, subcellCenterX(te.cellX, u), subcellCenterY(te.cellY, v)));
             }
         }
         return out;
     }
     public ArrayList<WorldGrid.ItemSave> exportItemSaves() {
+        thawAll();
         ArrayList<WorldGrid.ItemSave> out = new ArrayList<>();
 
-        for (int y = 0; y < world.hCells; y++) {
-            for (int x = 0; x < world.wCells; x++) {
-                TileEntity te = entities[x][y];
-                if (te == null) continue;
-
-                for (int u = 0; u < TileEntity.N; u++) {
-                    for (int v = 0; v < TileEntity.N; v++) {
-                        int id = te.occ[u][v];
-                        if (id == TileEntity.EMPTY) continue;
-
-                        Item it = items.get(id);
-                        if (it == null) continue;
-
-                        WorldGrid.ItemSave s = new WorldGrid.ItemSave();
-                        s.id = it.id;
-                        s.typeId = (byte) it.type.saveId;
-                        s.value = it.value;
-                        s.cx = x; s.cy = y;
-                        s.u = u; s.v = v;
-                        out.add(s);
-                    }
-                }
+        int[] cells = occupancy.cells();
+        for (int slot = 0; slot < occupancy.slotCount(); slot++) {
+            TileEntity te = occupancy.owner(slot);
+            if (te == null) continue;
+
+            int base = slot * OccupancyTable.CELLS;
+            for (int m = te.occupiedMask(); m != 0; m &= m - 1) {
+                int k = Integer.numberOfTrailingZeros(m);
+                Item it = items.get(cells[base + k]);
+                if (it == null) continue;
+
+                WorldGrid.ItemSave s = new WorldGrid.ItemSave();
+                s.id = it.id();
+                s.typeId = (byte) it.type().saveId;
+                s.value = it.value();
+                s.cx = te.cellX; s.cy = te.cellY;
+                s.u = k / TileEntity.N; s.v = k % TileEntity.N;
+                out.add(s);
             }
         }
         return out;
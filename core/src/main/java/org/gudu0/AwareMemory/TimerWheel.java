@@ -0,0 +1,62 @@
+package org.gudu0.AwareMemory;
+
+import java.util.Arrays;
+
+/**
+ * Wake-up ticks of entities sleeping on a timer (see TileEntity.idleTimerTicks), hashed by tick into
+ * a fixed ring of slots so scheduling and each tick's check cost O(1) however far ahead the timer is.
+ * <p>
+ * An entry only stands for te.wakeTick: waking an entity early just resets that field, and the stale
+ * entry is dropped when its slot comes round. Entries for later laps of the ring stay in the slot.
+ */
+final class TimerWheel {
+    private static final int SLOTS = 256;
+    private static final int MASK = SLOTS - 1;
+
+    private final TileEntity[][] slots = new TileEntity[SLOTS][];
+    private final int[] counts = new int[SLOTS];
+
+    private TileEntity[] due = new TileEntity[16];
+    private int dueCount = 0;
+
+    void add(TileEntity te) {
+        int s = te.wakeTick & MASK;
+        TileEntity[] slot = slots[s];
+        if (slot == null) slots[s] = slot = new TileEntity[4];
+        else if (counts[s] == slot.length) slots[s] = slot = Arrays.copyOf(slot, slot.length * 2);
+        slot[counts[s]++] = te;
+    }
+
+    // Collect the entities due at `tick` (read them with dueCount/due) and clear their timers' entries.
+    void advanceTo(int tick) {
+        int s = tick & MASK;
+        TileEntity[] slot = slots[s];
+        dueCount = 0;
+        if (slot == null) return;
+
+        int kept = 0;
+        for (int i = 0; i < counts[s]; i++) {
+            TileEntity te = slot[i];
+            if (te.wakeTick == tick) {
+                if (dueCount == due.length) due = Arrays.copyOf(due, dueCount * 2);
+                due[dueCount++] = te;
+            } else if (te.wakeTick > tick && (te.wakeTick & MASK) == s) {
+                slot[kept++] = te;
+            }
+        }
+        Arrays.fill(slot, kept, counts[s], null);
+        counts[s] = kept;
+    }
+
+    int dueCount() { return dueCount; }
+    TileEntity due(int i) { return due[i]; }
+
+    void clear() {
+        for (int s = 0; s < SLOTS; s++) {
+            if (slots[s] != null) Arrays.fill(slots[s], 0, counts[s], null);
+            counts[s] = 0;
+        }
+        Arrays.fill(due, 0, dueCount, null);
+        dueCount = 0;
+    }
+}
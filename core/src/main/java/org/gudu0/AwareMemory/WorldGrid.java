@@ -24,6 +24,8 @@ public class WorldGrid {
     public static final int TILE_FILTER_LR = 10;
     public static final int TILE_FILTER_FR = 11;
     public static final int TILE_FILTER_FL = 12;
+    // One past the highest tile id; keep it in step when adding tiles.
+    public static final int TILE_COUNT = 13;
 
     public final float WORLD_W;
     public final float WORLD_H;
@@ -31,19 +33,25 @@ public class WorldGrid {
     public final int wCells;
     public final int hCells;
 
-    public final int[][] grid;
-    public final int[][] rot;
+    // Tile id and rot per cell, in 32x32 chunks (ChunkSet) that are allocated on the first placement and
+    // dropped when their last tile is cleared. Empty cells read as TILE_EMPTY, rot 0.
+    private final ChunkSet chunks;
+    private final int[][] tileChunks;
+    private final byte[][] rotChunks;
 
     // After loadWithTileWorld(), we stash loaded items until Main finishes rebuilding entities.
     private ItemSave[] pendingItems = null;
     private TileSave[] pendingTileSaves = null;
     private int pendingNextItemId = 0;
 
+    // Wall-clock millis the last loaded save was written at (0 = unknown); see OfflineProgress.
+    private long loadedSavedAtMillis = 0L;
+
 
     public static class ItemSave {
         public int id;
         public byte typeId;   // ItemType.ordinal()
-        public float value;
+        public int value;     // cents
 
         public int cx, cy;    // tile coords
         public int u, v;      // subcell coords 0..4
@@ -65,7 +73,7 @@ public class WorldGrid {
         public int cx, cy;
 
         // machine-specific fields (sparse; only some used per tile)
-        public float f0, f1;
+        public int t0;        // a timer, in ticks
         public int i0, i1, i2;
         public boolean b0;
     }
@@ -76,9 +84,9 @@ public class WorldGrid {
         WORLD_W = wCells * CELL;
         WORLD_H = hCells * CELL;
 
-
-        grid = new int[wCells][hCells];
-        rot  = new int[wCells][hCells];
+        chunks = new ChunkSet(wCells, hCells);
+        tileChunks = new int[chunks.chunkCount()][];
+        rotChunks = new byte[chunks.chunkCount()][];
     }
     public WorldGrid(int width, int height) {
         GRID_W = width;
@@ -88,8 +96,9 @@ public class WorldGrid {
         WORLD_W = wCells * CELL;
         WORLD_H = hCells * CELL;
 
-        grid = new int[wCells][hCells];
-        rot  = new int[wCells][hCells];
+        chunks = new ChunkSet(wCells, hCells);
+        tileChunks = new int[chunks.chunkCount()][];
+        rotChunks = new byte[chunks.chunkCount()][];
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
@@ -97,6 +106,65 @@ public class WorldGrid {
         return cx >= 0 && cy >= 0 && cx < wCells && cy < hCells;
     }
 
+    // Outside the map reads as empty, and writes there are ignored.
+    public int getTile(int cx, int cy) {
+        if (!inBoundsCell(cx, cy)) return TILE_EMPTY;
+        int[] tiles = tileChunks[chunks.chunkOf(cx, cy)];
+        return (tiles == null) ? TILE_EMPTY : tiles[ChunkSet.slotOf(cx, cy)];
+    }
+
+    public int getRot(int cx, int cy) {
+        if (!inBoundsCell(cx, cy)) return 0;
+        byte[] rots = rotChunks[chunks.chunkOf(cx, cy)];
+        return (rots == null) ? 0 : rots[ChunkSet.slotOf(cx, cy)];
+    }
+
+    public void setTile(int cx, int cy, int id) {
+        if (!inBoundsCell(cx, cy)) return;
+        int c = chunks.chunkOf(cx, cy);
+        int slot = ChunkSet.slotOf(cx, cy);
+        int[] tiles = tileChunks[c];
+        int old = (tiles == null) ? TILE_EMPTY : tiles[slot];
+        if (old == id) return;
+
+        if (old == TILE_EMPTY) {
+            if (chunks.retain(c)) {
+                tileChunks[c] = tiles = new int[ChunkSet.AREA];
+                rotChunks[c] = new byte[ChunkSet.AREA];
+            }
+        } else if (id == TILE_EMPTY) {
+            rotChunks[c][slot] = 0;
+            if (chunks.release(c)) {
+                tileChunks[c] = null;
+                rotChunks[c] = null;
+                return;
+            }
+        }
+        tiles[slot] = id;
+    }
+
+    // Only kept for built cells: set the tile first.
+    public void setRot(int cx, int cy, int r) {
+        if (!inBoundsCell(cx, cy)) return;
+        byte[] rots = rotChunks[chunks.chunkOf(cx, cy)];
+        if (rots == null || getTile(cx, cy) == TILE_EMPTY) return;
+        rots[ChunkSet.slotOf(cx, cy)] = (byte) (r & 3);
+    }
+
+    public void setTile(int cx, int cy, int id, int r) {
+        setTile(cx, cy, id);
+        setRot(cx, cy, r);
+    }
+
+    // Every cell of every chunk that has a tile, in raster order (cells in between are empty).
+    ChunkSet.Walk liveCells() {
+        return chunks.walk();
+    }
+
+    public int liveChunkCount() {
+        return chunks.liveCount();
+    }
+
     public String getTileName(int id){
         String idToReturn = "TILE_EMPTY";
         switch (id){
@@ -143,19 +211,28 @@ public class WorldGrid {
                 " Current=" + wCells + "x" + hCells);
         }
 
-        // Fill grid/rot from linear arrays
-        for (int y = 0; y < s.h; y++) {
-            for (int x = 0; x < s.w; x++) {
-                int i = x + y * s.w;
-                grid[x][y] = s.tiles[i];
-                rot[x][y]  = s.rots[i];
+        // Clear what's there, then fill in the saved runs (empty runs cost nothing).
+        for (ChunkSet.Walk c = liveCells(); c.next(); ) setTile(c.x, c.y, TILE_EMPTY);
+        int i = 0;
+        for (int r = 0; r < s.runCount; r++) {
+            int tile = s.runPacked[r] >>> 2;
+            int rot = s.runPacked[r] & 3;
+            int end = i + s.runLength[r];
+            if (tile != TILE_EMPTY) {
+                for (int k = i; k < end; k++) setTile(k % s.w, k / s.w, tile, rot);
             }
+            i = end;
         }
 
         // Stash for later (same pattern you already use)
         pendingItems = s.items;
         pendingNextItemId = s.nextItemId;
         pendingTileSaves = s.tileSaves;
+        loadedSavedAtMillis = s.savedAtMillis;
+    }
+
+    public long getLoadedSavedAtMillis() {
+        return loadedSavedAtMillis;
     }
 
 
@@ -169,7 +246,7 @@ public class WorldGrid {
     }
 
     public int getTileID(int x, int y) {
-        return grid[x][y];
+        return getTile(x, y);
     }
 
     private boolean isWeb() {
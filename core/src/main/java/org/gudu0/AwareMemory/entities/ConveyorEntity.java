@@ -7,23 +7,33 @@ import org.gudu0.AwareMemory.TileWorld;
 
 public final class ConveyorEntity extends TileEntity {
     // Tune later; “passes per tick”
-    public float subcellsPerSecond = 24f; // start here (≈ 12/5 = 2.4 tiles/sec)
-    private float moveAcc = 0f;
-
+    public int subcellsPerSecond = 24; // start here (≈ 12/5 = 2.4 tiles/sec)
 
     public enum Shape { STRAIGHT, TURN_LEFT, TURN_RIGHT }
 
     private Shape shape = Shape.STRAIGHT;
 
-    public void setShape(Shape s) { this.shape = s; }
+    // Cells along every lane path (entry -> exit).
+    public static final int PATH_LENGTH = 5;
+
+    // Set while this conveyor is part of a transport line (TileWorld links/dissolves them).
+    TransportLine line = null;
+
+    // Shape decides the entry edge, so callers re-link transport lines after changing it
+    // (TileWorld.relinkAround).
+    public void setShape(Shape s) {
+        this.shape = s;
+        refreshPorts();
+    }
     public Shape getShape() { return shape; }
+    public TransportLine line() { return line; }
 
     public ConveyorEntity(int cellX, int cellY, int rot) {
         super(cellX, cellY, rot);
     }
 
-    @Override
-    public int[] entryCellFrom(Dir fromEdge) {
+    // The one edge this conveyor takes items from, given its shape.
+    public Dir inputEdge() {
         Dir out = Dir.fromRot(rot);
 
         Dir in = out.opposite(); // default straight.
@@ -42,80 +52,128 @@ public final class ConveyorEntity extends TileEntity {
             }
         }
 
-        if (fromEdge != in) return null;
+        return in;
+    }
+
+    @Override
+    public int[] entryCellFrom(Dir fromEdge) {
+        if (fromEdge != inputEdge()) return null;
 
-        // Base rot0 (output EAST) entry cells:
+        // Entry cell is the first cell of the lane path:
         // STRAIGHT: from WEST edge -> (0,2)
         // LEFT-IN:  from NORTH edge -> (2,4)
         // RIGHT-IN: from SOUTH edge -> (2,0)
-        int[] base = new int[]{0, 2}; // default to straight
-        switch (shape) {
-            case STRAIGHT: {
-                base = new int[]{0, 2};
-                break;
-            }
-            case TURN_LEFT: {
-                base = new int[]{2, 4};
-                break;
-            }
-            case TURN_RIGHT: {
-                base = new int[]{2, 0};
-                break;
-            }
-        }
+        return rotatedPath()[0];
+    }
+
 
-        return rotUV(base[0], base[1], rot);
+    @Override
+    public void accept(Item item, Dir fromEdge, int currentTick) {
+        super.accept(item, fromEdge, currentTick);
+        if (line != null) line.onAccepted(this, item.id());
     }
 
+    @Override
+    public boolean canSleep() {
+        if (line == null) return super.canSleep();
+        // Only the exit conveyor is stepped; it drives the whole line.
+        if (line.exit() != this) return true;
+        return line.isEmpty() || isStalled();
+    }
 
     @Override
     public void step(TileWorld world, int currentTick) {
-        int[][] base = pathBase();
-
-        moveAcc += subcellsPerSecond * world.fixedDt() * world.getItemSpeedMul();
+        if (line != null) {
+            if (line.exit() == this) stepLine(world, currentTick);
+            return;
+        }
 
-        int passes = (int) moveAcc;
+        int passes = world.passes(subcellsPerSecond);
         if (passes <= 0) return;
-        moveAcc -= passes;
-
-        for (int pass = 0; pass < passes; pass++) {
-            // move exit->entry along the path: indices last -> first
-            for (int i = base.length - 1; i >= 0; i--) {
-                int[] uv = rotUV(base[i][0], base[i][1], rot);
-                int u = uv[0], v = uv[1];
-                int itemId = occ[u][v];
-                if (itemId == EMPTY) continue;
-
-                Item item = world.getItem(itemId);
-                if (item == null) { occ[u][v] = EMPTY; continue; }
-                if (item.enteredThisTick(currentTick)) continue;
-
-                // if not last cell in path, move to next cell in path
-                if (i < base.length - 1) {
-                    int[] nextUV = rotUV(base[i+1][0], base[i+1][1], rot);
-                    int nu = nextUV[0], nv = nextUV[1];
-                    if (occ[nu][nv] == EMPTY) {
-                        occ[nu][nv] = itemId;
-                        occ[u][v] = EMPTY;
-                    }
-                    continue;
-                }
+        int versionBefore = occVersion();
+
+        movePasses(world, currentTick, passes);
+
+        endPasses(versionBefore);
+    }
+
+    // `passes` single-cell passes along the path (exit first), applied at once: the same batching as
+    // TransportLine.step, on our own five cells.
+    void movePasses(TileWorld world, int currentTick, int passes) {
+        int[][] path = rotatedPath();
+        int last = path.length - 1;
+
+        // Deleted items leave first; a pass would skip over them just the same.
+        for (int[] uv : path) {
+            int id = occAt(uv[0], uv[1]);
+            if (id != EMPTY && world.getItem(id) == null) setOcc(uv[0], uv[1], EMPTY);
+        }
 
-                // last cell: try handoff to neighbor in outDir()
-                Dir out = Dir.fromRot(rot);
-                int nx = cellX + out.dx;
-                int ny = cellY + out.dy;
+        int left = passes;
+        while (left > 0) {
+            int front = last;
+            while (front >= 0 && occAt(path[front][0], path[front][1]) == EMPTY) front--;
+            if (front < 0) return;
+
+            Item item = world.getItem(occAt(path[front][0], path[front][1]));
+            int toExit = item.enteredThisTick(currentTick) ? Integer.MAX_VALUE : last - front;
+            if (toExit >= left) {
+                advance(world, currentTick, path, left);
+                return;
+            }
+            advance(world, currentTick, path, toExit);
+            left -= toExit;
 
-                TileEntity neighbor = world.getEntity(nx, ny);
-                if (neighbor == null) continue;
-                if (!neighbor.canAccept(item, out.opposite())) continue;
+            // Start of the next pass: the front item is on the last cell and tries to leave.
+            if (!world.handOff(this, Dir.fromRot(rot), item, currentTick)) {
+                advance(world, currentTick, path, left);
+                return;
+            }
+            setOcc(path[last][0], path[last][1], EMPTY);
+            advance(world, currentTick, path, 1);
+            left--;
+        }
+    }
 
-                occ[u][v] = EMPTY;
-                neighbor.accept(item, out.opposite(), currentTick);
+    // `m` passes in which nothing leaves: each item moves up to m cells, stopping behind the one ahead.
+    private void advance(TileWorld world, int currentTick, int[][] path, int m) {
+        if (m <= 0) return;
+        int ahead = path.length;
+        for (int i = path.length - 1; i >= 0; i--) {
+            int id = occAt(path[i][0], path[i][1]);
+            if (id == EMPTY) continue;
+            int to = world.getItem(id).enteredThisTick(currentTick) ? i : Math.min(i + m, ahead - 1);
+            if (to != i) {
+                setOcc(path[i][0], path[i][1], EMPTY);
+                setOcc(path[to][0], path[to][1], id);
             }
+            ahead = to;
         }
     }
 
+    private void stepLine(TileWorld world, int currentTick) {
+        int passes = world.passes(subcellsPerSecond);
+        if (passes <= 0) return;
+        int versionBefore = occVersion();
+
+        // Moves land in other members' occ, so report them as our change.
+        if (line.step(world, currentTick, passes)) markChanged();
+
+        endPasses(versionBefore);
+    }
+
+    // Lane access for TransportLine: k = index along this conveyor's path.
+    int pathItemAt(int k) {
+        int[] uv = rotatedPath()[k];
+        return occAt(uv[0], uv[1]);
+    }
+
+    // Written while `stepper` (the line's exit) steps.
+    void setPathItem(int k, int id, TileEntity stepper) {
+        int[] uv = rotatedPath()[k];
+        setOcc(uv[0], uv[1], id, stepper);
+    }
+
     private static final int[][] PATH_STRAIGHT = {
         {0,2},{1,2},{2,2},{3,2},{4,2}
     };
@@ -128,23 +186,45 @@ public final class ConveyorEntity extends TileEntity {
         {2,0},{2,1},{2,2},{3,2},{4,2}
     };
 
-    private int[][] pathBase() {
-        int[][] returnShape = PATH_STRAIGHT; // Default to straight
+    // Paths above pre-rotated once: ROTATED_PATHS[shape][rot][i] = {u, v}.
+    private static final int[][][][] ROTATED_PATHS = new int[3][4][][];
+    static {
+        int[][][] bases = { PATH_STRAIGHT, PATH_LEFT_IN, PATH_RIGHT_IN };
+        for (int s = 0; s < bases.length; s++) {
+            for (int r = 0; r < 4; r++) {
+                int[][] path = new int[bases[s].length][];
+                for (int i = 0; i < path.length; i++) {
+                    path[i] = rotUV(bases[s][i][0], bases[s][i][1], r);
+                }
+                ROTATED_PATHS[s][r] = path;
+            }
+        }
+    }
+
+    private int[][] rotatedPath() {
+        int shapeIndex = 0; // Default to straight
         switch (shape) {
             case STRAIGHT: {
                 //noinspection DataFlowIssue
-                returnShape = PATH_STRAIGHT;
+                shapeIndex = 0;
                 break;
             }
             case TURN_LEFT: {
-                returnShape = PATH_LEFT_IN;
+                shapeIndex = 1;
                 break;
             }
             case TURN_RIGHT: {
-                returnShape = PATH_RIGHT_IN;
+                shapeIndex = 2;
                 break;
             }
         }
-        return returnShape;
+        return ROTATED_PATHS[shapeIndex][rot & 3];
+    }
+
+    @Override
+    public long mixSteadyState(TileWorld world, long h) {
+        h = super.mixSteadyState(world, h);
+        h = mix(h, world.passPhase(subcellsPerSecond));
+        return h;
     }
 }
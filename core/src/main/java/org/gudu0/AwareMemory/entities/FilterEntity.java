@@ -11,8 +11,7 @@ public final class FilterEntity extends TileEntity {
     public Variant getVariant() { return variant; }
 
     // Movement rate (matches SplitterEntity)
-    public float subcellsPerSecond = 24f;
-    private float moveAcc = 0f;
+    public int subcellsPerSecond = 24;
 
     // Alternates between outputs (same behavior as splitter)
     private boolean toggle = false;
@@ -88,11 +87,9 @@ public final class FilterEntity extends TileEntity {
 
     @Override
     public void step(TileWorld world, int currentTick) {
-        moveAcc += subcellsPerSecond * world.fixedDt() * world.getItemSpeedMul();
-
-        int passes = (int) moveAcc;
+        int passes = world.passes(subcellsPerSecond);
         if (passes <= 0) return;
-        moveAcc -= passes;
+        int versionBefore = occVersion();
 
         for (int pass = 0; pass < passes; pass++) {
             // Exit-first handoff attempts
@@ -111,6 +108,8 @@ public final class FilterEntity extends TileEntity {
             // Move input lane toward decision (back-to-front)
             stepInputTowardDecision();
         }
+
+        endPasses(versionBefore);
     }
 
     // ----------------- Movement pieces -----------------
@@ -122,25 +121,17 @@ public final class FilterEntity extends TileEntity {
         int[] exitUV = rotUV(exitBase[0], exitBase[1], rot);
         int eu = exitUV[0], ev = exitUV[1];
 
-        int itemId = occ[eu][ev];
+        int itemId = occAt(eu, ev);
         if (itemId == EMPTY) return;
 
         Item item = world.getItem(itemId);
-        if (item == null) { occ[eu][ev] = EMPTY; return; }
+        if (item == null) { setOcc(eu, ev, EMPTY); return; }
 
         if (item.enteredThisTick(currentTick)) return;
 
         Dir out = outDir(b);
-        int nx = cellX + out.dx;
-        int ny = cellY + out.dy;
-
-        TileEntity neighbor = world.getEntity(nx, ny);
-        if (neighbor == null) return;
-
-        if (!neighbor.canAccept(item, out.opposite())) return;
-
-        occ[eu][ev] = EMPTY;
-        neighbor.accept(item, out.opposite(), currentTick);
+        if (!world.handOff(this, out, item, currentTick)) return;
+        setOcc(eu, ev, EMPTY);
     }
 
     private void stepBranchInternal(Branch b) {
@@ -153,26 +144,26 @@ public final class FilterEntity extends TileEntity {
         int nu = nuv[0], nv = nuv[1];
         int fu = fuv[0], fv = fuv[1];
 
-        if (occ[nu][nv] == EMPTY) return;
-        if (occ[fu][fv] != EMPTY) return;
+        if (occAt(nu, nv) == EMPTY) return;
+        if (occAt(fu, fv) != EMPTY) return;
 
-        occ[fu][fv] = occ[nu][nv];
-        occ[nu][nv] = EMPTY;
+        setOcc(fu, fv, occAt(nu, nv));
+        setOcc(nu, nv, EMPTY);
     }
 
     private void stepDecision(TileWorld world, int currentTick) {
         int[] dUV = rotUV(2, 2, rot);
         int du = dUV[0], dv = dUV[1];
 
-        int itemId = occ[du][dv];
+        int itemId = occAt(du, dv);
         if (itemId == EMPTY) return;
 
         Item item = world.getItem(itemId);
-        if (item == null) { occ[du][dv] = EMPTY; return; }
+        if (item == null) { setOcc(du, dv, EMPTY); return; }
 
         if (item.enteredThisTick(currentTick)) return;
 
-        ItemType t = item.type;
+        ItemType t = item.type();
 
         boolean okF = branchExists(Branch.FORWARD) && ruleAllows(Branch.FORWARD, t);
         boolean okL = branchExists(Branch.LEFT)    && ruleAllows(Branch.LEFT, t);
@@ -275,14 +266,14 @@ public final class FilterEntity extends TileEntity {
         int[] c1 = rotUV(1, 2, rot);
         int[] d  = rotUV(2, 2, rot);
 
-        if (occ[c1[0]][c1[1]] != EMPTY && occ[d[0]][d[1]] == EMPTY) {
-            occ[d[0]][d[1]] = occ[c1[0]][c1[1]];
-            occ[c1[0]][c1[1]] = EMPTY;
+        if (occAt(c1[0], c1[1]) != EMPTY && occAt(d[0], d[1]) == EMPTY) {
+            setOcc(d[0], d[1], occAt(c1[0], c1[1]));
+            setOcc(c1[0], c1[1], EMPTY);
         }
 
-        if (occ[c0[0]][c0[1]] != EMPTY && occ[c1[0]][c1[1]] == EMPTY) {
-            occ[c1[0]][c1[1]] = occ[c0[0]][c0[1]];
-            occ[c0[0]][c0[1]] = EMPTY;
+        if (occAt(c0[0], c0[1]) != EMPTY && occAt(c1[0], c1[1]) == EMPTY) {
+            setOcc(c1[0], c1[1], occAt(c0[0], c0[1]));
+            setOcc(c0[0], c0[1], EMPTY);
         }
     }
 
@@ -296,10 +287,10 @@ public final class FilterEntity extends TileEntity {
         int[] nearUV = rotUV(nearBase[0], nearBase[1], rot);
         int nu = nearUV[0], nv = nearUV[1];
 
-        if (occ[nu][nv] != EMPTY) return false;
+        if (occAt(nu, nv) != EMPTY) return false;
 
-        occ[nu][nv] = occ[du][dv];
-        occ[du][dv] = EMPTY;
+        setOcc(nu, nv, occAt(du, dv));
+        setOcc(du, dv, EMPTY);
         return true;
     }
 
@@ -333,22 +324,29 @@ public final class FilterEntity extends TileEntity {
         return travel;
     }
 
+    // Base rot0 cells per Branch, indexed by ordinal (FORWARD, LEFT, RIGHT).
+    private static final int[][] NEAR_DECISION_BASE = { {3, 2}, {2, 3}, {2, 1} };
+    private static final int[][] EXIT_CELL_BASE     = { {4, 2}, {2, 4}, {2, 0} };
+
     private int[] branchNearDecisionBase(Branch b) {
-        switch (b) {
-            case FORWARD: return new int[]{3, 2};
-            case LEFT:    return new int[]{2, 3};
-            case RIGHT:   return new int[]{2, 1};
-        }
-        return new int[]{3, 2};
+        return NEAR_DECISION_BASE[b.ordinal()];
     }
 
     private int[] exitCellBase(Branch b) {
-        switch (b) {
-            case FORWARD: return new int[]{4, 2};
-            case LEFT:    return new int[]{2, 4};
-            case RIGHT:   return new int[]{2, 0};
-        }
-        return new int[]{4, 2};
+        return EXIT_CELL_BASE[b.ordinal()];
+    }
+
+    @Override
+    public long mixSteadyState(TileWorld world, long h) {
+        h = super.mixSteadyState(world, h);
+        h = mix(h, world.passPhase(subcellsPerSecond));
+        h = mix(h, toggle ? 1 : 0);
+        return h;
+    }
+
+    @Override
+    public long hashState(int now) {
+        return toggle ? 1 : 0;
     }
 
     @Override
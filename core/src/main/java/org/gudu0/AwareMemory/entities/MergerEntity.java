@@ -19,10 +19,10 @@ public final class MergerEntity extends TileEntity {
     public Variant getVariant() { return variant; }
     public void setVariant(Variant v) {
         if (v != null) this.variant = v;
+        refreshPorts();
     }
 
-    public float subcellsPerSecond = 24f;
-    private float moveAcc = 0f;
+    public int subcellsPerSecond = 24;
 
     // Round-robin lane selector (0=left, 1=right, 2=back)
     private int rr = 0;
@@ -58,11 +58,9 @@ public final class MergerEntity extends TileEntity {
 
     @Override
     public void step(TileWorld world, int currentTick) {
-        moveAcc += subcellsPerSecond * world.fixedDt() * world.getItemSpeedMul();
-
-        int passes = (int) moveAcc;
+        int passes = world.passes(subcellsPerSecond);
         if (passes <= 0) return;
-        moveAcc -= passes;
+        int versionBefore = occVersion();
 
         for (int pass = 0; pass < passes; pass++) {
             stepExit(world, currentTick);
@@ -82,6 +80,8 @@ public final class MergerEntity extends TileEntity {
             moveIfPossible(world, currentTick, 2, 4, 2, 3);
             moveIfPossible(world, currentTick, 2, 0, 2, 1);
         }
+
+        endPasses(versionBefore);
     }
 
     // ---------- Helpers ----------
@@ -90,23 +90,16 @@ public final class MergerEntity extends TileEntity {
         int[] exitUV = rotUV(4, 2, rot);
         int eu = exitUV[0], ev = exitUV[1];
 
-        int itemId = occ[eu][ev];
+        int itemId = occAt(eu, ev);
         if (itemId == EMPTY) return;
 
         Item item = world.getItem(itemId);
-        if (item == null) { occ[eu][ev] = EMPTY; return; }
+        if (item == null) { setOcc(eu, ev, EMPTY); return; }
         if (item.enteredThisTick(currentTick)) return;
 
         Dir out = Dir.fromRot(rot);
-        int nx = cellX + out.dx;
-        int ny = cellY + out.dy;
-
-        TileEntity neighbor = world.getEntity(nx, ny);
-        if (neighbor == null) return;
-        if (!neighbor.canAccept(item, out.opposite())) return;
-
-        occ[eu][ev] = EMPTY;
-        neighbor.accept(item, out.opposite(), currentTick);
+        if (!world.handOff(this, out, item, currentTick)) return;
+        setOcc(eu, ev, EMPTY);
     }
 
     /**
@@ -119,7 +112,7 @@ public final class MergerEntity extends TileEntity {
     private void feedDecisionFromInputs(TileWorld world, int currentTick) {
         int[] dUV = rotUV(2, 2, rot);
         int du = dUV[0], dv = dUV[1];
-        if (occ[du][dv] != EMPTY) return;
+        if (occAt(du, dv) != EMPTY) return;
 
         // Base coords near decision:
         // left  lane near = (2,3)
@@ -129,12 +122,6 @@ public final class MergerEntity extends TileEntity {
         final int RIGHT = 1;
         final int BACK  = 2;
 
-        int[][] sourcesBase = {
-            {2, 3}, // LEFT
-            {2, 1}, // RIGHT
-            {1, 2}  // BACK
-        };
-
         boolean allowBack  = (variant != Variant.LR);
         boolean allowLeft  = (variant == Variant.BL || variant == Variant.LR);
         boolean allowRight = (variant == Variant.BR || variant == Variant.LR);
@@ -147,10 +134,10 @@ public final class MergerEntity extends TileEntity {
                     (lane == RIGHT && allowRight) ||
                     (lane == BACK  && allowBack);
 
-            int[] sUV = rotUV(sourcesBase[lane][0], sourcesBase[lane][1], rot);
+            int[] sUV = rotUV(SOURCES_BASE[lane][0], SOURCES_BASE[lane][1], rot);
 
             // If lane is disabled, only try it if it already has an item (drain behavior).
-            boolean laneHasItem = (occ[sUV[0]][sUV[1]] != EMPTY);
+            boolean laneHasItem = (occAt(sUV[0], sUV[1]) != EMPTY);
             if (!laneAllowed && !laneHasItem) continue;
 
             if (tryMove(world, currentTick, sUV[0], sUV[1], du, dv)) {
@@ -160,6 +147,12 @@ public final class MergerEntity extends TileEntity {
         }
     }
 
+    private static final int[][] SOURCES_BASE = {
+        {2, 3}, // LEFT
+        {2, 1}, // RIGHT
+        {1, 2}  // BACK
+    };
+
     private void moveIfPossible(TileWorld world, int currentTick, int buFrom, int bvFrom, int buTo, int bvTo) {
         int[] fromUV = rotUV(buFrom, bvFrom, rot);
         int[] toUV   = rotUV(buTo,   bvTo,   rot);
@@ -167,20 +160,33 @@ public final class MergerEntity extends TileEntity {
     }
 
     private boolean tryMove(TileWorld world, int currentTick, int fu, int fv, int tu, int tv) {
-        int itemId = occ[fu][fv];
+        int itemId = occAt(fu, fv);
         if (itemId == EMPTY) return false;
-        if (occ[tu][tv] != EMPTY) return false;
+        if (occAt(tu, tv) != EMPTY) return false;
 
         Item item = world.getItem(itemId);
-        if (item == null) { occ[fu][fv] = EMPTY; return false; }
+        if (item == null) { setOcc(fu, fv, EMPTY); return false; }
 
         if (item.enteredThisTick(currentTick)) return false;
 
-        occ[tu][tv] = itemId;
-        occ[fu][fv] = EMPTY;
+        setOcc(tu, tv, itemId);
+        setOcc(fu, fv, EMPTY);
         return true;
     }
 
+    @Override
+    public long mixSteadyState(TileWorld world, long h) {
+        h = super.mixSteadyState(world, h);
+        h = mix(h, world.passPhase(subcellsPerSecond));
+        h = mix(h, rr);
+        return h;
+    }
+
+    @Override
+    public long hashState(int now) {
+        return rr;
+    }
+
     @Override
     public void writeSaveData(WorldGrid.TileSave out) {
         out.i0 = rr;
@@ -4,13 +4,12 @@ import org.gudu0.AwareMemory.*;
 
 public final class PressEntity extends TileEntity {
     // Tune later; “passes per tick”
-    public float subcellsPerSecond = 24f; // start here (≈ 12/5 = 2.4 tiles/sec)
-    private float moveAcc = 0f;
+    public int subcellsPerSecond = 24; // start here (≈ 12/5 = 2.4 tiles/sec)
 
     // Processing
-    public float processTime = 1.75f; // tune
+    public int processTicks = 105; // 1.75 s; tune
     private int processingItemId = EMPTY;
-    private float remaining = 0f;
+    private int remaining = 0; // ticks
     private boolean done = false;
 
     public PressEntity(int cellX, int cellY, int rot) {
@@ -27,10 +26,15 @@ public final class PressEntity extends TileEntity {
     }
 
     @Override
-    public boolean canAccept(Item item, Dir fromEdge) {
+    protected boolean acceptsItem(Item item) {
         // Type gate at the portal
-        if (item.type != ItemType.INGOT) return false;
-        return super.canAccept(item, fromEdge);
+        return item.type() == ItemType.INGOT;
+    }
+
+    @Override
+    public boolean canSleep() {
+        // A running process timer keeps us awake.
+        return (processingItemId == EMPTY || done) && super.canSleep();
     }
 
     @Override
@@ -38,11 +42,9 @@ public final class PressEntity extends TileEntity {
         // Tick processing timer first (deterministic: finish then attempt movement this tick)
         tickProcessing(world);
 
-        moveAcc += subcellsPerSecond * world.fixedDt() * world.getItemSpeedMul();
-
-        int passes = (int) moveAcc;
+        int passes = world.passes(subcellsPerSecond);
         if (passes <= 0) return;
-        moveAcc -= passes;
+        int versionBefore = occVersion();
 
         for (int pass = 0; pass < passes; pass++) {
             // Process baseU from exit -> entry on row v=2 (rotated)
@@ -50,11 +52,11 @@ public final class PressEntity extends TileEntity {
                 int[] uv = rotUV(baseU, 2, rot);
                 int u = uv[0], v = uv[1];
 
-                int itemId = occ[u][v];
+                int itemId = occAt(u, v);
                 if (itemId == EMPTY) continue;
 
                 Item item = world.getItem(itemId);
-                if (item == null) { occ[u][v] = EMPTY; continue; }
+                if (item == null) { setOcc(u, v, EMPTY); continue; }
 
                 if (item.enteredThisTick(currentTick)) continue;
 
@@ -66,14 +68,14 @@ public final class PressEntity extends TileEntity {
                     // If done, try to move into output buffer (baseU 3)
                     int[] nextUV = rotUV(3, 2, rot);
                     int nu = nextUV[0], nv = nextUV[1];
-                    if (occ[nu][nv] == EMPTY) {
-                        occ[nu][nv] = itemId;
-                        occ[u][v] = EMPTY;
+                    if (occAt(nu, nv) == EMPTY) {
+                        setOcc(nu, nv, itemId);
+                        setOcc(u, v, EMPTY);
 
                         // Clear processing state once it leaves P
                         if (itemId == processingItemId) {
                             processingItemId = EMPTY;
-                            remaining = 0f;
+                            remaining = 0;
                             done = false;
                         }
                     }
@@ -85,13 +87,13 @@ public final class PressEntity extends TileEntity {
                     // But don't allow moving INTO processing cell if it’s occupied (normal occupancy already covers)
                     int[] nextUV = rotUV(baseU + 1, 2, rot);
                     int nu = nextUV[0], nv = nextUV[1];
-                    if (occ[nu][nv] == EMPTY) {
-                        occ[nu][nv] = itemId;
-                        occ[u][v] = EMPTY;
+                    if (occAt(nu, nv) == EMPTY) {
+                        setOcc(nu, nv, itemId);
+                        setOcc(u, v, EMPTY);
 
                         // If it just entered processing cell, start processing (only if empty)
                         if (baseU + 1 == 2) {
-                            tryStartProcessing(world, occ[nu][nv]);
+                            tryStartProcessing(world, occAt(nu, nv));
                         }
                     }
                     continue;
@@ -99,18 +101,12 @@ public final class PressEntity extends TileEntity {
 
                 // At exit cell: handoff forward to neighbor
                 Dir fwd = Dir.fromRot(rot);
-                int nx = cellX + fwd.dx;
-                int ny = cellY + fwd.dy;
-
-                TileEntity neighbor = world.getEntity(nx, ny);
-                if (neighbor == null) continue;
-
-                if (!neighbor.canAccept(item, fwd.opposite())) continue;
-
-                occ[u][v] = EMPTY;
-                neighbor.accept(item, fwd.opposite(), currentTick);
+                if (!world.handOff(this, fwd, item, currentTick)) continue;
+                setOcc(u, v, EMPTY);
             }
         }
+
+        endPasses(versionBefore);
     }
 
     private void tryStartProcessing(TileWorld world, int itemIdInP) {
@@ -119,10 +115,10 @@ public final class PressEntity extends TileEntity {
         if (it == null) return;
 
         // Safety: only process correct type
-        if (it.type != ItemType.INGOT) return;
+        if (it.type() != ItemType.INGOT) return;
 
-        processingItemId = it.id;
-        remaining = processTime;
+        processingItemId = it.id();
+        remaining = processTicks;
         done = false;
     }
 
@@ -130,34 +126,68 @@ public final class PressEntity extends TileEntity {
         if (processingItemId == EMPTY) {
             // If P cell somehow has an item, but we aren’t tracking it, start it.
             int[] pUV = rotUV(2, 2, rot);
-            int pid = occ[pUV[0]][pUV[1]];
+            int pid = occAt(pUV[0], pUV[1]);
             if (pid != EMPTY) tryStartProcessing(world, pid);
             return;
         }
 
         if (done) return;
 
-        remaining -= world.fixedDt();
+        remaining--;
 
-        if (remaining > 0f) return;
+        if (remaining > 0) return;
 
         Item it = world.getItem(processingItemId);
-        if (it != null && it.type == ItemType.INGOT) {
-            it.type = ItemType.PLATE;
+        if (it != null && it.type() == ItemType.INGOT) {
+            world.transformItem(this, it, ItemType.PLATE, it.value());
             // value unchanged (tune later if desired)
         }
         done = true;
+        resetStall();
+    }
+    @Override
+    public int idleTimerTicks(TileWorld world) {
+        if (processingItemId == EMPTY || done || !isStalled()) return 0;
+        return remaining;
     }
+
+    @Override
+    protected void skipIdleTicks(TileWorld world, int ticks) {
+        remaining -= ticks;
+    }
+
+    @Override
+    public long mixSteadyState(TileWorld world, long h) {
+        h = super.mixSteadyState(world, h);
+        h = mix(h, world.passPhase(subcellsPerSecond));
+        h = mix(h, processingItemId == EMPTY ? 0 : 1);
+        h = mix(h, remaining);
+        h = mix(h, done ? 1 : 0);
+        return h;
+    }
+
+    @Override
+    public long hashState(int now) {
+        long h = mix(0L, processingItemId);
+        h = mix(h, done ? 1 : 0);
+        return mix(h, (processingItemId == EMPTY || done) ? 0 : now + remaining);
+    }
+
+    @Override
+    public boolean savesItemId() {
+        return true;
+    }
+
     @Override
     public void writeSaveData(WorldGrid.TileSave out) {
-        out.f0 = remaining;
+        out.t0 = remaining;
         out.i0 = processingItemId;
         out.b0 = done;
     }
 
     @Override
     public void readSaveData(WorldGrid.TileSave in) {
-        remaining = in.f0;
+        remaining = in.t0;
         processingItemId = in.i0;
         done = in.b0;
     }
@@ -38,6 +38,12 @@ public final class SellpadEntity extends TileEntity {
         return rotuvToReturn;
     }
 
+    @Override
+    public boolean outputsTo(Dir outEdge) {
+        // Sells everything it takes; never a source for auto-tiling or the port graph.
+        return false;
+    }
+
     @Override
     public void accept(Item item, Dir fromEdge, int currentTick) {
         // Instant sell: do NOT occupy a cell.
@@ -58,26 +64,19 @@ public final class SellpadEntity extends TileEntity {
     @Override
     public void step(TileWorld world, int currentTick) {
         // Sell any item currently sitting on any entry cell(s) we might have used.
-        // Since we accept from any side, easiest: scan entire 5x5 and consume.
-        // This is cheap (25 cells) and deterministic.
+        // Since we accept from any side, walk the occupied bits (usually none) and consume.
+        // Ascending bit order is the old u-major scan order, so sales stay deterministic.
 
-        for (int u = 0; u < N; u++) {
-            for (int v = 0; v < N; v++) {
-                int id = occ[u][v];
-                if (id == EMPTY) continue;
+        for (int m = occupiedMask(); m != 0; m &= m - 1) {
+            int k = Integer.numberOfTrailingZeros(m);
+            int u = k / N, v = k % N;
+            int id = occAt(u, v);
 
-                Item it = world.getItem(id);
-                occ[u][v] = EMPTY;
+            Item it = world.getItem(id);
+            setOcc(u, v, EMPTY);
 
-                if (it != null) {
-                    world.addMoney(it.value);
-
-                    // NEW: report sale event
-                    world.getOrders().onItemSold(it.type, 1, world.getMoney(), world.getTick());
-
-                    world.deleteItem(it.id);
-                }
-            }
+            // Money, the sale event and deleting the item happen at the end of the tick (TileWorld.sellItem).
+            if (it != null) world.sellItem(this, it);
         }
     }
 }
@@ -4,20 +4,19 @@ import org.gudu0.AwareMemory.*;
 
 public final class SmelterEntity extends TileEntity {
     // Subcell conveyor-style movement along the internal lane.
-    // Accumulates fractional movement based on fixedDt(), then executes integer subcell steps.
-    public float subcellsPerSecond = 24f; // start here (≈ 12/5 = 2.4 tiles/sec)
-    private float subcellMoveAccumulator = 0f;
+    // Takes its passes off the world's movement clock (TileWorld.passes), then executes whole subcell steps.
+    public int subcellsPerSecond = 24; // start here (≈ 12/5 = 2.4 tiles/sec)
 
     // Processing state:
     // - activeProcessItemID tracks the item currently in the process cell (u=2,v=2)
     // - processTimeLeft counts down while item stays in that cell
     // - hasCompletedSmelt means conversion has been applied; item may still be sitting in the cell until it can move forward
 
-    public float processTime = 1.50f; // tune
-    public float outputValueMultiplier = 2.0f;
+    public int processTicks = 90; // 1.5 s; tune
+    public int outputValuePercent = 200; // x2
 
     private int activeProcessItemID = EMPTY;
-    private float processTimeLeft = 0f;
+    private int processTimeLeft = 0; // ticks
     private boolean hasCompletedSmelt = false;
 
     public SmelterEntity(int cellX, int cellY, int rot) {
@@ -34,21 +33,23 @@ public final class SmelterEntity extends TileEntity {
     }
 
     @Override
-    public boolean canAccept(Item item, Dir fromEdge) {
+    protected boolean acceptsItem(Item item) {
         // Type gate at the portal
-        if (item.type != ItemType.DUST) return false;
-        return super.canAccept(item, fromEdge);
+        return item.type() == ItemType.DUST;
+    }
+
+    @Override
+    public boolean canSleep() {
+        // A running process timer keeps us awake.
+        return (activeProcessItemID == EMPTY || hasCompletedSmelt) && super.canSleep();
     }
 
     @Override
     public void step(TileWorld world, int currentTick) {
         tickProcessing(world);
-        subcellMoveAccumulator += subcellsPerSecond * world.fixedDt() * world.getItemSpeedMul();
-
-
-        int subcellSteps = (int) subcellMoveAccumulator;
+        int subcellSteps = world.passes(subcellsPerSecond);
         if (subcellSteps <= 0) return;
-        subcellMoveAccumulator -= subcellSteps;
+        int versionBefore = occVersion();
 
         // Internal lane is base coords (u, v) with v=2:
         // [0,2] entry -> [1,2] -> [2,2] PROCESS CELL -> [3,2] -> [4,2] exit to neighbor tile.
@@ -59,11 +60,11 @@ public final class SmelterEntity extends TileEntity {
                 int u = laneUV[0];
                 int v = laneUV[1];
 
-                int itemId = occ[u][v];
+                int itemId = occAt(u, v);
                 if (itemId == EMPTY) continue;
 
                 Item item = world.getItem(itemId);
-                if (item == null) { occ[u][v] = EMPTY; continue; }
+                if (item == null) { setOcc(u, v, EMPTY); continue; }
 
                 if (item.enteredThisTick(currentTick)) continue;
 
@@ -75,14 +76,14 @@ public final class SmelterEntity extends TileEntity {
                     int[] nextLaneUV = rotUV(3, 2, rot);
                     int nextU = nextLaneUV[0];
                     int nextV = nextLaneUV[1];
-                    if (occ[nextU][nextV] == EMPTY) {
-                        occ[nextU][nextV] = itemId;
-                        occ[u][v] = EMPTY;
+                    if (occAt(nextU, nextV) == EMPTY) {
+                        setOcc(nextU, nextV, itemId);
+                        setOcc(u, v, EMPTY);
 
                         // Clear processing state once it leaves P
                         if (itemId == activeProcessItemID) {
                             activeProcessItemID = EMPTY;
-                            processTimeLeft = 0f;
+                            processTimeLeft = 0;
                             hasCompletedSmelt = false;
                         }
                     }
@@ -95,31 +96,25 @@ public final class SmelterEntity extends TileEntity {
                     int[] nextUV = rotUV(laneU + 1, 2, rot);
                     int nextU = nextUV[0];
                     int nextV = nextUV[1];
-                    if (occ[nextU][nextV] == EMPTY) {
-                        occ[nextU][nextV] = itemId;
-                        occ[u][v] = EMPTY;
+                    if (occAt(nextU, nextV) == EMPTY) {
+                        setOcc(nextU, nextV, itemId);
+                        setOcc(u, v, EMPTY);
 
                         // If it just entered processing cell, start processing (only if empty)
                         if (laneU + 1 == 2) {
-                            tryStartProcessing(world, occ[nextU][nextV]);
+                            tryStartProcessing(world, occAt(nextU, nextV));
                         }
                     }
                     continue;
                 }
                 // At exit cell: handoff forward to neighbor
                 Dir fwd = Dir.fromRot(rot);
-                int outCellX = cellX + fwd.dx;
-                int outCellY = cellY + fwd.dy;
-
-                TileEntity outCell = world.getEntity(outCellX, outCellY);
-                if (outCell == null) continue;
-
-                if (!outCell.canAccept(item, fwd.opposite())) continue;
-
-                occ[u][v] = EMPTY;
-                outCell.accept(item, fwd.opposite(), currentTick);
+                if (!world.handOff(this, fwd, item, currentTick)) continue;
+                setOcc(u, v, EMPTY);
             }
         }
+
+        endPasses(versionBefore);
     }
 
     private void tryStartProcessing(TileWorld world, int candidateItemId) {
@@ -128,10 +123,10 @@ public final class SmelterEntity extends TileEntity {
         if (item == null) return;
 
         // Safety: only process correct type
-        if (item.type != ItemType.DUST) return;
+        if (item.type() != ItemType.DUST) return;
 
-        activeProcessItemID = item.id;
-        processTimeLeft = processTime;
+        activeProcessItemID = item.id();
+        processTimeLeft = processTicks;
         hasCompletedSmelt = false;
     }
 
@@ -139,35 +134,68 @@ public final class SmelterEntity extends TileEntity {
         // Ensures processing starts as soon as an item enters the process cell, and advances the timer each tick.
         if (activeProcessItemID == EMPTY) {
             int[] processorUV = rotUV(2, 2, rot);
-            int processorCellItemID = occ[processorUV[0]][processorUV[1]];
+            int processorCellItemID = occAt(processorUV[0], processorUV[1]);
             if (processorCellItemID != EMPTY) tryStartProcessing(world, processorCellItemID);
             return;
         }
 
         if (hasCompletedSmelt) return;
 
-        processTimeLeft -= world.fixedDt();
+        processTimeLeft--;
 
-        if (processTimeLeft > 0f) return;
+        if (processTimeLeft > 0) return;
 
         Item item = world.getItem(activeProcessItemID);
-        if (item != null && item.type == ItemType.DUST) {
-            item.type = ItemType.INGOT;
-            item.value *= outputValueMultiplier;
+        if (item != null && item.type() == ItemType.DUST) {
+            world.transformItem(this, item, ItemType.INGOT, Money.percentOf(item.value(), outputValuePercent));
         }
         hasCompletedSmelt = true;
+        resetStall();
+    }
+
+    @Override
+    public int idleTimerTicks(TileWorld world) {
+        if (activeProcessItemID == EMPTY || hasCompletedSmelt || !isStalled()) return 0;
+        return processTimeLeft;
+    }
+
+    @Override
+    protected void skipIdleTicks(TileWorld world, int ticks) {
+        processTimeLeft -= ticks;
+    }
+
+    @Override
+    public long mixSteadyState(TileWorld world, long h) {
+        h = super.mixSteadyState(world, h);
+        h = mix(h, world.passPhase(subcellsPerSecond));
+        h = mix(h, activeProcessItemID == EMPTY ? 0 : 1);
+        h = mix(h, processTimeLeft);
+        h = mix(h, hasCompletedSmelt ? 1 : 0);
+        return h;
+    }
+
+    @Override
+    public long hashState(int now) {
+        long h = mix(0L, activeProcessItemID);
+        h = mix(h, hasCompletedSmelt ? 1 : 0);
+        return mix(h, (activeProcessItemID == EMPTY || hasCompletedSmelt) ? 0 : now + processTimeLeft);
+    }
+
+    @Override
+    public boolean savesItemId() {
+        return true;
     }
 
     @Override
     public void writeSaveData(WorldGrid.TileSave out) {
-        out.f0 = processTimeLeft;
+        out.t0 = processTimeLeft;
         out.i0 = activeProcessItemID;
         out.b0 = hasCompletedSmelt;
     }
 
     @Override
     public void readSaveData(WorldGrid.TileSave in) {
-        processTimeLeft = in.f0;
+        processTimeLeft = in.t0;
         activeProcessItemID = in.i0;
         hasCompletedSmelt = in.b0;
     }
@@ -4,14 +4,13 @@ import org.gudu0.AwareMemory.*;
 
 public final class SpawnerEntity extends TileEntity {
     // Tune later; “passes per tick”
-    public float subcellsPerSecond = 24f; // start here (≈ 12/5 = 2.4 tiles/sec)
-    private float moveAcc = 0f;
+    public int subcellsPerSecond = 24; // start here (≈ 12/5 = 2.4 tiles/sec)
 
     // Spawner timing
-    private float timer = 0f;
-    public float interval = 1.00f;  // tune
+    private int timer = 0;            // ticks
+    public int intervalTicks = 60;    // 1 s; tune
     public ItemType spawnType = ItemType.ORE;
-    public float spawnValue = 1f;
+    public int spawnValue = 100;      // cents
 
     public SpawnerEntity(int cellX, int cellY, int rot) {
         super(cellX, cellY, rot);
@@ -23,30 +22,32 @@ public final class SpawnerEntity extends TileEntity {
         return null;
     }
 
+    @Override
+    public boolean canSleep() {
+        // The spawn timer always runs.
+        return false;
+    }
+
     @Override
     public void step(TileWorld world, int currentTick) {
 
         // ---- 1) Spawn timer should ALWAYS tick ----
-        timer += world.fixedDt();
+        timer++;
 
         // ---- 2) Movement (only if we have passes) ----
-        moveAcc += subcellsPerSecond * world.fixedDt() * world.getItemSpeedMul();
-
-        int passes = (int) moveAcc;
+        int passes = world.passes(subcellsPerSecond);
         if (passes > 0) {
-            moveAcc -= passes;
-
             for (int pass = 0; pass < passes; pass++) {
                 // base rot0 order: u=4..2 on row v=2
                 for (int baseU = 4; baseU >= 2; baseU--) {
                     int[] uv = rotUV(baseU, 2, rot);
                     int u = uv[0], v = uv[1];
 
-                    int itemId = occ[u][v];
+                    int itemId = occAt(u, v);
                     if (itemId == EMPTY) continue;
 
                     Item item = world.getItem(itemId);
-                    if (item == null) { occ[u][v] = EMPTY; continue; }
+                    if (item == null) { setOcc(u, v, EMPTY); continue; }
 
                     if (item.enteredThisTick(currentTick)) continue;
 
@@ -54,56 +55,60 @@ public final class SpawnerEntity extends TileEntity {
                     if (baseU < 4) {
                         int[] nextUV = rotUV(baseU + 1, 2, rot);
                         int nu = nextUV[0], nv = nextUV[1];
-                        if (occ[nu][nv] == EMPTY) {
-                            occ[nu][nv] = itemId;
-                            occ[u][v] = EMPTY;
+                        if (occAt(nu, nv) == EMPTY) {
+                            setOcc(nu, nv, itemId);
+                            setOcc(u, v, EMPTY);
                         }
                         continue;
                     }
 
                     // at exit: try handoff forward
                     Dir fwd = Dir.fromRot(rot);
-                    int nx = cellX + fwd.dx;
-                    int ny = cellY + fwd.dy;
-
-                    TileEntity neighbor = world.getEntity(nx, ny);
-                    if (neighbor == null) continue;
-
-                    if (!neighbor.canAccept(item, fwd.opposite())) continue;
-
-                    occ[u][v] = EMPTY;
-                    neighbor.accept(item, fwd.opposite(), currentTick);
+                    if (!world.handOff(this, fwd, item, currentTick)) continue;
+                    setOcc(u, v, EMPTY);
                 }
             }
         }
 
         // ---- 3) Spawn attempt (based on timer) ----
-        if (timer < interval) return;
+        if (timer < intervalTicks) return;
 
         int[] spawnUV = rotUV(2, 2, rot);
         int su = spawnUV[0], sv = spawnUV[1];
 
-        if (occ[su][sv] != EMPTY) {
+        if (occAt(su, sv) != EMPTY) {
             // blocked: don’t accumulate backlog
-            timer = interval;
+            timer = intervalTicks;
             return;
         }
 
-        Item it = world.createItem(spawnType, spawnValue);
-        occ[su][sv] = it.id;
-        it.markEntered(currentTick);
+        // The item is created and placed at the end of the tick, entered this tick (TileWorld.spawnItem).
+        world.spawnItem(this, su, sv, spawnType, spawnValue);
 
-        timer = 0f;
+        timer = 0;
     }
 
 
+    @Override
+    public long mixSteadyState(TileWorld world, long h) {
+        h = super.mixSteadyState(world, h);
+        h = mix(h, world.passPhase(subcellsPerSecond));
+        h = mix(h, timer);
+        return h;
+    }
+
+    @Override
+    public long hashState(int now) {
+        return timer;
+    }
+
     @Override
     public void writeSaveData(WorldGrid.TileSave out) {
-        out.f0 = timer;
+        out.t0 = timer;
     }
     @Override
     public void readSaveData(WorldGrid.TileSave in) {
-        timer = in.f0;
+        timer = in.t0;
     }
 
 }
@@ -0,0 +1,271 @@
+package org.gudu0.AwareMemory.entities;
+
+import org.gudu0.AwareMemory.Dir;
+import org.gudu0.AwareMemory.Item;
+import org.gudu0.AwareMemory.TileEntity;
+import org.gudu0.AwareMemory.TileWorld;
+
+/**
+ * A chain of 2+ conveyors (each feeding the next) stepped as one path.
+ * <p>
+ * The line is one long lane of {@code members * 5} slots (slot 0 = head entry, last slot = exit cell).
+ * Items are kept front-first as (id, slot) pairs, plus the length of the jammed train sitting against
+ * the exit. A tick's passes are applied together: every item behind that train moves as far as they
+ * would take it, so a moving line costs O(items) per tick at any speed and a fully jammed one costs
+ * a single handoff check.
+ * <p>
+ * Member boundaries hold items the way per-tile handoffs do: an item that crosses one stops on the
+ * next member's entry cell until the next tick, so the line ends every tick where its members stepped
+ * one by one (downstream first) would.
+ * <p>
+ * Every move is written through to the members' occ grids, so rendering, saves and canAccept()
+ * keep reading per-tile subcells exactly as before. TileWorld builds lines lazily and dissolves
+ * them around any edit; see TileWorld's "Transport lines" section.
+ */
+public final class TransportLine {
+    private static final int LANE = ConveyorEntity.PATH_LENGTH;
+
+    private final ConveyorEntity[] members; // head first
+    private final int length;               // slots
+
+    // Ring buffer of items, index 0 = front (closest to the exit).
+    private final int[] ids;
+    private final int[] slots;
+    private int first = 0;
+    private int count = 0;
+
+    // Items [0, jammed) sit packed against the exit: slot(i) == length - 1 - i.
+    private int jammed = 0;
+
+    TransportLine(TileWorld world, ConveyorEntity[] members) {
+        this.members = members;
+        this.length = members.length * LANE;
+        this.ids = new int[length];
+        this.slots = new int[length];
+
+        // Adopt whatever is already on the members' paths, front first. Stale ids are dropped here.
+        for (int s = length - 1; s >= 0; s--) {
+            int id = readSlot(s);
+            if (id == TileEntity.EMPTY) continue;
+            if (world.getItem(id) == null) {
+                writeSlot(s, TileEntity.EMPTY);
+                continue;
+            }
+            ids[count] = id;
+            slots[count] = s;
+            count++;
+        }
+        updateJammed();
+
+        for (ConveyorEntity c : members) c.line = this;
+    }
+
+    /** Builds a line when there's something to merge; shorter chains stay per-tile. */
+    public static TransportLine link(TileWorld world, ConveyorEntity[] chain) {
+        if (chain.length < 2) return null;
+        return new TransportLine(world, chain);
+    }
+
+    public ConveyorEntity head() { return members[0]; }
+    public ConveyorEntity exit() { return members[members.length - 1]; }
+    public int memberCount() { return members.length; }
+    public ConveyorEntity member(int i) { return members[i]; }
+    public boolean isEmpty() { return count == 0; }
+
+    /** Hands every member back to per-tile stepping. Items stay where they are in occ. */
+    public void dissolve() {
+        for (ConveyorEntity c : members) {
+            if (c.line == this) c.line = null;
+        }
+    }
+
+    // ---------------- Stepping ----------------
+
+    /**
+     * Runs {@code passes} movement passes in one go. Returns true if anything moved.
+     * <p>
+     * Same result as that many single passes (front item tries the exit, then everything behind it
+     * moves up one slot if it can). Between two handoff attempts nothing leaves, so every item just
+     * moves min(passes, room behind the one ahead) slots; only the attempts themselves are taken one at
+     * a time. A failed attempt fails again on every later pass (nothing else changes the neighbour
+     * meanwhile), so the cost is O(items) per item handed off, whatever the speed.
+     */
+    boolean step(TileWorld world, int currentTick, int passes) {
+        boolean moved = dropDeleted(world);
+        int left = passes;
+
+        while (left > 0 && count > 0) {
+            Item front = world.getItem(idAt(0));
+            // A front item that entered this tick stays put; the rest can only close up behind it.
+            int toExit = front.enteredThisTick(currentTick) ? Integer.MAX_VALUE : length - 1 - slotAt(0);
+            if (toExit >= left) {
+                moved |= advance(world, currentTick, left);
+                break;
+            }
+            moved |= advance(world, currentTick, toExit);
+            left -= toExit;
+            if (slotAt(0) != length - 1) {
+                // Held on a member boundary on the way; only the items behind it can still close up.
+                moved |= advance(world, currentTick, left);
+                break;
+            }
+
+            // Start of the next pass: the front is on the exit cell.
+            if (!tryHandoff(world, currentTick)) {
+                moved |= advance(world, currentTick, left);
+                break;
+            }
+            moved = true;
+            moved |= advance(world, currentTick, 1);
+            left--;
+        }
+        return moved;
+    }
+
+    // `m` passes in which nothing leaves: each item moves up to m slots, stopping right behind the one
+    // ahead (which has already moved; it can't have gained more than one slot per pass on us) and on
+    // the first cell of the next member if it gets that far.
+    // The train packed against the exit can't move at all, so it is skipped.
+    private boolean advance(TileWorld world, int currentTick, int m) {
+        if (m <= 0 || jammed == count) return false;
+        boolean moved = false;
+        int ahead = (jammed == 0) ? length : slotAt(jammed - 1);
+        for (int i = jammed; i < count; i++) {
+            int id = idAt(i);
+            int s = slotAt(i);
+            Item item = world.getItem(id);
+            int to = item.enteredThisTick(currentTick) ? s : Math.min(s + m, ahead - 1);
+            // Crossing into the next member is that member's accept(): the item stops on its entry cell
+            // for the rest of the tick, exactly as a per-tile handoff would leave it.
+            int entry = (s / LANE + 1) * LANE;
+            if (to >= entry) {
+                to = entry;
+                item.markEntered(currentTick);
+            }
+            if (to != s) {
+                writeSlot(s, TileEntity.EMPTY);
+                writeSlot(to, id);
+                setSlotAt(i, to);
+                moved = true;
+            }
+            ahead = to;
+        }
+        updateJammed();
+        return moved;
+    }
+
+    // Items deleted behind our back (clearItems etc.) leave the lane before anything moves;
+    // a pass would have skipped over them just the same.
+    private boolean dropDeleted(TileWorld world) {
+        boolean dropped = false;
+        for (int i = 0; i < count; i++) {
+            if (world.getItem(idAt(i)) != null) continue;
+            writeSlot(slotAt(i), TileEntity.EMPTY);
+            removeAt(i);
+            i--;
+            dropped = true;
+        }
+        if (dropped) {
+            jammed = 0;
+            updateJammed();
+        }
+        return dropped;
+    }
+
+    // The front item is on the exit cell and may leave (same rule as a lone conveyor).
+    private boolean tryHandoff(TileWorld world, int currentTick) {
+        int id = idAt(0);
+        Item item = world.getItem(id);
+
+        ConveyorEntity exit = exit();
+        Dir out = Dir.fromRot(exit.rot);
+        if (!world.handOff(exit, out, item, currentTick)) return false;
+
+        writeSlot(length - 1, TileEntity.EMPTY);
+        removeAt(0);
+        // The rest of the old train is now one slot short of the exit.
+        jammed = 0;
+        return true;
+    }
+
+    // Called by a member's accept() after it wrote the item into its entry cell.
+    void onAccepted(ConveyorEntity member, int itemId) {
+        int s = indexOf(member) * LANE;
+
+        // Normal case: new item at the head, behind everything else.
+        if (count == 0 || slotAt(count - 1) > s) {
+            append(itemId, s);
+        } else {
+            // Mid-line insert (only via direct spawns); keep front-first order.
+            int i = count;
+            while (i > 0 && slotAt(i - 1) < s) i--;
+            insertAt(i, itemId, s);
+            jammed = 0;
+        }
+        updateJammed();
+    }
+
+    private void updateJammed() {
+        while (jammed < count && slotAt(jammed) == length - 1 - jammed) jammed++;
+    }
+
+    // ---------------- Slot <-> member cells ----------------
+
+    private int readSlot(int s) {
+        return members[s / LANE].pathItemAt(s % LANE);
+    }
+
+    // Every member is written on the exit's behalf: the line steps in the exit's block, whichever
+    // blocks the members are ranked in.
+    private void writeSlot(int s, int id) {
+        members[s / LANE].setPathItem(s % LANE, id, exit());
+    }
+
+    private int indexOf(ConveyorEntity member) {
+        for (int i = 0; i < members.length; i++) {
+            if (members[i] == member) return i;
+        }
+        throw new IllegalStateException("Not a member of this line");
+    }
+
+    // ---------------- Ring buffer ----------------
+
+    private int ring(int i) {
+        int r = first + i;
+        return (r >= length) ? r - length : r;
+    }
+
+    private int idAt(int i) { return ids[ring(i)]; }
+    private int slotAt(int i) { return slots[ring(i)]; }
+    private void setSlotAt(int i, int s) { slots[ring(i)] = s; }
+
+    private void append(int id, int s) {
+        int r = ring(count);
+        ids[r] = id;
+        slots[r] = s;
+        count++;
+    }
+
+    private void removeAt(int i) {
+        if (i == 0) {
+            first = ring(1);
+        } else {
+            for (int k = i; k < count - 1; k++) {
+                ids[ring(k)] = ids[ring(k + 1)];
+                slots[ring(k)] = slots[ring(k + 1)];
+            }
+        }
+        count--;
+        if (jammed > count) jammed = count;
+    }
+
+    private void insertAt(int i, int id, int s) {
+        for (int k = count; k > i; k--) {
+            ids[ring(k)] = ids[ring(k - 1)];
+            slots[ring(k)] = slots[ring(k - 1)];
+        }
+        ids[ring(i)] = id;
+        slots[ring(i)] = s;
+        count++;
+    }
+}
@@ -0,0 +1,70 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ActiveSetTest {
+
+    // Fractional speeds give passes on some ticks and not others, which is where a mover keeping its own
+    // clock would drift while it sleeps.
+    private static final float[] SPEEDS = { 1f, 0.35f, 1.7f, 2.7f, 7.3f };
+    private static final int ROWS = 4;
+    private static final int TICKS = 3000;
+
+    // Stepping only the awake entities must give exactly what stepping every entity every tick gives,
+    // across a speed change too.
+    @Test
+    public void sleeping_changesNothing() {
+        for (float speed : SPEEDS) {
+            TileWorld lazy = build(speed);
+            TileWorld eager = build(speed);
+            int entities = ROWS * TestHarness.LINE.length;
+
+            float dt = lazy.fixedDt();
+            int slept = 0;
+            for (int i = 0; i < TICKS; i++) {
+                if (i == TICKS / 2) {
+                    lazy.setItemSpeedMul(speed * 0.6f);
+                    eager.setItemSpeedMul(speed * 0.6f);
+                }
+                eager.wakeAll();
+                lazy.update(dt);
+                eager.update(dt);
+
+                assertSameItems(lazy, eager, "speed " + speed + ", tick " + lazy.getTick());
+                if (lazy.activeEntityCount() < entities) slept++;
+            }
+
+            assertTrue(slept > 0, "Nothing ever slept at speed " + speed + "; comparison would be meaningless");
+            TestHarness.assertSold(lazy);
+        }
+    }
+
+    private static TileWorld build(float speed) {
+        TileWorld tileWorld = new TileWorld(new WorldGrid(8, ROWS));
+        for (int row = 0; row < ROWS; row++) TestHarness.placeLine(tileWorld, 0, 2 * row);
+        tileWorld.setItemSpeedMul(speed);
+        return tileWorld;
+    }
+
+    private static void assertSameItems(TileWorld a, TileWorld b, String when) {
+        assertEquals(a.getMoney(), b.getMoney(), when);
+        WorldGrid grid = a.worldGrid();
+        for (int y = 0; y < grid.hCells; y++) {
+            for (int x = 0; x < grid.wCells; x++) {
+                TileEntity ta = a.getEntity(x, y);
+                if (ta == null) continue;
+                TileEntity tb = b.getEntity(x, y);
+                for (int u = 0; u < TileEntity.N; u++) {
+                    for (int v = 0; v < TileEntity.N; v++) {
+                        if (ta.getItemIdAt(u, v) != tb.getItemIdAt(u, v)) {
+                            fail(when + ": item " + ta.getItemIdAt(u, v) + " vs " + tb.getItemIdAt(u, v)
+                                + " @(" + x + "," + y + ") subcell (" + u + "," + v + ")");
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -5,7 +5,12 @@ import org.gudu0.AwareMemory.entities.MergerEntity;
 import org.gudu0.AwareMemory.entities.SplitterEntity;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Random;
+
 import static org.gudu0.AwareMemory.WorldGrid.TILE_CONVEYOR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class AutoPlacementTest {
 
@@ -287,7 +292,7 @@ public final class AutoPlacementTest {
 
         // Spawn entering from the conveyor's back edge
         Dir from = Dir.fromRot(E).opposite();
-        h.spawnOnTile(cx, cy, ItemType.ORE, 1f, from);
+        h.spawnOnTile(cx, cy, ItemType.ORE, 100, from);
 
         h.assertItemCount(1);
 
@@ -323,4 +328,78 @@ public final class AutoPlacementTest {
         h.assertMergerVariant(MergerEntity.Variant.LR, cx, cy);
     }
 
+    // Inside an edit nothing is refreshed until commit; placements count toward orders as committed.
+    @Test
+    public void edit_refreshesAndCountsOnCommit() {
+        TestHarness h = new TestHarness();
+        TileWorld tw = h.tileWorld;
+        ArrayList<Order> milestones = new ArrayList<>();
+        milestones.add(Order.placeTiles("split", "Split", "", 0, WorldGrid.TILE_SPLITTER, 1));
+        tw.getOrders().setMilestones(milestones);
+        Order order = tw.getOrders().getActiveOrdersReadOnly().get(0);
+
+        int cx = 2, cy = 2;
+        tw.beginEdit();
+        tw.placeTile(cx, cy, TILE_CONVEYOR, E);
+        tw.countPlacement(cx, cy);
+        tw.placeTile(cx, cy + 1, TILE_CONVEYOR, N);
+        tw.placeTile(cx, cy - 1, TILE_CONVEYOR, S);
+
+        // The outputs arrived after the centre was decided; only SmartPlacement upgrades it.
+        h.assertTileId(TILE_CONVEYOR, cx, cy);
+        assertEquals(0, order.currentCount);
+
+        tw.commitEdit();
+        h.assertTile(WorldGrid.TILE_SPLITTER, cx, cy, E);
+        h.assertSplitterVariant(SplitterEntity.Variant.LR, cx, cy);
+        assertEquals(1, order.currentCount);
+
+        assertThrows(IllegalStateException.class, tw::commitEdit);
+    }
+
+    // Edits refresh only around the edited cell; a full refresh after the same edits must agree on every
+    // tile, variant and shape.
+    @Test
+    public void incrementalRefresh_matchesRefreshAll() {
+        int[] tiles = {TILE_CONVEYOR, TILE_CONVEYOR, TILE_CONVEYOR, TILE_CONVEYOR,
+            WorldGrid.TILE_SPLITTER, WorldGrid.TILE_MERGER, WorldGrid.TILE_SMELTER, WorldGrid.TILE_SELLPAD};
+        TestHarness incremental = new TestHarness();
+        TestHarness full = new TestHarness();
+        Random rnd = new Random(5);
+        for (int i = 0; i < 3000; i++) {
+            // Dense edits in a small corner so the auto-tiles keep cascading.
+            int x = rnd.nextInt(8), y = rnd.nextInt(8);
+            if (rnd.nextInt(3) == 0) {
+                incremental.delete(x, y);
+                full.world.setTile(x, y, WorldGrid.TILE_EMPTY);
+                full.tileWorld.clearEntityAtFromSmartPlacement(x, y);
+            } else {
+                int id = tiles[rnd.nextInt(tiles.length)], rot = rnd.nextInt(4);
+                if (incremental.world.getTile(x, y) != WorldGrid.TILE_EMPTY) continue;
+                incremental.place(id, x, y, rot);
+                full.world.setTile(x, y, id, rot);
+                if (id == TILE_CONVEYOR) full.world.setTile(x, y, full.tileWorld.decideAutoTileForConveyor(x, y, rot));
+                full.tileWorld.rebuildEntityAtFromSmartPlacement(x, y);
+            }
+            SmartPlacement.refreshAll(full.tileWorld);
+            assertEquals(describe(full), describe(incremental), "after edit " + i);
+        }
+    }
+
+    private static String describe(TestHarness h) {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                sb.append(h.world.getTile(x, y)).append('/').append(h.world.getRot(x, y));
+                TileEntity te = h.tileWorld.getEntity(x, y);
+                if (te instanceof ConveyorEntity) sb.append(((ConveyorEntity) te).getShape());
+                if (te instanceof SplitterEntity) sb.append(((SplitterEntity) te).getVariant());
+                if (te instanceof MergerEntity) sb.append(((MergerEntity) te).getVariant());
+                sb.append(' ');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
 }
@@ -0,0 +1,76 @@
+package org.gudu0.AwareMemory;
+
+import org.gudu0.AwareMemory.entities.FilterEntity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class BlueprintTest {
+
+    // A generated factory's first band (rows 0-2), copied through bytes to an empty map: same tiles, same
+    // filter rules, and it makes money like the original.
+    @Test
+    public void copyPaste_roundTripsThroughBytes() {
+        TileWorld source = FactoryGenerator.generate(2, 1000);
+        int w = source.worldGrid().wCells;
+        Blueprint bp = Blueprint.decode(Blueprint.capture(source, 0, 0, w, 3).encode());
+
+        TileWorld target = new TileWorld(new WorldGrid(w / 2 + 2, 4));
+        bp.paste(target, 2, 1);
+
+        WorldGrid a = source.worldGrid(), b = target.worldGrid();
+        int filters = 0;
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < w; x++) {
+                assertEquals(a.getTile(x, y), b.getTile(x + 2, y + 1), "tile at " + x + "," + y);
+                assertEquals(a.getRot(x, y), b.getRot(x + 2, y + 1), "rot at " + x + "," + y);
+                if (source.getEntity(x, y) instanceof FilterEntity) {
+                    FilterEntity f = (FilterEntity) target.getEntity(x + 2, y + 1);
+                    assertEquals(ItemType.DUST.ordinal(), f.getRule(FilterEntity.Out.LEFT));
+                    filters++;
+                }
+            }
+        }
+        assertTrue(filters > 0, "Band without a filter; pick another seed");
+        assertEquals(target.recomputeWorldHash(), target.worldHash());
+
+        target.simulateTicks(2000, Long.MAX_VALUE);
+        TestHarness.assertSold(target);
+    }
+
+    @Test
+    public void transforms() {
+        TileWorld world = new TileWorld(new WorldGrid(8, 8));
+        world.beginEdit();
+        world.placeTile(0, 0, WorldGrid.TILE_SPAWNER, 0);
+        world.placeTile(1, 0, WorldGrid.TILE_CONVEYOR, 0);
+        world.placeTile(2, 0, WorldGrid.TILE_FILTER_FL, 0);
+        world.placeTile(2, 1, WorldGrid.TILE_CONVEYOR, 3);
+        world.commitEdit();
+        ((FilterEntity) world.getEntity(2, 0)).setRule(FilterEntity.Out.LEFT, ItemType.DUST.ordinal());
+        Blueprint bp = Blueprint.capture(world, 0, 0, 3, 2);
+
+        assertArrayEquals(bp.encode(), bp.rotated(4).encode());
+        assertArrayEquals(bp.encode(), bp.rotated(1).rotated(-1).encode());
+        assertArrayEquals(bp.encode(), bp.mirrored().mirrored().encode());
+
+        // A quarter turn clockwise: the line runs south, down the first column.
+        Blueprint r = bp.rotated(1);
+        assertEquals(2, r.w);
+        assertEquals(3, r.h);
+        assertEquals(WorldGrid.TILE_SPAWNER, r.tileAt(0, 2));
+        assertEquals(Dir.SOUTH.ordinal(), r.rotAt(0, 2));
+        assertEquals(WorldGrid.TILE_FILTER_FL, r.tileAt(0, 0));
+        assertEquals(Dir.EAST.ordinal(), r.rotAt(1, 0)); // the side belt pointed north
+
+        // Mirrored: runs west, the filter's side output is on its right now, and so is the dust rule.
+        Blueprint m = bp.mirrored();
+        assertEquals(WorldGrid.TILE_SPAWNER, m.tileAt(2, 0));
+        assertEquals(Dir.WEST.ordinal(), m.rotAt(2, 0));
+        assertEquals(WorldGrid.TILE_FILTER_FR, m.tileAt(0, 0));
+        m.paste(world, 4, 4);
+        FilterEntity f = (FilterEntity) world.getEntity(4, 4);
+        assertEquals(ItemType.DUST.ordinal(), f.getRule(FilterEntity.Out.RIGHT));
+        assertEquals(WorldGrid.TILE_CONVEYOR, world.worldGrid().getTile(4, 5));
+    }
+}
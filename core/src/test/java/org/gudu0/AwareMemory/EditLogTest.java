@@ -0,0 +1,86 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class EditLogTest {
+
+    // Clearing a busy stretch of a running factory and undoing it puts back the tiles, the items on them
+    // and the machines' state: from then on it runs exactly like a twin that was never touched.
+    @Test
+    public void undo_restoresBusyFactory() {
+        TileWorld world = FactoryGenerator.generate(2, 1000);
+        TileWorld twin = FactoryGenerator.generate(2, 1000);
+        world.simulateTicks(777, Long.MAX_VALUE);
+        twin.simulateTicks(777, Long.MAX_VALUE);
+        EditLog log = new EditLog(1 << 16);
+        world.setEditLog(log);
+
+        int items = world.itemCount();
+        world.beginEdit();
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 40; x++) world.deleteTile(x, y);
+        }
+        world.commitEdit();
+        assertTrue(world.itemCount() < items, "Nothing destroyed; clear a busier stretch");
+
+        assertTrue(log.undo(world));
+        assertFalse(log.canUndo());
+        assertEquals(items, world.itemCount());
+        assertSameTiles(twin, world);
+        assertEquals(world.recomputeWorldHash(), world.worldHash());
+
+        assertTrue(log.redo(world));
+        assertEquals(WorldGrid.TILE_EMPTY, world.worldGrid().getTile(0, 0));
+        assertTrue(log.undo(world));
+        assertSameTiles(twin, world);
+
+        world.simulateTicks(3000, Long.MAX_VALUE);
+        twin.simulateTicks(3000, Long.MAX_VALUE);
+        assertEquals(twin.getMoney(), world.getMoney());
+        assertEquals(twin.itemCount(), world.itemCount());
+    }
+
+    // Money spent in a step comes back on undo; a full ring drops its oldest steps, never the newest.
+    @Test
+    public void moneyAndMemoryCap() {
+        TileWorld world = new TileWorld(new WorldGrid(32, 4));
+        world.addMoney(1000);
+        EditLog log = new EditLog(256);
+        world.setEditLog(log);
+
+        for (int x = 0; x < 60; x++) {
+            world.beginEdit();
+            assertTrue(world.trySpendMoney(10));
+            world.placeTile(x, 0, WorldGrid.TILE_CONVEYOR, 0);
+            world.commitEdit();
+        }
+        assertEquals(400, world.getMoney());
+        assertTrue(log.bytesUsed() <= 256);
+        assertTrue(log.stepCount() < 60);
+
+        int undone = 0;
+        while (log.undo(world)) undone++;
+        assertEquals(log.stepCount(), undone);
+        assertEquals(400 + 10L * undone, world.getMoney());
+        assertEquals(WorldGrid.TILE_EMPTY, world.worldGrid().getTile(59, 0));
+        assertEquals(WorldGrid.TILE_EMPTY, world.worldGrid().getTile(60 - undone, 0));
+        assertNotEquals(WorldGrid.TILE_EMPTY, world.worldGrid().getTile(59 - undone, 0));
+
+        // A new edit replaces what could be redone.
+        world.placeTile(0, 2, WorldGrid.TILE_SELLPAD, 0);
+        assertFalse(log.canRedo());
+        assertEquals(world.recomputeWorldHash(), world.worldHash());
+    }
+
+    private static void assertSameTiles(TileWorld expected, TileWorld actual) {
+        WorldGrid a = expected.worldGrid(), b = actual.worldGrid();
+        for (int y = 0; y < a.hCells; y++) {
+            for (int x = 0; x < a.wCells; x++) {
+                assertEquals(a.getTile(x, y), b.getTile(x, y), "tile at " + x + "," + y);
+                assertEquals(a.getRot(x, y), b.getRot(x, y), "rot at " + x + "," + y);
+            }
+        }
+    }
+}
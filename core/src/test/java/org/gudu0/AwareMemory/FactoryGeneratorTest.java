@@ -0,0 +1,53 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class FactoryGeneratorTest {
+
+    @Test
+    public void sameSeed_sameFactory() {
+        TileWorld a = FactoryGenerator.generate(3, 2000);
+        TileWorld b = FactoryGenerator.generate(3, 2000);
+        assertEquals(a.worldHash(), b.worldHash());
+        a.simulateTicks(1500, Long.MAX_VALUE);
+        b.simulateTicks(1500, Long.MAX_VALUE);
+        assertNull(new DivergenceChecker(a, b).compare());
+        assertNotEquals(layout(a), layout(FactoryGenerator.generate(4, 2000)));
+    }
+
+    @Test
+    public void factory_hasEveryPart_andRuns() {
+        TileWorld world = FactoryGenerator.generate(11, 3000);
+        int[] count = new int[WorldGrid.TILE_FILTER_FL + 1];
+        WorldGrid grid = world.worldGrid();
+        int tiles = 0;
+        for (int y = 0; y < grid.hCells; y++) {
+            for (int x = 0; x < grid.wCells; x++) {
+                int id = grid.getTile(x, y);
+                count[id]++;
+                if (id != WorldGrid.TILE_EMPTY) tiles++;
+            }
+        }
+        assertTrue(tiles >= 3000, "Only " + tiles + " tiles");
+        for (int id = 1; id < count.length; id++) {
+            if (id == WorldGrid.TILE_FILTER_LR) continue; // side lanes are always on one side
+            assertTrue(count[id] > 0, "No " + grid.getTileName(id));
+        }
+        // Every branch point was upgraded.
+        assertEquals(count[WorldGrid.TILE_SPLITTER], count[WorldGrid.TILE_MERGER]);
+
+        world.simulateTicks(2000, Long.MAX_VALUE);
+        assertTrue(world.getMoney() > Money.cents(count[WorldGrid.TILE_SPAWNER]), "Lines aren't selling");
+    }
+
+    private static long layout(TileWorld world) {
+        WorldGrid grid = world.worldGrid();
+        long h = 17;
+        for (int y = 0; y < grid.hCells; y++) {
+            for (int x = 0; x < grid.wCells; x++) h = h * 31 + grid.getTile(x, y) * 4 + grid.getRot(x, y);
+        }
+        return h;
+    }
+}
@@ -0,0 +1,52 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class FastForwardTest {
+
+    private static final int TICKS = 2000;
+
+    @Test
+    public void fastForward_matchesRealTimeTicks() {
+        TileWorld realTime = build();
+        TileWorld skipped = build();
+
+        float dt = realTime.fixedDt();
+        for (int i = 0; i < TICKS; i++) realTime.update(dt);
+
+        FastForward ff = new FastForward(skipped, TICKS);
+        while (!ff.isFinished()) ff.run(1_000_000L);
+
+        assertEquals(TICKS, ff.ticksDone());
+        assertEquals(1f, ff.progress());
+        assertEquals(realTime.getTick(), skipped.getTick());
+        assertEquals(realTime.stateHash(), skipped.stateHash());
+        TestHarness.assertSold(skipped);
+    }
+
+    @Test
+    public void budget_alwaysMakesProgress_andCancelStops() {
+        TileWorld tileWorld = build();
+        assertEquals(1, tileWorld.simulateTicks(50, 0L));
+
+        FastForward ff = new FastForward(tileWorld, 1000);
+        ff.run(0L);
+        ff.cancel();
+        assertTrue(ff.isFinished());
+        assertEquals(0, ff.run(Long.MAX_VALUE));
+        assertEquals(1, ff.ticksDone());
+        assertEquals(2, tileWorld.getTick());
+    }
+
+    // spawner -> 10 conveyors -> sellpad
+    private static TileWorld build() {
+        WorldGrid world = new WorldGrid(16, 8);
+        TileWorld tileWorld = new TileWorld(world);
+        TestHarness.place(tileWorld, WorldGrid.TILE_SPAWNER, 0, 0, 0);
+        for (int x = 1; x <= 10; x++) TestHarness.place(tileWorld, WorldGrid.TILE_CONVEYOR, x, 0, 0);
+        TestHarness.place(tileWorld, WorldGrid.TILE_SELLPAD, 11, 0, 0);
+        return tileWorld;
+    }
+}
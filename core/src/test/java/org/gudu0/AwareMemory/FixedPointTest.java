@@ -0,0 +1,20 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class FixedPointTest {
+
+    @Test
+    public void money_isWholeCents() {
+        assertEquals(1234L, Money.cents(12) + 34);
+        assertEquals("12.34", Money.format(1234L));
+        assertEquals("1.00", Money.format(Money.cents(1)));
+        assertEquals("0.05", Money.format(5L));
+        assertEquals("-0.05", Money.format(-5L));
+        assertEquals(12L, Money.wholeDollars(1299L));
+        assertEquals(200, Money.percentOf(100, 200));
+        assertEquals(187, Money.percentOf(125, 150));
+    }
+}
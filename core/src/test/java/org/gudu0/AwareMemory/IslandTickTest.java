@@ -0,0 +1,77 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class IslandTickTest {
+
+    private static final int TICKS = 3000;
+
+    @Test
+    public void parallelAndShuffledIslands_matchSerialBitForBit() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            IslandExecutor parallel = (count, islands) ->
+                pool.submit(() -> IntStream.range(0, count).parallel().forEach(islands::step)).join();
+            IslandExecutor reversed = (count, islands) -> {
+                for (int i = count - 1; i >= 0; i--) islands.step(i);
+            };
+
+            TileWorld serial = build(IslandExecutor.SERIAL);
+            TileWorld threaded = build(parallel);
+            TileWorld backwards = build(reversed);
+
+            float dt = serial.fixedDt();
+            for (int i = 0; i < TICKS; i++) {
+                serial.update(dt);
+                threaded.update(dt);
+                backwards.update(dt);
+
+                long expected = serial.stateHash();
+                int tick = serial.getTick();
+                assertEquals(expected, threaded.stateHash(), "Parallel tick diverged at tick " + tick);
+                assertEquals(expected, backwards.stateHash(), "Reversed island order diverged at tick " + tick);
+            }
+
+            TestHarness.assertSold(serial);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void removingABridge_splitsTheIsland() {
+        WorldGrid world = new WorldGrid(32, 32);
+        TileWorld tileWorld = new TileWorld(world);
+        tileWorld.setIslandExecutor(IslandExecutor.SERIAL);
+
+        // spawner -> 6 conveyors -> sellpad, then cut the middle conveyor.
+        TestHarness.place(tileWorld, WorldGrid.TILE_SPAWNER, 0, 0, 0);
+        for (int x = 1; x <= 6; x++) TestHarness.place(tileWorld, WorldGrid.TILE_CONVEYOR, x, 0, 0);
+        TestHarness.place(tileWorld, WorldGrid.TILE_SELLPAD, 7, 0, 0);
+
+        float dt = tileWorld.fixedDt();
+        tileWorld.update(dt);
+        assertEquals(tileWorld.getEntity(0, 0).island, tileWorld.getEntity(7, 0).island);
+
+        world.setTile(3, 0, WorldGrid.TILE_EMPTY);
+        tileWorld.clearEntityAt(3, 0);
+        tileWorld.update(dt);
+        assertNotEquals(tileWorld.getEntity(0, 0).island, tileWorld.getEntity(7, 0).island);
+        assertEquals(tileWorld.getEntity(0, 0).island, tileWorld.getEntity(2, 0).island);
+        assertEquals(tileWorld.getEntity(4, 0).island, tileWorld.getEntity(7, 0).island);
+    }
+
+    // TestHarness.LINE on every other row: every row is its own island.
+    private static TileWorld build(IslandExecutor executor) {
+        WorldGrid world = new WorldGrid(32, 32);
+        TileWorld tileWorld = new TileWorld(world);
+        tileWorld.setIslandExecutor(executor);
+        for (int y = 0; y < 32; y += 2) TestHarness.placeLine(tileWorld, 0, y);
+        return tileWorld;
+    }
+}
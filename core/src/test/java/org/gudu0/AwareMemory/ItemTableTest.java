@@ -0,0 +1,68 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ItemTableTest {
+
+    // A deleted id stays dead once its slot is handed out again, and the new id is a different one.
+    @Test
+    public void staleId_resolvesToNull_afterSlotReuse() {
+        ItemTable items = new ItemTable();
+        int a = items.create(ItemType.ORE, 100);
+        Item handle = items.get(a);
+        items.delete(a);
+        assertNull(items.get(a));
+
+        int b = items.create(ItemType.DUST, 250);
+        assertEquals(a & ItemTable.SLOT_MASK, b & ItemTable.SLOT_MASK, "Slot should be reused");
+        assertNotEquals(a, b);
+        assertNull(items.get(a));
+        assertFalse(items.isLive(a));
+
+        // The shared handle now points at the new occupant.
+        assertSame(handle, items.get(b));
+        assertEquals(b, handle.id());
+        assertEquals(ItemType.DUST, handle.type());
+        assertEquals(250, handle.value());
+    }
+
+    @Test
+    public void clear_bumpsGenerations() {
+        ItemTable items = new ItemTable();
+        int[] before = new int[8];
+        for (int i = 0; i < before.length; i++) before[i] = items.create(ItemType.ORE, 100);
+
+        items.clear();
+        assertEquals(0, items.count());
+        for (int id : before) assertNull(items.get(id));
+
+        for (int i = 0; i < before.length; i++) {
+            int id = items.create(ItemType.ORE, 100);
+            assertEquals(before[i] & ItemTable.SLOT_MASK, id & ItemTable.SLOT_MASK);
+            assertNotEquals(before[i], id);
+            assertNull(items.get(before[i]));
+        }
+    }
+
+    // Load path: saved ids come back as they were, and the gaps between them fill lowest first.
+    @Test
+    public void restore_thenRebuildFreeList_reusesLowSlotsFirst() {
+        ItemTable items = new ItemTable();
+        int gen3 = 3 << ItemTable.SLOT_BITS;
+        assertTrue(items.restore(gen3 | 2, ItemType.ORE, 100));
+        assertTrue(items.restore(5, ItemType.INGOT, 400));
+        assertFalse(items.restore(gen3 | 5, ItemType.ORE, 100), "Slot 5 is taken");
+        items.rebuildFreeList();
+
+        assertEquals(2, items.count());
+        assertEquals(6, items.highWater());
+        assertEquals(ItemType.ORE, items.get(gen3 | 2).type());
+        assertEquals(400, items.get(5).value());
+
+        int[] slots = new int[4];
+        for (int i = 0; i < slots.length; i++) slots[i] = items.create(ItemType.ORE, 100) & ItemTable.SLOT_MASK;
+        assertArrayEquals(new int[] { 1, 3, 4, 6 }, slots);
+    }
+}
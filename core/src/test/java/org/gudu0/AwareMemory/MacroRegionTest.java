@@ -0,0 +1,86 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class MacroRegionTest {
+
+    // Two copies of TestHarness.LINE: one on screen, one far off it.
+    private static final int FAR_X = 100;
+
+    @Test
+    public void offScreenIsland_freezes_andEarnsTheSame() {
+        TileWorld stepped = build();
+        TileWorld macro = build();
+        macro.setFocus(0, 0, 20, 8);
+
+        for (int i = 0; i < 20000; i++) {
+            stepped.simulateTicks(1, Long.MAX_VALUE);
+            macro.simulateTicks(1, Long.MAX_VALUE);
+            assertEquals(stepped.getMoney(), macro.getMoney(), "Money diverged at tick " + macro.getTick());
+        }
+        assertEquals(1, macro.frozenIslandCount());
+
+        // Scroll over to it: it thaws mid-cycle and must pick up exactly where stepping would be.
+        macro.setFocus(FAR_X, 0, FAR_X + 20, 8);
+        for (int i = 0; i < 5001; i++) {
+            stepped.simulateTicks(1, Long.MAX_VALUE);
+            macro.simulateTicks(1, Long.MAX_VALUE);
+        }
+        assertEquals(1, macro.frozenIslandCount(), "The first line should be off screen now");
+        assertEquals(stepped.getMoney(), macro.getMoney());
+
+        macro.clearFocus();
+        assertEquals(0, macro.frozenIslandCount());
+        assertEquals(stepped.steadyStateHash(), macro.steadyStateHash());
+        assertEquals(stepped.itemCount(), macro.itemCount());
+    }
+
+    @Test
+    public void editingAFrozenIsland_thawsItFirst() {
+        TileWorld stepped = build();
+        TileWorld macro = build();
+        macro.setFocus(0, 0, 20, 8);
+
+        stepped.simulateTicks(15000, Long.MAX_VALUE);
+        macro.simulateTicks(15000, Long.MAX_VALUE);
+        assertEquals(1, macro.frozenIslandCount());
+
+        // Cut the far line just before its sellpad.
+        for (TileWorld tw : new TileWorld[] { stepped, macro }) {
+            tw.worldGrid().setTile(FAR_X + TestHarness.LINE.length - 2, 0, WorldGrid.TILE_EMPTY);
+            tw.clearEntityAt(FAR_X + TestHarness.LINE.length - 2, 0);
+        }
+        assertEquals(0, macro.frozenIslandCount());
+
+        stepped.simulateTicks(3000, Long.MAX_VALUE);
+        macro.simulateTicks(3000, Long.MAX_VALUE);
+        assertEquals(stepped.getMoney(), macro.getMoney());
+        macro.clearFocus();
+        assertEquals(stepped.steadyStateHash(), macro.steadyStateHash());
+    }
+
+    // An island that never repeats is hashed for a search window, then less and less often.
+    @Test
+    public void islandThatNeverCycles_isWatchedLessAndLess() {
+        MacroIsland m = new MacroIsland(null, 0L);
+        int ticks = 200 * MacroIsland.MAX_PERIOD, hashed = 0, hashedLastHalf = 0;
+        for (int t = 1; t <= ticks; t++) {
+            if (m.resting()) continue;
+            hashed++;
+            if (t > ticks / 2) hashedLastHalf++;
+            assertFalse(m.observe(t));
+        }
+        assertTrue(hashed < ticks / 10, "Hashed on " + hashed + " of " + ticks + " ticks");
+        assertTrue(hashedLastHalf < hashed / 2, "Rest doesn't grow: " + hashedLastHalf + " of " + hashed);
+    }
+
+    private static TileWorld build() {
+        WorldGrid world = new WorldGrid(64, 4);
+        TileWorld tileWorld = new TileWorld(world);
+        TestHarness.placeLine(tileWorld, 0, 0);
+        TestHarness.placeLine(tileWorld, FAR_X, 0);
+        return tileWorld;
+    }
+}
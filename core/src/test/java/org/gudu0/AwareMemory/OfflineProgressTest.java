@@ -0,0 +1,51 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class OfflineProgressTest {
+
+    private static final int TICKS = 60 * 60 * 20; // 20 minutes away
+
+    @Test
+    public void extrapolatedCatchUp_matchesTickingItAll() {
+        TileWorld ticked = build();
+        TileWorld caughtUp = build();
+
+        ticked.simulateTicks(TICKS, Long.MAX_VALUE);
+        OfflineProgress.Result r = OfflineProgress.catchUp(caughtUp, TICKS);
+
+        assertTrue(r.period > 0, "No steady state found");
+        assertTrue(r.simulatedTicks < TICKS / 2, "Barely extrapolated: " + r.simulatedTicks + " ticks simulated");
+        assertEquals(TICKS, caughtUp.getTick());
+        TestHarness.assertSold(ticked);
+        assertEquals(ticked.getMoney(), caughtUp.getMoney());
+        assertEquals(ticked.getMoney(), r.moneyEarned);
+        assertEquals(ticked.itemCount(), caughtUp.itemCount());
+    }
+
+    // A year away counts as MAX_CATCH_UP_TICKS: the clock moves on by exactly that and earns exactly
+    // what a catch-up of that length does.
+    @Test
+    public void longAbsence_isCappedAndCreditedForTheCapOnly() {
+        TileWorld capped = build();
+        TileWorld exact = build();
+
+        OfflineProgress.Result r = OfflineProgress.catchUp(capped, 60L * 60 * 60 * 24 * 365);
+        OfflineProgress.Result e = OfflineProgress.catchUp(exact, OfflineProgress.MAX_CATCH_UP_TICKS);
+
+        assertEquals(OfflineProgress.MAX_CATCH_UP_TICKS, r.ticks);
+        assertEquals(OfflineProgress.MAX_CATCH_UP_TICKS, capped.getTick());
+        TestHarness.assertSold(capped);
+        assertEquals(e.moneyEarned, r.moneyEarned);
+        assertEquals(exact.getMoney(), capped.getMoney());
+    }
+
+    // TestHarness.LINE on three rows; its buffers take a few thousand ticks to settle.
+    private static TileWorld build() {
+        TileWorld tileWorld = new TileWorld(new WorldGrid(16, 8));
+        for (int y = 0; y < 6; y += 2) TestHarness.placeLine(tileWorld, 0, y);
+        return tileWorld;
+    }
+}
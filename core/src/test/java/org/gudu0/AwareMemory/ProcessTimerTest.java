@@ -0,0 +1,60 @@
+package org.gudu0.AwareMemory;
+
+import org.gudu0.AwareMemory.entities.SmelterEntity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ProcessTimerTest {
+
+    private static final int SMELTER_X = 8; // in TestHarness.LINE
+
+    @Test
+    public void timerSleep_matchesSteppingEveryTick() {
+        TileWorld timed = build();
+        TileWorld polled = build();
+
+        long timedAwake = 0, polledAwake = 0;
+        for (int i = 0; i < 4000; i++) {
+            // Waking the machines every tick keeps them off their timers: the old behaviour.
+            for (int x = 0; x < TestHarness.LINE.length; x++) {
+                if (polled.getEntity(x, 0) != null) polled.wakeEntityAt(x, 0);
+            }
+            timed.simulateTicks(1, Long.MAX_VALUE);
+            polled.simulateTicks(1, Long.MAX_VALUE);
+            timedAwake += timed.activeEntityCount();
+            polledAwake += polled.activeEntityCount();
+        }
+
+        TestHarness.assertSold(timed);
+        assertEquals(polled.getMoney(), timed.getMoney());
+        assertEquals(polled.stateHash(), timed.stateHash());
+        assertTrue(timedAwake < polledAwake, "Machines never slept on their timers");
+    }
+
+    @Test
+    public void savingMidProcess_writesTheCaughtUpTimer() {
+        TileWorld timed = build();
+        TileWorld polled = build();
+        assertTrue(timed.getEntity(SMELTER_X, 0) instanceof SmelterEntity);
+        // Stop a few ticks into one of the smelter's timer sleeps, so its saved timer needs catching up.
+        TileEntity smelter = timed.getEntity(SMELTER_X, 0);
+        for (int i = 0; i < 4000 && (smelter.sleptAt < 0 || timed.getTick() - smelter.sleptAt < 3); i++) {
+            polled.wakeEntityAt(SMELTER_X, 0);
+            timed.simulateTicks(1, Long.MAX_VALUE);
+            polled.simulateTicks(1, Long.MAX_VALUE);
+        }
+
+        assertTrue(smelter.sleptAt >= 0, "Smelter never slept on its timer");
+        WorldGrid.TileSave[] a = timed.exportTileSaves();
+        WorldGrid.TileSave[] b = polled.exportTileSaves();
+        assertEquals(b.length, a.length);
+        for (int i = 0; i < a.length; i++) assertEquals(b[i].t0, a[i].t0, "Timer of tile " + i);
+    }
+
+    private static TileWorld build() {
+        TileWorld tileWorld = new TileWorld(new WorldGrid(8, 2));
+        TestHarness.placeLine(tileWorld, 0, 0);
+        return tileWorld;
+    }
+}
@@ -0,0 +1,122 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class SparseWorldTest {
+
+    @Test
+    public void chunksComeAndGo_withTheirTiles() {
+        // 4096 x 4096 cells; dense storage here would be hundreds of MB.
+        WorldGrid world = new WorldGrid(2048, 2048);
+        TileWorld tileWorld = new TileWorld(world);
+        assertEquals(0, world.liveChunkCount());
+
+        TestHarness.place(tileWorld, WorldGrid.TILE_SPAWNER, 4000, 4000, 0);
+        TestHarness.place(tileWorld, WorldGrid.TILE_SELLPAD, 4001, 4000, 0);
+        TestHarness.place(tileWorld, WorldGrid.TILE_SELLPAD, 10, 10, 0);
+        assertEquals(2, world.liveChunkCount());
+        assertEquals(2, tileWorld.liveChunkCount());
+
+        clear(world, tileWorld, 4000, 4000);
+        assertEquals(2, world.liveChunkCount(), "Chunk still holds the sellpad");
+        clear(world, tileWorld, 4001, 4000);
+        assertEquals(1, world.liveChunkCount());
+        assertEquals(1, tileWorld.liveChunkCount());
+        assertEquals(WorldGrid.TILE_EMPTY, world.getTile(4001, 4000));
+        assertEquals(0, world.getRot(4001, 4000));
+        assertNull(tileWorld.getEntity(4001, 4000));
+    }
+
+    // Off-map cells read as empty and can't be written, however close they are to a live chunk.
+    @Test
+    public void outsideTheMap_readsEmpty_andIgnoresWrites() {
+        WorldGrid world = new WorldGrid(64, 64);
+        TileWorld tileWorld = new TileWorld(world);
+        tileWorld.placeTile(0, 0, WorldGrid.TILE_SELLPAD, 1);
+        tileWorld.placeTile(world.wCells - 1, world.hCells - 1, WorldGrid.TILE_SELLPAD, 1);
+        assertEquals(2, world.liveChunkCount());
+
+        int[][] outside = { {-1, 0}, {0, -1}, {world.wCells, 0}, {0, world.hCells}, {world.wCells + 1, world.hCells - 1} };
+        for (int[] c : outside) {
+            String at = "(" + c[0] + ", " + c[1] + ")";
+            tileWorld.placeTile(c[0], c[1], WorldGrid.TILE_CONVEYOR, 2);
+            world.setTile(c[0], c[1], WorldGrid.TILE_SPAWNER, 3);
+            world.setRot(c[0], c[1], 3);
+            assertEquals(WorldGrid.TILE_EMPTY, world.getTile(c[0], c[1]), at);
+            assertEquals(0, world.getRot(c[0], c[1]), at);
+            assertNull(tileWorld.getEntity(c[0], c[1]), at);
+            tileWorld.deleteTile(c[0], c[1]);
+        }
+
+        assertEquals(2, world.liveChunkCount());
+        assertEquals(2, tileWorld.liveChunkCount());
+        assertEquals(WorldGrid.TILE_SELLPAD, world.getTile(0, 0));
+        assertEquals(1, world.getRot(0, 0));
+        assertEquals(WorldGrid.TILE_SELLPAD, world.getTile(world.wCells - 1, world.hCells - 1));
+        assertEquals(1, world.getRot(world.wCells - 1, world.hCells - 1));
+    }
+
+    @Test
+    public void liveCells_walkInRasterOrder() {
+        WorldGrid world = new WorldGrid(64, 64);
+        int[][] cells = { {100, 3}, {5, 40}, {70, 40}, {6, 3}, {127, 127} };
+        for (int[] c : cells) world.setTile(c[0], c[1], WorldGrid.TILE_CONVEYOR);
+
+        int last = -1, seen = 0;
+        for (ChunkSet.Walk c = world.liveCells(); c.next(); ) {
+            int idx = c.x + c.y * world.wCells;
+            assertTrue(idx > last, "Walk went backwards at (" + c.x + ", " + c.y + ")");
+            last = idx;
+            if (world.getTile(c.x, c.y) != WorldGrid.TILE_EMPTY) seen++;
+        }
+        assertEquals(cells.length, seen);
+    }
+
+    // Random placements, replacements and deletions: the per-type lists hold exactly the entities on the map.
+    @Test
+    public void typeLists_matchTheMap() {
+        WorldGrid world = new WorldGrid(16, 16);
+        TileWorld tileWorld = new TileWorld(world);
+        Random rnd = new Random(7);
+        for (int n = 0; n < 5000; n++) {
+            int x = rnd.nextInt(world.wCells), y = rnd.nextInt(world.hCells);
+            if (rnd.nextInt(3) == 0) tileWorld.deleteTile(x, y);
+            else tileWorld.placeTile(x, y, 1 + rnd.nextInt(WorldGrid.TILE_COUNT - 1), rnd.nextInt(4));
+        }
+
+        int[] onMap = new int[WorldGrid.TILE_COUNT];
+        for (int y = 0; y < world.hCells; y++) {
+            for (int x = 0; x < world.wCells; x++) {
+                if (tileWorld.getEntity(x, y) != null) onMap[world.getTile(x, y)]++;
+            }
+        }
+        int walked = 0;
+        for (int t = 0; t < WorldGrid.TILE_COUNT; t++) {
+            assertEquals(onMap[t], tileWorld.entityCount(t), "tile " + t);
+            for (int i = 0; i < tileWorld.entityCount(t); i++) {
+                TileEntity te = tileWorld.entityOfType(t, i);
+                assertSame(te, tileWorld.getEntity(te.cellX, te.cellY));
+                assertEquals(t, world.getTile(te.cellX, te.cellY));
+            }
+        }
+        for (TileWorld.EntityWalk e = tileWorld.entities(); e.next(); ) {
+            assertSame(e.entity, tileWorld.getEntity(e.x, e.y));
+            walked++;
+        }
+        assertEquals(Arrays.stream(onMap).sum(), walked);
+
+        TileWorld.EntityWalk done = tileWorld.entities();
+        while (done.next()) { }
+        assertFalse(done.next(), "A finished walk stays finished");
+    }
+
+    private static void clear(WorldGrid world, TileWorld tileWorld, int cx, int cy) {
+        world.setTile(cx, cy, WorldGrid.TILE_EMPTY);
+        tileWorld.clearEntityAt(cx, cy);
+    }
+}
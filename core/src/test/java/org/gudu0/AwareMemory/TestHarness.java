@@ -17,31 +17,65 @@ public final class TestHarness {
     }
 
     public void delete(int cx, int cy) {
-        world.grid[cx][cy] = WorldGrid.TILE_EMPTY;
+        world.setTile(cx, cy, WorldGrid.TILE_EMPTY);
         tileWorld.clearEntityAt(cx, cy);
 //        tileWorld.refreshAutoTilesNear(cx, cy);
 
     }
 
     public void place(int tileID, int cx, int cy, int rot) {
-        if (world.grid[cx][cy] != WorldGrid.TILE_EMPTY) return;
+        if (world.getTile(cx, cy) != WorldGrid.TILE_EMPTY) return;
 
-        world.grid[cx][cy] = tileID;
-        world.rot[cx][cy] = rot;
+        place(tileWorld, tileID, cx, cy, rot);
+//        tileWorld.refreshAutoTilesNear(cx, cy);
+    }
+
+    // Grid write, conveyor auto-tile, entity rebuild (rebuildEntityAt also runs the SmartPlacement
+    // refresh). Static so the tick tests can build into worlds of their own size.
+    public static void place(TileWorld tileWorld, int tileID, int cx, int cy, int rot) {
+        WorldGrid world = tileWorld.worldGrid();
+        world.setTile(cx, cy, tileID);
+        world.setRot(cx, cy, rot);
 
         if (tileID == WorldGrid.TILE_CONVEYOR) {
             int upgraded = tileWorld.decideAutoTileForConveyor(cx, cy, rot);
-            world.grid[cx][cy] = upgraded;
+            world.setTile(cx, cy, upgraded);
         }
 
         tileWorld.rebuildEntityAt(cx, cy);
-//        tileWorld.refreshAutoTilesNear(cx, cy);
+    }
+
+    // ---- Sim fixtures (shared by the tick tests) ----
+
+    // One production line, west -> east (16 cells): every processing machine once, into a sellpad.
+    public static final int[] LINE = {
+        WorldGrid.TILE_SPAWNER,
+        WorldGrid.TILE_CONVEYOR, WorldGrid.TILE_CONVEYOR, WorldGrid.TILE_CONVEYOR,
+        WorldGrid.TILE_CRUSHER,
+        WorldGrid.TILE_CONVEYOR, WorldGrid.TILE_CONVEYOR, WorldGrid.TILE_CONVEYOR,
+        WorldGrid.TILE_SMELTER,
+        WorldGrid.TILE_CONVEYOR,
+        WorldGrid.TILE_PRESS,
+        WorldGrid.TILE_CONVEYOR,
+        WorldGrid.TILE_ROLLER,
+        WorldGrid.TILE_CONVEYOR, WorldGrid.TILE_CONVEYOR,
+        WorldGrid.TILE_SELLPAD
+    };
+
+    // LINE along row y, from column x0.
+    public static void placeLine(TileWorld tileWorld, int x0, int y) {
+        for (int x = 0; x < LINE.length; x++) place(tileWorld, LINE[x], x0 + x, y, 0);
+    }
+
+    // A run that sold nothing never got an item through the factory, so whatever it compared proves little.
+    public static void assertSold(TileWorld tileWorld) {
+        assertTrue(tileWorld.getMoney() > 0L, "Nothing was sold; comparison would be meaningless");
     }
 
     // ---- Assertions ----
 
     public void assertTileId(int expectedTileID, int cx, int cy) {
-        int got = world.grid[cx][cy];
+        int got = world.getTile(cx, cy);
         assertEquals(
             expectedTileID, got,
             () -> "TileID mismatch @(" + cx + "," + cy + ")\n"
@@ -54,7 +88,7 @@ public final class TestHarness {
     }
 
     public void assertRot(int expectedRot, int cx, int cy) {
-        int got = world.rot[cx][cy];
+        int got = world.getRot(cx, cy);
         assertEquals(
             expectedRot, got,
             () -> "Rot mismatch @(" + cx + "," + cy + ")\n"
@@ -116,7 +150,7 @@ public final class TestHarness {
 
     }
 
-    public void spawnOnTile(int cx, int cy, ItemType type, float value, Dir fromEdge) {
+    public void spawnOnTile(int cx, int cy, ItemType type, int value, Dir fromEdge) {
         tileWorld.spawnOnTile(cx, cy, type, value, fromEdge);
     }
 
@@ -139,7 +173,7 @@ public final class TestHarness {
             sb.append("=== GRID (tile ids) ===\n");
             for (int y = h - 1; y >= 0; y--) {
                 for (int x = 0; x < w; x++) {
-                    sb.append(world.grid[x][y]).append("  ");
+                    sb.append(world.getTile(x, y)).append("  ");
                 }
                 sb.append("\n");
             }
@@ -149,7 +183,7 @@ public final class TestHarness {
             sb.append("=== ROT (0=E,1=S,2=W,3=N) ===\n");
             for (int y = h - 1; y >= 0; y--) {
                 for (int x = 0; x < w; x++) {
-                    sb.append(world.rot[x][y]).append("  ");
+                    sb.append(world.getRot(x, y)).append("  ");
                 }
                 sb.append("\n");
             }
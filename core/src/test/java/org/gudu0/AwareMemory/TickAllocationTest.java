@@ -0,0 +1,50 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public final class TickAllocationTest {
+
+    // Anything per-step (an int[] per rotUV, an iterator per sale) costs thousands of bytes
+    // per tick on this factory; a few stray bytes on average is measurement noise.
+    private static final double MAX_BYTES_PER_TICK = 16.0;
+
+    @Test
+    public void steadyStateTick_allocatesNothing() {
+        java.lang.management.ThreadMXBean base = ManagementFactory.getThreadMXBean();
+        assumeTrue(base instanceof com.sun.management.ThreadMXBean, "No per-thread allocation counter on this JVM");
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) base;
+        assumeTrue(mx.isThreadAllocatedMemorySupported(), "No per-thread allocation counter on this JVM");
+        mx.setThreadAllocatedMemoryEnabled(true);
+
+        WorldGrid world = new WorldGrid(64, 64);
+        TileWorld tileWorld = new TileWorld(world);
+        // TestHarness.LINE, end to end along every other row.
+        for (int y = 0; y < 64; y += 2) {
+            for (int x = 0; x < 64; x += TestHarness.LINE.length) TestHarness.placeLine(tileWorld, x, y);
+        }
+
+        // Warm up until the lines have backed up behind the machines: the item table has then
+        // grown to its working size and every later item reuses a freed slot. Also lets the JIT settle.
+        float dt = tileWorld.fixedDt();
+        for (int i = 0; i < 10000; i++) tileWorld.update(dt);
+
+        int tick0 = tileWorld.getTick();
+        long money0 = tileWorld.getMoney();
+        long bytes0 = mx.getCurrentThreadAllocatedBytes();
+
+        for (int i = 0; i < 2000; i++) tileWorld.update(dt);
+
+        long bytes = mx.getCurrentThreadAllocatedBytes() - bytes0;
+        int ticks = tileWorld.getTick() - tick0;
+        double perTick = (double) bytes / ticks;
+
+        assertTrue(tileWorld.getMoney() > money0, "Factory stopped selling; measurement would be meaningless");
+        assertTrue(perTick <= MAX_BYTES_PER_TICK,
+            () -> "Tick allocated " + perTick + " bytes on average (" + bytes + " over " + ticks + " ticks)");
+    }
+}
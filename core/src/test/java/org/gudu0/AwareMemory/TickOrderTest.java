@@ -0,0 +1,56 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class TickOrderTest {
+
+    // Rotation convention: 0=EAST, 1=SOUTH, 2=WEST, 3=NORTH
+    private static final int TICKS = 3000;
+
+    @Test
+    public void sameLine_sameResult_inEveryOrientation() {
+        long[] money = new long[4];
+        int[] items = new int[4];
+
+        for (int rot = 0; rot < 4; rot++) {
+            TileWorld tileWorld = runLine(rot);
+            money[rot] = tileWorld.getMoney();
+            items[rot] = tileWorld.itemCount();
+        }
+
+        assertTrue(money[0] > 0L, "Nothing reached the sellpad");
+        for (int rot = 1; rot < 4; rot++) {
+            assertEquals(money[0], money[rot], "Money for rot " + rot + " differs from rot 0");
+            assertEquals(items[0], items[rot], "Items for rot " + rot + " differ from rot 0");
+        }
+    }
+
+    // Conveyor/splitter chain (no transport line spans a splitter) into a sellpad, fed one ore per tick.
+    private static TileWorld runLine(int rot) {
+        WorldGrid world = new WorldGrid(40, 40);
+        TileWorld tileWorld = new TileWorld(world);
+        Dir d = Dir.fromRot(rot);
+
+        int x = 20 - d.dx * 10, y = 20 - d.dy * 10;
+        int sx = x, sy = y;
+        for (int i = 0; i < 20; i++) {
+            int id;
+            if (i == 19) id = WorldGrid.TILE_SELLPAD;
+            else if (i % 2 == 0) id = WorldGrid.TILE_CONVEYOR;
+            else id = WorldGrid.TILE_SPLITTER;
+
+            TestHarness.place(tileWorld, id, x, y, rot);
+            x += d.dx;
+            y += d.dy;
+        }
+
+        float dt = tileWorld.fixedDt();
+        for (int i = 0; i < TICKS; i++) {
+            tileWorld.spawnOnTile(sx, sy, ItemType.ORE, 100, d.opposite());
+            tileWorld.update(dt);
+        }
+        return tileWorld;
+    }
+}
@@ -0,0 +1,80 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class TwoPhaseTickTest {
+
+    // Rotation convention: 0=EAST, 1=SOUTH, 2=WEST, 3=NORTH
+    private static final int ROWS = 12;
+    private static final int TICKS = 3000;
+
+    @Test
+    public void oneBigIsland_sameResult_whateverRunsTheBlocks() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            IslandExecutor parallel = (count, blocks) ->
+                pool.submit(() -> IntStream.range(0, count).parallel().forEach(blocks::step)).join();
+            IslandExecutor reversed = (count, blocks) -> {
+                for (int i = count - 1; i >= 0; i--) blocks.step(i);
+            };
+
+            TileWorld serial = build(IslandExecutor.SERIAL);
+            TileWorld threaded = build(parallel);
+            TileWorld backwards = build(reversed);
+
+            DivergenceChecker vsThreaded = new DivergenceChecker(serial, threaded);
+            DivergenceChecker vsBackwards = new DivergenceChecker(serial, backwards);
+
+            float dt = serial.fixedDt();
+            for (int i = 0; i < TICKS; i++) {
+                serial.update(dt);
+                threaded.update(dt);
+                backwards.update(dt);
+
+                long expected = serial.stateHash();
+                int tick = serial.getTick();
+                assertEquals(expected, threaded.stateHash(), "Parallel two-phase tick diverged at tick " + tick);
+                assertEquals(expected, backwards.stateHash(), "Reversed block order diverged at tick " + tick);
+                DivergenceChecker.Divergence d = vsThreaded.compare();
+                assertNull(d, "Parallel two-phase tick: " + d);
+                d = vsBackwards.compare();
+                assertNull(d, "Reversed block order: " + d);
+                // Lines span blocks: a member cell written from another block's thread must still be counted.
+                assertEquals(threaded.recomputeWorldHash(), threaded.worldHash(), "Parallel world hash drifted at tick " + tick);
+            }
+
+            TileEntity top = serial.getEntity(0, 2 * ROWS - 1);
+            TileEntity bottom = serial.getEntity(0, 1);
+            assertEquals(top.island, bottom.island, "Comb should be a single island");
+            TestHarness.assertSold(serial);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // A comb: ROWS spawner rows running east into one south-bound column of mergers that ends in a sellpad.
+    private static TileWorld build(IslandExecutor executor) {
+        int h = 2 * ROWS;
+        WorldGrid world = new WorldGrid(16, h);
+        TileWorld tileWorld = new TileWorld(world);
+        tileWorld.setIslandExecutor(executor);
+        tileWorld.setTwoPhaseTick(true);
+
+        TestHarness.place(tileWorld, WorldGrid.TILE_SELLPAD, 11, 0, 1);
+        for (int y = 1; y < h; y++) {
+            if (y % 2 == 1) {
+                TestHarness.place(tileWorld, WorldGrid.TILE_SPAWNER, 0, y, 0);
+                for (int x = 1; x <= 10; x++) TestHarness.place(tileWorld, WorldGrid.TILE_CONVEYOR, x, y, 0);
+                TestHarness.place(tileWorld, WorldGrid.TILE_MERGER, 11, y, 1);
+            } else {
+                TestHarness.place(tileWorld, WorldGrid.TILE_CONVEYOR, 11, y, 1);
+            }
+        }
+        return tileWorld;
+    }
+}
@@ -0,0 +1,89 @@
+package org.gudu0.AwareMemory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class WorldHashTest {
+
+    // Whatever happens to the world, the running sum must equal a walk from scratch.
+    @Test
+    public void incremental_matchesRecompute() {
+        for (boolean twoPhase : new boolean[]{false, true}) {
+            TileWorld w = build();
+            w.setTwoPhaseTick(twoPhase);
+            Random rnd = new Random(7);
+            for (int i = 0; i < 3000; i++) {
+                switch (rnd.nextInt(40)) {
+                    case 0:
+                        w.spawnOnTile(1 + rnd.nextInt(2), 0, ItemType.ORE, 100, Dir.WEST);
+                        break;
+                    case 1: {
+                        // Knock a tile out and put it back, items and all.
+                        int x = 1 + rnd.nextInt(TestHarness.LINE.length - 2);
+                        w.clearEntityAt(x, 0);
+                        TestHarness.place(w, TestHarness.LINE[x], x, 0, 0);
+                        break;
+                    }
+                    case 2:
+                        w.setItemSpeedMul(0.5f + rnd.nextFloat() * 3f);
+                        break;
+                    case 3:
+                        if (rnd.nextInt(20) == 0) w.clearItems();
+                        break;
+                    case 4:
+                        if (rnd.nextInt(20) == 0) w.skipTicks(1 + rnd.nextInt(500));
+                        break;
+                }
+                w.simulateTicks(1, Long.MAX_VALUE);
+                assertEquals(w.recomputeWorldHash(), w.worldHash(), "twoPhase " + twoPhase + ", tick " + w.getTick());
+            }
+            TestHarness.assertSold(w);
+        }
+    }
+
+    // Timers are hashed as the tick they run out on, so sleeping on them changes nothing.
+    @Test
+    public void timerSleep_hashesLikeSteppingEveryTick() {
+        TileWorld timed = build();
+        TileWorld polled = build();
+        DivergenceChecker checker = new DivergenceChecker(timed, polled);
+        for (int i = 0; i < 3000; i++) {
+            for (int x = 0; x < TestHarness.LINE.length; x++) polled.wakeEntityAt(x, 0);
+            timed.simulateTicks(1, Long.MAX_VALUE);
+            polled.simulateTicks(1, Long.MAX_VALUE);
+            assertNull(checker.compare());
+        }
+        assertTrue(timed.activeEntityCount() < polled.activeEntityCount());
+    }
+
+    @Test
+    public void checker_reportsFirstDivergingTickAndTile() {
+        TileWorld a = build();
+        TileWorld b = build();
+        a.setTwoPhaseTick(true);
+        b.setTwoPhaseTick(true);
+        b.setIslandExecutor((count, blocks) -> {
+            for (int i = count - 1; i >= 0; i--) blocks.step(i);
+        });
+        DivergenceChecker checker = new DivergenceChecker(a, b);
+        assertNull(checker.run(1500), "Block order must not matter");
+
+        // One extra item on b's last belt: caught on this tick, at that tile.
+        int x = TestHarness.LINE.length - 2;
+        b.spawnOnTile(x, 0, ItemType.ORE, 100, Dir.WEST);
+        DivergenceChecker.Divergence d = checker.run(100);
+        assertNotNull(d);
+        assertEquals(1500, d.tick);
+        assertEquals(x, d.cellX);
+        assertEquals(0, d.cellY);
+    }
+
+    private static TileWorld build() {
+        TileWorld tileWorld = new TileWorld(new WorldGrid(8, 2));
+        TestHarness.placeLine(tileWorld, 0, 0);
+        return tileWorld;
+    }
+}
@@ -0,0 +1,94 @@
+package org.gudu0.AwareMemory.entities;
+
+import org.gudu0.AwareMemory.Dir;
+import org.gudu0.AwareMemory.ItemType;
+import org.gudu0.AwareMemory.TestHarness;
+import org.gudu0.AwareMemory.TileWorld;
+import org.gudu0.AwareMemory.WorldGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Differential: one step of k passes must leave the world exactly as k single passes in the same tick
+// (the old per-pass loop), for lines and lone conveyors, whether their exit is blocked, always free,
+// or a busy machine that only takes an item now and then.
+public final class BatchedMovementTest {
+
+    private static final int LINE_Y = 0, LONE_Y = 2;
+    private static final int[] SINKS = { WorldGrid.TILE_EMPTY, WorldGrid.TILE_SELLPAD, WorldGrid.TILE_CRUSHER };
+
+    @Test
+    public void lineStep_matchesSinglePasses() {
+        for (int sink : SINKS) {
+            for (long seed = 1; seed <= 40; seed++) {
+                for (int k = 2; k <= 12; k += 5) {
+                    TileWorld batched = build(sink, seed);
+                    TileWorld single = build(sink, seed);
+                    assertEquals(single.stateHash(), batched.stateHash());
+
+                    TransportLine a = lineOf(batched), b = lineOf(single);
+                    int tick = batched.getTick();
+                    boolean movedA = a.step(batched, tick, k);
+                    boolean movedB = false;
+                    for (int p = 0; p < k; p++) movedB |= b.step(single, tick, 1);
+
+                    String where = "sink " + sink + ", seed " + seed + ", k " + k;
+                    assertEquals(movedB, movedA, where);
+                    assertEquals(single.stateHash(), batched.stateHash(), where);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void loneConveyor_matchesSinglePasses() {
+        for (int sink : SINKS) {
+            for (long seed = 1; seed <= 40; seed++) {
+                for (int k = 2; k <= 6; k++) {
+                    TileWorld batched = build(sink, seed);
+                    TileWorld single = build(sink, seed);
+
+                    ConveyorEntity a = (ConveyorEntity) batched.getEntity(0, LONE_Y);
+                    ConveyorEntity b = (ConveyorEntity) single.getEntity(0, LONE_Y);
+                    assertNull(a.line(), "sink " + sink);
+                    int tick = batched.getTick();
+                    a.movePasses(batched, tick, k);
+                    for (int p = 0; p < k; p++) b.movePasses(single, tick, 1);
+
+                    assertEquals(single.stateHash(), batched.stateHash(), "sink " + sink + ", seed " + seed + ", k " + k);
+                }
+            }
+        }
+    }
+
+    // A 6-conveyor line and a lone conveyor, each into `sink`, with items scattered along them by a few
+    // random ticks; the last spawns land this tick, so some items can't move yet.
+    private static TileWorld build(int sink, long seed) {
+        TileWorld tileWorld = new TileWorld(new WorldGrid(8, 2));
+        for (int x = 0; x < 6; x++) TestHarness.place(tileWorld, WorldGrid.TILE_CONVEYOR, x, LINE_Y, 0);
+        TestHarness.place(tileWorld, WorldGrid.TILE_CONVEYOR, 0, LONE_Y, 0);
+        if (sink != WorldGrid.TILE_EMPTY) {
+            TestHarness.place(tileWorld, sink, 6, LINE_Y, 0);
+            TestHarness.place(tileWorld, sink, 1, LONE_Y, 0);
+        }
+
+        Random rnd = new Random(seed);
+        tileWorld.setItemSpeedMul(0.5f + rnd.nextFloat() * 4f);
+        int rounds = 1 + rnd.nextInt(40);
+        for (int r = 0; r <= rounds; r++) {
+            if (rnd.nextInt(3) > 0) tileWorld.spawnOnTile(rnd.nextInt(6), LINE_Y, ItemType.ORE, 100, Dir.WEST);
+            if (rnd.nextInt(3) == 0) tileWorld.spawnOnTile(0, LONE_Y, ItemType.ORE, 100, Dir.WEST);
+            // The first tick also builds the line.
+            if (r < rounds) tileWorld.simulateTicks(1, Long.MAX_VALUE);
+        }
+        return tileWorld;
+    }
+
+    private static TransportLine lineOf(TileWorld tileWorld) {
+        TransportLine line = ((ConveyorEntity) tileWorld.getEntity(0, LINE_Y)).line();
+        assertNotNull(line);
+        return line;
+    }
+}
@@ -0,0 +1,79 @@
+package org.gudu0.AwareMemory.entities;
+
+import org.gudu0.AwareMemory.Dir;
+import org.gudu0.AwareMemory.DivergenceChecker;
+import org.gudu0.AwareMemory.FactoryGenerator;
+import org.gudu0.AwareMemory.ItemType;
+import org.gudu0.AwareMemory.TestHarness;
+import org.gudu0.AwareMemory.TileWorld;
+import org.gudu0.AwareMemory.WorldGrid;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Differential: a belt stepped as one transport line must move its items exactly as its conveyors
+// would on their own, however many passes a tick takes.
+public final class TransportLineTest {
+
+    private static final float[] SPEEDS = { 0.5f, 1f, 2f, 3f, 5f, 7.5f, 10f };
+    private static final int BELT = 10;
+
+    // Fed an ore every tick into a sellpad, so the belt runs both packed and spaced out: every item on
+    // the same cell after every tick, and the same money.
+    @Test
+    public void line_matchesLoneConveyors() {
+        for (float speed : SPEEDS) {
+            TileWorld lined = belt(speed, true);
+            TileWorld lone = belt(speed, false);
+            float dt = lined.fixedDt();
+            for (int t = 1; t <= 400; t++) {
+                lined.spawnOnTile(BELT, 0, ItemType.ORE, 100, Dir.EAST);
+                lone.spawnOnTile(BELT, 0, ItemType.ORE, 100, Dir.EAST);
+                lined.update(dt);
+                lone.update(dt);
+                if (t == 1) assertNotNull(((ConveyorEntity) lined.getEntity(BELT, 0)).line());
+
+                String when = "speed " + speed + ", tick " + t;
+                for (int x = 1; x <= BELT; x++) {
+                    ConveyorEntity a = (ConveyorEntity) lined.getEntity(x, 0);
+                    ConveyorEntity b = (ConveyorEntity) lone.getEntity(x, 0);
+                    assertNull(b.line(), when);
+                    for (int k = 0; k < ConveyorEntity.PATH_LENGTH; k++) {
+                        assertEquals(b.pathItemAt(k), a.pathItemAt(k), when + ", conveyor " + x + " cell " + k);
+                    }
+                }
+                assertEquals(lone.getMoney(), lined.getMoney(), when);
+            }
+            TestHarness.assertSold(lined);
+        }
+    }
+
+    // Whole generated factories, lines on and off: the same world hash every tick.
+    @Test
+    public void factories_matchPerTileConveyors() {
+        for (long seed = 1; seed <= 3; seed++) {
+            for (float speed : SPEEDS) {
+                TileWorld lined = FactoryGenerator.generate(seed, 1500);
+                TileWorld lone = FactoryGenerator.generate(seed, 1500);
+                lone.setTransportLines(false);
+                lined.setItemSpeedMul(speed);
+                lone.setItemSpeedMul(speed);
+
+                DivergenceChecker.Divergence d = new DivergenceChecker(lined, lone).run(1500);
+                assertNull(d, "seed " + seed + ", speed " + speed + ": " + d);
+                TestHarness.assertSold(lined);
+            }
+        }
+    }
+
+    // West-facing into a sellpad at x = 0. Lone conveyors step downstream first, the same order the
+    // line moves its items in.
+    private static TileWorld belt(float speed, boolean lines) {
+        TileWorld tileWorld = new TileWorld(new WorldGrid(BELT / 2 + 1, 1));
+        tileWorld.setTransportLines(lines);
+        TestHarness.place(tileWorld, WorldGrid.TILE_SELLPAD, 0, 0, 2);
+        for (int x = 1; x <= BELT; x++) TestHarness.place(tileWorld, WorldGrid.TILE_CONVEYOR, x, 0, 2);
+        tileWorld.setItemSpeedMul(speed);
+        return tileWorld;
+    }
+}
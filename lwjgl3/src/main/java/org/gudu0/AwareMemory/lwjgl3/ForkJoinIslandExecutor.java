@@ -0,0 +1,51 @@
+package org.gudu0.AwareMemory.lwjgl3;
+
+import org.gudu0.AwareMemory.IslandExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Steps TileWorld's islands on a ForkJoin pool. Desktop only: core (and the web build) stays thread-free. */
+public final class ForkJoinIslandExecutor implements IslandExecutor {
+    private final ForkJoinPool pool;
+
+    public ForkJoinIslandExecutor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ForkJoinIslandExecutor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void runAll(int count, Islands islands) {
+        // Not worth a task for a single island (a save with one big factory).
+        if (count < 2) {
+            IslandExecutor.SERIAL.runAll(count, islands);
+            return;
+        }
+        pool.invoke(new Range(islands, 0, count));
+    }
+
+    // Splits [lo, hi) in halves down to single islands; work stealing evens out island sizes.
+    private static final class Range extends RecursiveAction {
+        private final Islands islands;
+        private final int lo, hi;
+
+        Range(Islands islands, int lo, int hi) {
+            this.islands = islands;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                islands.step(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Range(islands, lo, mid), new Range(islands, mid, hi));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.gudu0.AwareMemory.lwjgl3;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Files;
+import org.gudu0.AwareMemory.FastForward;
+import org.gudu0.AwareMemory.IslandExecutor;
+import org.gudu0.AwareMemory.Money;
+import org.gudu0.AwareMemory.SmartPlacement;
+import org.gudu0.AwareMemory.TileWorld;
+import org.gudu0.AwareMemory.WorldGrid;
+
+/**
+ * Batch mode (--fast-forward=TICKS [--save=NAME]): loads a save without opening a window, runs the ticks
+ * as fast as the machine allows and prints progress and the result. Used to compare layouts.
+ */
+final class HeadlessSim {
+    private HeadlessSim() {}
+
+    static void run(String save, long ticks, IslandExecutor islands, boolean twoPhase) {
+        // Saves are read through Gdx.files; nothing else here needs an application.
+        Gdx.files = new Lwjgl3Files();
+
+        WorldGrid world = new WorldGrid();
+        TileWorld tileWorld = new TileWorld(world);
+        tileWorld.setIslandExecutor(islands);
+        tileWorld.setTwoPhaseTick(twoPhase);
+
+        world.loadWithTileWorld(save);
+        tileWorld.rebuildAllFromGrid();
+        SmartPlacement.refreshAll(tileWorld);
+        world.applyLoadedItemsTo(tileWorld);
+        tileWorld.refreshAllConveyorShapes();
+
+        long moneyBefore = tileWorld.getMoney();
+        long t0 = System.nanoTime();
+        FastForward ff = new FastForward(tileWorld, ticks);
+        while (!ff.isFinished()) {
+            ff.run(1_000_000_000L); // report about once a second
+            System.out.printf("%5.1f%%  tick %d  money %s%n", ff.progress() * 100f, tileWorld.getTick(), Money.format(tileWorld.getMoney()));
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+
+        System.out.printf("Simulated %d ticks in %d ms: money %s (+%s), items %d%n",
+            ff.ticksDone(), ms, Money.format(tileWorld.getMoney()), Money.format(tileWorld.getMoney() - moneyBefore), tileWorld.itemCount());
+        if (tileWorld.getLastSimError() != null) System.out.println("Sim error: " + tileWorld.getLastSimError());
+    }
+}
@@ -2,18 +2,51 @@ package org.gudu0.AwareMemory.lwjgl3;
 
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import org.gudu0.AwareMemory.IslandExecutor;
 import org.gudu0.AwareMemory.Main;
 import org.lwjgl.glfw.GLFW;
 
+import java.util.Arrays;
+
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
+        String ticks = option(args, "--fast-forward=");
+        if (ticks != null) {
+            // Headless: no window, no JVM restart needed.
+            HeadlessSim.run(optionOr(args, "--save=", "save2"), Long.parseLong(ticks), islandExecutor(args),
+                Arrays.asList(args).contains("--two-phase-tick"));
+            System.exit(0);
+        }
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
-        createApplication();
+        createApplication(args);
+    }
+
+    private static String option(String[] args, String prefix) {
+        for (String a : args) {
+            if (a.startsWith(prefix)) return a.substring(prefix.length());
+        }
+        return null;
+    }
+
+    private static String optionOr(String[] args, String prefix, String fallback) {
+        String v = option(args, prefix);
+        return (v != null) ? v : fallback;
+    }
+
+    private static IslandExecutor islandExecutor(String[] args) {
+        // Independent factory islands tick on all cores; --serial-tick forces one thread
+        // (results are identical either way, which is handy to verify).
+        return Arrays.asList(args).contains("--serial-tick")
+            ? IslandExecutor.SERIAL
+            : new ForkJoinIslandExecutor();
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new Main(), getDefaultConfiguration());
+    private static Lwjgl3Application createApplication(String[] args) {
+        // --two-phase-tick also splits single big islands across cores, with slightly different flow rules.
+        IslandExecutor islands = islandExecutor(args);
+        boolean twoPhase = Arrays.asList(args).contains("--two-phase-tick");
+        return new Lwjgl3Application(new Main(islands, twoPhase), getDefaultConfiguration());
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {